@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.core.Ordered;
+
+/**
+ * Base {@link BeanPostProcessor} wrapping {@link AppDeployer} beans.
+ * Post processors are applied in their order, thus a wrapper with a
+ * lower order ends up closer to an actual deployer. Lazy init proxies
+ * are skipped as their target is wrapped when created. Wrappers which
+ * are {@link DisposableBean}s are destroyed with this post processor as
+ * an outer wrapper hides them from a container.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public abstract class AppDeployerWrappingPostProcessor implements BeanPostProcessor, DisposableBean, Ordered {
+
+	public static final int ARTIFACT_CACHE_ORDER = 25;
+	public static final int LOCALITY_ORDER = 50;
+	public static final int PIPELINED_DEPLOY_ORDER = 100;
+	public static final int SHARED_APPMASTER_ORDER = 200;
+	public static final int STATUS_CACHE_ORDER = 300;
+	private final Class<? extends AppDeployer> wrapperType;
+	private final int order;
+	private final List<DisposableBean> disposables = new ArrayList<DisposableBean>();
+
+	/**
+	 * Instantiates a new app deployer wrapping post processor.
+	 *
+	 * @param wrapperType the type of a wrapper
+	 * @param order the order
+	 */
+	protected AppDeployerWrappingPostProcessor(Class<? extends AppDeployer> wrapperType, int order) {
+		this.wrapperType = wrapperType;
+		this.order = order;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof AppDeployer && !wrapperType.isInstance(bean) && !AopUtils.isAopProxy(bean)) {
+			AppDeployer wrapper = wrap((AppDeployer) bean);
+			if (wrapper instanceof DisposableBean) {
+				synchronized (disposables) {
+					disposables.add((DisposableBean) wrapper);
+				}
+			}
+			return wrapper;
+		}
+		return bean;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		synchronized (disposables) {
+			for (DisposableBean disposable : disposables) {
+				disposable.destroy();
+			}
+			disposables.clear();
+		}
+	}
+
+	@Override
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 * Wraps an app deployer.
+	 *
+	 * @param deployer the app deployer
+	 * @return the wrapping app deployer
+	 */
+	protected abstract AppDeployer wrap(AppDeployer deployer);
+}
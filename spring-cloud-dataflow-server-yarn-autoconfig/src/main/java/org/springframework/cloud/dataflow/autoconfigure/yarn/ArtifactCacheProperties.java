@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for HDFS artifact cache. Cache is disabled on
+ * default and when enabled artifacts are kept under
+ * '/dataflow/artifacts/maven'. Cache size defaults to 2GB and 500
+ * artifacts.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = "dataflow.server.yarn.artifact-cache")
+public class ArtifactCacheProperties {
+
+	private boolean enabled;
+	private String directory = "/dataflow/artifacts/maven";
+	private long maxSize = 2L * 1024 * 1024 * 1024;
+	private int maxEntries = 500;
+
+	/**
+	 * Checks if cache is enabled.
+	 *
+	 * @return true, if cache is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if cache is enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the cache directory.
+	 *
+	 * @return the cache directory
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Sets the cache directory.
+	 *
+	 * @param directory the new cache directory
+	 */
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the maximum total size of cached artifacts in bytes.
+	 *
+	 * @return the maximum size
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum total size of cached artifacts in bytes.
+	 *
+	 * @param maxSize the new maximum size
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Gets the maximum number of cached artifacts.
+	 *
+	 * @return the maximum number of artifacts
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Sets the maximum number of cached artifacts.
+	 *
+	 * @param maxEntries the new maximum number of artifacts
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.hadoop.fs.HdfsResourceLoader;
+
+/**
+ * {@link Resource} wrapping a {@link MavenResource} which can also be
+ * resolved into a blob in {@link HdfsArtifactCache}. All resource methods
+ * are delegated to a maven resource, so the server can still read an
+ * artifact locally, for example to show its configuration metadata.
+ * Only deployers ask for {@link #getHdfsResource()} which resolves and
+ * uploads an artifact into a cache once per resource.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class CachedMavenResource extends AbstractResource {
+
+	private static final Logger log = LoggerFactory.getLogger(CachedMavenResource.class);
+	private final MavenResource resource;
+	private final HdfsArtifactCache cache;
+	private final HdfsResourceLoader hdfsResourceLoader;
+	private volatile Resource hdfsResource;
+
+	/**
+	 * Instantiates a new cached maven resource.
+	 *
+	 * @param resource the maven resource
+	 * @param cache the hdfs artifact cache
+	 * @param hdfsResourceLoader the hdfs resource loader
+	 */
+	public CachedMavenResource(MavenResource resource, HdfsArtifactCache cache, HdfsResourceLoader hdfsResourceLoader) {
+		this.resource = resource;
+		this.cache = cache;
+		this.hdfsResourceLoader = hdfsResourceLoader;
+	}
+
+	/**
+	 * Gets the wrapped maven resource.
+	 *
+	 * @return the maven resource
+	 */
+	public MavenResource getMavenResource() {
+		return resource;
+	}
+
+	/**
+	 * Gets the artifact as a resource in hdfs, resolving and uploading it
+	 * into a cache on a first call. If a cache cannot be used, a maven
+	 * resource itself is returned and deployer handles it as usual.
+	 *
+	 * @return the hdfs resource or the maven resource
+	 */
+	public Resource getHdfsResource() {
+		Resource resolved = hdfsResource;
+		if (resolved == null) {
+			synchronized (this) {
+				resolved = hdfsResource;
+				if (resolved == null) {
+					try {
+						Path blob = cache.resolve(resource);
+						resolved = hdfsResourceLoader.getResource(blob.toString());
+					}
+					catch (IOException e) {
+						log.warn("Unable to use hdfs artifact cache for " + resource + ", falling back to default", e);
+						resolved = resource;
+					}
+					hdfsResource = resolved;
+				}
+			}
+		}
+		return resolved;
+	}
+
+	@Override
+	public String getDescription() {
+		return resource.getDescription();
+	}
+
+	@Override
+	public String getFilename() {
+		return resource.getFilename();
+	}
+
+	@Override
+	public boolean exists() {
+		return resource.exists();
+	}
+
+	@Override
+	public URI getURI() throws IOException {
+		return resource.getURI();
+	}
+
+	@Override
+	public File getFile() throws IOException {
+		return resource.getFile();
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return resource.getInputStream();
+	}
+
+	/**
+	 * Replaces a {@link CachedMavenResource} in a request with its hdfs
+	 * resource. Other requests are returned as is.
+	 *
+	 * @param request the app deployment request
+	 * @return the request to hand to a deployer
+	 */
+	static AppDeploymentRequest toHdfsRequest(AppDeploymentRequest request) {
+		if (!(request.getResource() instanceof CachedMavenResource)) {
+			return request;
+		}
+		Resource resource = ((CachedMavenResource) request.getResource()).getHdfsResource();
+		return new AppDeploymentRequest(request.getDefinition(), resource, request.getDeploymentProperties(),
+				request.getCommandlineArguments());
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.core.RuntimeEnvironmentInfo;
+
+/**
+ * {@link AppDeployer} caching statuses returned from a delegate. Status
+ * younger than a maximum age is returned from a cache, otherwise it is
+ * queried from a delegate and concurrent callers asking a same status
+ * share that single query. Deploying or undeploying an app drops its
+ * cached status.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class CachingAppDeployer implements AppDeployer {
+
+	private final AppDeployer delegate;
+	private final long maxAge;
+	private final ConcurrentMap<String, CachedStatus> statuses = new ConcurrentHashMap<String, CachedStatus>();
+	private final ConcurrentMap<String, FutureTask<AppStatus>> queries = new ConcurrentHashMap<String, FutureTask<AppStatus>>();
+	// bumped on every change so that queries started before it are not cached
+	private final AtomicLong changes = new AtomicLong();
+	private final StatusCacheStatistics statistics;
+
+	/**
+	 * Instantiates a new caching app deployer.
+	 *
+	 * @param delegate the delegate app deployer
+	 * @param maxAge the maximum age of a cached status in milliseconds
+	 */
+	public CachingAppDeployer(AppDeployer delegate, long maxAge) {
+		this(delegate, maxAge, new StatusCacheStatistics());
+	}
+
+	/**
+	 * Instantiates a new caching app deployer.
+	 *
+	 * @param delegate the delegate app deployer
+	 * @param maxAge the maximum age of a cached status in milliseconds
+	 * @param statistics the statistics updated by this deployer
+	 */
+	public CachingAppDeployer(AppDeployer delegate, long maxAge, StatusCacheStatistics statistics) {
+		this.delegate = delegate;
+		this.maxAge = maxAge;
+		this.statistics = statistics;
+	}
+
+	@Override
+	public String deploy(AppDeploymentRequest request) {
+		String id = delegate.deploy(request);
+		invalidate(id);
+		return id;
+	}
+
+	@Override
+	public void undeploy(String id) {
+		try {
+			delegate.undeploy(id);
+		}
+		finally {
+			invalidate(id);
+		}
+	}
+
+	@Override
+	public AppStatus status(final String id) {
+		CachedStatus cached = statuses.get(id);
+		if (cached != null && System.currentTimeMillis() - cached.timestamp <= maxAge) {
+			statistics.hit();
+			return cached.status;
+		}
+		FutureTask<AppStatus> query = new FutureTask<AppStatus>(new Callable<AppStatus>() {
+
+			@Override
+			public AppStatus call() throws Exception {
+				long change = changes.get();
+				long timestamp = System.currentTimeMillis();
+				AppStatus status = delegate.status(id);
+				if (change == changes.get()) {
+					statuses.put(id, new CachedStatus(status, timestamp));
+				}
+				return status;
+			}
+		});
+		FutureTask<AppStatus> existing = queries.putIfAbsent(id, query);
+		if (existing != null) {
+			statistics.coalesce();
+			return get(existing);
+		}
+		statistics.miss();
+		try {
+			query.run();
+		}
+		finally {
+			queries.remove(id, query);
+		}
+		return get(query);
+	}
+
+	@Override
+	public RuntimeEnvironmentInfo environmentInfo() {
+		return delegate.environmentInfo();
+	}
+
+	/**
+	 * Gets the cache statistics.
+	 *
+	 * @return the cache statistics
+	 */
+	public StatusCacheStatistics getStatistics() {
+		return statistics;
+	}
+
+	private void invalidate(String id) {
+		changes.incrementAndGet();
+		statuses.remove(id);
+		queries.remove(id);
+	}
+
+	private static AppStatus get(FutureTask<AppStatus> query) {
+		try {
+			return query.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for app status", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException("Unable to get app status", e.getCause());
+		}
+	}
+
+	private static class CachedStatus {
+
+		final AppStatus status;
+		final long timestamp;
+
+		CachedStatus(AppStatus status, long timestamp) {
+			this.status = status;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Plans how containers of an app are placed on hosts and racks. Hosts
+ * and racks are preferred in a given order and containers are spread
+ * over all of those evenly, containers not placed on any host or rack
+ * are left to be placed anywhere.
+ * <p>
+ * Preferred hosts can be given explicitly or derived from a hdfs path,
+ * in which case hosts holding most blocks of a file, or of files
+ * directly in a directory, are preferred. With spreading at most one
+ * container is placed on a host, using nodes with fewest containers
+ * when no hosts are given, and containers left over are spread over
+ * racks.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class ContainerLocalityPlanner {
+
+	private final List<String> hosts = new ArrayList<String>();
+	private final List<String> racks = new ArrayList<String>();
+	private boolean spread;
+
+	/**
+	 * Sets preferred hosts as a comma delimited list.
+	 *
+	 * @param hosts the preferred hosts
+	 * @return the planner for chaining
+	 */
+	public ContainerLocalityPlanner hosts(String hosts) {
+		this.hosts.addAll(StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(hosts)));
+		this.hosts.remove("");
+		return this;
+	}
+
+	/**
+	 * Sets preferred racks as a comma delimited list.
+	 *
+	 * @param racks the preferred racks
+	 * @return the planner for chaining
+	 */
+	public ContainerLocalityPlanner racks(String racks) {
+		this.racks.addAll(StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(racks)));
+		this.racks.remove("");
+		return this;
+	}
+
+	/**
+	 * Prefers given hosts holding data of an app, usually ranked with
+	 * {@link #blockHosts(FileSystem, FileStatus)}. Hosts given explicitly
+	 * are preferred before these.
+	 *
+	 * @param hosts the ranked hosts
+	 * @return the planner for chaining
+	 */
+	public ContainerLocalityPlanner dataHosts(List<String> hosts) {
+		for (String host : hosts) {
+			if (!this.hosts.contains(host)) {
+				this.hosts.add(host);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Ranks hosts by number of blocks they hold of a file or of files
+	 * directly in a directory. Subdirectories are not traversed.
+	 *
+	 * @param fs the hadoop file system
+	 * @param status the status of a file or directory
+	 * @return the hosts holding most blocks first
+	 * @throws IOException if reading block locations fails
+	 */
+	public static List<String> blockHosts(FileSystem fs, FileStatus status) throws IOException {
+		final Map<String, Integer> blocks = new HashMap<String, Integer>();
+		if (status.isFile()) {
+			countBlocks(blocks, fs.getFileBlockLocations(status, 0, status.getLen()));
+		}
+		else {
+			RemoteIterator<LocatedFileStatus> files = fs.listLocatedStatus(status.getPath());
+			while (files.hasNext()) {
+				LocatedFileStatus file = files.next();
+				if (file.isFile()) {
+					countBlocks(blocks, file.getBlockLocations());
+				}
+			}
+		}
+		List<String> ranked = new ArrayList<String>(blocks.keySet());
+		Collections.sort(ranked, new Comparator<String>() {
+
+			@Override
+			public int compare(String left, String right) {
+				return blocks.get(right).compareTo(blocks.get(left));
+			}
+		});
+		return ranked;
+	}
+
+	/**
+	 * Sets if containers should be spread on different hosts.
+	 *
+	 * @param spread the spread flag
+	 * @return the planner for chaining
+	 */
+	public ContainerLocalityPlanner spread(boolean spread) {
+		this.spread = spread;
+		return this;
+	}
+
+	/**
+	 * Checks if this planner has any preferences.
+	 *
+	 * @return true, if planner has preferences
+	 */
+	public boolean hasPreferences() {
+		return spread || !hosts.isEmpty() || !racks.isEmpty();
+	}
+
+	/**
+	 * Checks if spreading needs candidate hosts from running nodes.
+	 *
+	 * @return true, if running nodes are needed
+	 */
+	public boolean needsNodes() {
+		return spread && hosts.isEmpty();
+	}
+
+	/**
+	 * Plans placement of containers.
+	 *
+	 * @param count the number of containers
+	 * @param nodes the container counts of running nodes used for spreading,
+	 *        may be empty
+	 * @return the plan
+	 */
+	public Plan plan(int count, Map<String, Integer> nodes) {
+		Plan plan = new Plan();
+		List<String> candidates = hosts;
+		if (needsNodes()) {
+			candidates = new ArrayList<String>(nodes.keySet());
+			final Map<String, Integer> used = nodes;
+			Collections.sort(candidates, new Comparator<String>() {
+
+				@Override
+				public int compare(String left, String right) {
+					return used.get(left).compareTo(used.get(right));
+				}
+			});
+		}
+		int remaining = count;
+		if (spread) {
+			for (int i = 0; i < candidates.size() && remaining > 0; i++, remaining--) {
+				plan.hosts.put(candidates.get(i), 1);
+			}
+			candidates = Collections.emptyList();
+		}
+		int locations = candidates.size() + racks.size();
+		for (int i = 0; locations > 0 && i < remaining; i++) {
+			int location = i % locations;
+			if (location < candidates.size()) {
+				increment(plan.hosts, candidates.get(location));
+			}
+			else {
+				increment(plan.racks, racks.get(location - candidates.size()));
+			}
+		}
+		plan.any = locations > 0 ? 0 : remaining;
+		return plan;
+	}
+
+	private static void countBlocks(Map<String, Integer> blocks, BlockLocation[] locations) throws IOException {
+		for (BlockLocation location : locations) {
+			for (String host : location.getHosts()) {
+				increment(blocks, host);
+			}
+		}
+	}
+
+	private static void increment(Map<String, Integer> counts, String name) {
+		Integer current = counts.get(name);
+		counts.put(name, current != null ? current + 1 : 1);
+	}
+
+	/**
+	 * Placement of containers as counts on hosts and racks and a count
+	 * of containers placed anywhere.
+	 */
+	public static class Plan {
+
+		private final Map<String, Integer> hosts = new LinkedHashMap<String, Integer>();
+		private final Map<String, Integer> racks = new LinkedHashMap<String, Integer>();
+		private int any;
+
+		/**
+		 * Gets the container counts on hosts.
+		 *
+		 * @return the host counts
+		 */
+		public Map<String, Integer> getHosts() {
+			return hosts;
+		}
+
+		/**
+		 * Gets the container counts on racks.
+		 *
+		 * @return the rack counts
+		 */
+		public Map<String, Integer> getRacks() {
+			return racks;
+		}
+
+		/**
+		 * Gets the number of containers placed anywhere.
+		 *
+		 * @return the count
+		 */
+		public int getAny() {
+			return any;
+		}
+
+		@Override
+		public String toString() {
+			return "Plan [hosts=" + hosts + ", racks=" + racks + ", any=" + any + "]";
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * {@link PublicMetrics} exposing {@link WaitTimingDataSource} active and
+ * idle connections, threads waiting for a connection and time waited.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class DataSourcePoolMetrics implements PublicMetrics {
+
+	private final WaitTimingDataSource dataSource;
+
+	/**
+	 * Instantiates a new data source pool metrics.
+	 *
+	 * @param dataSource the data source
+	 */
+	public DataSourcePoolMetrics(WaitTimingDataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		// reading counts from a data source would create a pool
+		boolean created = dataSource.isPoolCreated();
+		metrics.add(new Metric<Integer>("dataflow.yarn.datasource.active", created ? dataSource.getActive() : 0));
+		metrics.add(new Metric<Integer>("dataflow.yarn.datasource.idle", created ? dataSource.getIdle() : 0));
+		metrics.add(new Metric<Integer>("dataflow.yarn.datasource.waiting", created ? dataSource.getWaitCount() : 0));
+		metrics.add(new Metric<Long>("dataflow.yarn.datasource.wait.count", dataSource.getWaits()));
+		metrics.add(new Metric<Double>("dataflow.yarn.datasource.wait.avg", dataSource.getAverageWaitTime()));
+		metrics.add(new Metric<Double>("dataflow.yarn.datasource.wait.max", dataSource.getMaxWaitTime()));
+		return metrics;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for a pooled server datasource. Pool is
+ * disabled on default and when enabled keeps 5 to 20 connections,
+ * caches 100 prepared statements per connection and waits at most 10
+ * seconds for a free connection.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = DataSourcePoolProperties.PREFIX)
+public class DataSourcePoolProperties {
+
+	public static final String PREFIX = "dataflow.server.yarn.datasource";
+	private boolean enabled;
+	private int initialSize = 5;
+	private int minIdle = 5;
+	private int maxActive = 20;
+	private int maxWait = 10000;
+	private int statementCacheSize = 100;
+
+	/**
+	 * Checks if pool is enabled.
+	 *
+	 * @return true, if pool is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if pool is enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the number of connections created when pool is started.
+	 *
+	 * @return the initial size
+	 */
+	public int getInitialSize() {
+		return initialSize;
+	}
+
+	/**
+	 * Sets the number of connections created when pool is started.
+	 *
+	 * @param initialSize the new initial size
+	 */
+	public void setInitialSize(int initialSize) {
+		this.initialSize = initialSize;
+	}
+
+	/**
+	 * Gets the minimum number of idle connections.
+	 *
+	 * @return the minimum idle
+	 */
+	public int getMinIdle() {
+		return minIdle;
+	}
+
+	/**
+	 * Sets the minimum number of idle connections.
+	 *
+	 * @param minIdle the new minimum idle
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Gets the maximum number of connections.
+	 *
+	 * @return the maximum active
+	 */
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	/**
+	 * Sets the maximum number of connections.
+	 *
+	 * @param maxActive the new maximum active
+	 */
+	public void setMaxActive(int maxActive) {
+		this.maxActive = maxActive;
+	}
+
+	/**
+	 * Gets the time in milliseconds to wait for a free connection.
+	 *
+	 * @return the maximum wait
+	 */
+	public int getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Sets the time in milliseconds to wait for a free connection.
+	 *
+	 * @param maxWait the new maximum wait
+	 */
+	public void setMaxWait(int maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Gets the number of cached prepared statements per connection.
+	 *
+	 * @return the statement cache size
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Sets the number of cached prepared statements per connection,
+	 * zero disables a cache.
+	 *
+	 * @param statementCacheSize the new statement cache size
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Content addressed cache of maven artifacts in HDFS. Artifacts are
+ * stored as blobs under {@code <directory>/blobs/<sha256>/<filename>} and
+ * maven coordinates are mapped to blobs with small index files under
+ * {@code <directory>/index}. Release artifacts found from an index are
+ * returned without resolving those from maven, snapshot artifacts are
+ * always resolved but uploaded only if content changed.
+ * <p>
+ * Every use of a blob updates its modification time and least recently
+ * used blobs are evicted when total size or number of blobs exceeds
+ * configured limits.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class HdfsArtifactCache {
+
+	private static final Logger log = LoggerFactory.getLogger(HdfsArtifactCache.class);
+	private static final String SNAPSHOT = "SNAPSHOT";
+	private final FileSystem fs;
+	private final Path blobs;
+	private final Path index;
+	private final long maxSize;
+	private final int maxEntries;
+	private final ConcurrentMap<String, String> digests = new ConcurrentHashMap<String, String>();
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong uploads = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new hdfs artifact cache.
+	 *
+	 * @param fs the hadoop file system
+	 * @param directory the cache base directory
+	 * @param maxSize the maximum total size of blobs in bytes
+	 * @param maxEntries the maximum number of blobs
+	 */
+	public HdfsArtifactCache(FileSystem fs, String directory, long maxSize, int maxEntries) {
+		this.fs = fs;
+		this.blobs = new Path(directory, "blobs");
+		this.index = new Path(directory, "index");
+		this.maxSize = maxSize;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Resolves a maven resource into a cached blob in HDFS, uploading an
+	 * artifact if cache doesn't already hold its content.
+	 *
+	 * @param resource the maven resource
+	 * @return the fully qualified path of a blob
+	 * @throws IOException if resolving or uploading fails
+	 */
+	public Path resolve(MavenResource resource) throws IOException {
+		String coordinates = getCoordinates(resource);
+		boolean snapshot = resource.getVersion().endsWith(SNAPSHOT);
+		Object lock = new Object();
+		Object existing = locks.putIfAbsent(coordinates, lock);
+		synchronized (existing != null ? existing : lock) {
+			if (!snapshot) {
+				String digest = readDigest(coordinates, resource);
+				if (digest != null) {
+					Path blob = getBlobPath(digest, resource.getFilename());
+					if (fs.exists(blob)) {
+						touch(blob);
+						hits.incrementAndGet();
+						log.info("Using cached artifact {} for {}", blob, coordinates);
+						return fs.makeQualified(blob);
+					}
+				}
+			}
+			misses.incrementAndGet();
+			File file = resource.getFile();
+			String digest = digest(file);
+			Path blob = getBlobPath(digest, resource.getFilename());
+			if (fs.exists(blob)) {
+				touch(blob);
+			}
+			else {
+				upload(file, blob);
+				evict(blob);
+			}
+			if (!snapshot) {
+				writeDigest(coordinates, resource, digest);
+			}
+			return fs.makeQualified(blob);
+		}
+	}
+
+	/**
+	 * Gets the cache statistics.
+	 *
+	 * @return the cache statistics
+	 */
+	public String getStats() {
+		return "hits=" + hits.get() + ", misses=" + misses.get() + ", uploads=" + uploads.get() + ", evictions="
+				+ evictions.get();
+	}
+
+	private String readDigest(String coordinates, MavenResource resource) throws IOException {
+		String digest = digests.get(coordinates);
+		if (digest != null) {
+			return digest;
+		}
+		InputStream in;
+		try {
+			in = fs.open(getIndexPath(resource));
+		}
+		catch (FileNotFoundException e) {
+			return null;
+		}
+		try {
+			digest = new String(FileCopyUtils.copyToByteArray(in), StandardCharsets.UTF_8).trim();
+		}
+		finally {
+			in.close();
+		}
+		digests.put(coordinates, digest);
+		return digest;
+	}
+
+	private void writeDigest(String coordinates, MavenResource resource, String digest) throws IOException {
+		OutputStream out = fs.create(getIndexPath(resource), true);
+		try {
+			out.write(digest.getBytes(StandardCharsets.UTF_8));
+		}
+		finally {
+			out.close();
+		}
+		digests.put(coordinates, digest);
+	}
+
+	private void upload(File file, Path blob) throws IOException {
+		// upload into a temporary file first so that partial blobs are never visible
+		Path tmp = new Path(blob.getParent(), "." + blob.getName() + "." + UUID.randomUUID() + ".tmp");
+		long start = System.currentTimeMillis();
+		fs.copyFromLocalFile(false, true, new Path(file.toURI()), tmp);
+		if (!fs.rename(tmp, blob)) {
+			// other server instance may have uploaded same content concurrently
+			fs.delete(tmp, false);
+			if (!fs.exists(blob)) {
+				throw new IOException("Unable to rename " + tmp + " to " + blob);
+			}
+		}
+		uploads.incrementAndGet();
+		log.info("Cached artifact {} as {} in {} ms", file, blob, System.currentTimeMillis() - start);
+	}
+
+	private void evict(Path keep) throws IOException {
+		FileStatus[] statuses = fs.globStatus(new Path(blobs, "*/*"));
+		if (statuses == null) {
+			return;
+		}
+		List<FileStatus> candidates = new ArrayList<FileStatus>(Arrays.asList(statuses));
+		long size = 0;
+		for (FileStatus status : candidates) {
+			size += status.getLen();
+		}
+		int count = candidates.size();
+		Collections.sort(candidates, new Comparator<FileStatus>() {
+
+			@Override
+			public int compare(FileStatus left, FileStatus right) {
+				return Long.compare(left.getModificationTime(), right.getModificationTime());
+			}
+		});
+		String kept = Path.getPathWithoutSchemeAndAuthority(keep).toString();
+		for (FileStatus status : candidates) {
+			if (size <= maxSize && count <= maxEntries) {
+				break;
+			}
+			if (Path.getPathWithoutSchemeAndAuthority(status.getPath()).toString().equals(kept)) {
+				continue;
+			}
+			if (fs.delete(status.getPath(), false)) {
+				size -= status.getLen();
+				count--;
+				evictions.incrementAndGet();
+				log.info("Evicted cached artifact {}", status.getPath());
+				// same content may be cached with other file names
+				Path parent = status.getPath().getParent();
+				if (fs.listStatus(parent).length == 0) {
+					fs.delete(parent, false);
+				}
+			}
+		}
+	}
+
+	private void touch(Path blob) {
+		try {
+			fs.setTimes(blob, System.currentTimeMillis(), -1);
+		}
+		catch (IOException e) {
+			log.warn("Unable to update modification time of {}", blob, e);
+		}
+	}
+
+	private Path getBlobPath(String digest, String filename) {
+		return new Path(new Path(blobs, digest), filename);
+	}
+
+	private Path getIndexPath(MavenResource resource) {
+		return new Path(index, resource.getGroupId().replace('.', '/') + Path.SEPARATOR + resource.getArtifactId()
+				+ Path.SEPARATOR + resource.getVersion() + Path.SEPARATOR + resource.getFilename() + ".sha256");
+	}
+
+	private static String getCoordinates(MavenResource resource) {
+		return resource.getGroupId() + ":" + resource.getArtifactId() + ":" + resource.getExtension() + ":"
+				+ resource.getClassifier() + ":" + resource.getVersion();
+	}
+
+	private static String digest(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 digest not available", e);
+		}
+		byte[] buffer = new byte[65536];
+		InputStream in = new FileInputStream(file);
+		try {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+		StringBuilder buf = new StringBuilder();
+		for (byte b : digest.digest()) {
+			buf.append(String.format("%02x", b));
+		}
+		return buf.toString();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.core.RuntimeEnvironmentInfo;
+
+/**
+ * {@link AppDeployer} handing {@link CachedMavenResource}s to a delegate
+ * as cached blobs in hdfs, so that a deployer doesn't need to resolve and
+ * push those again.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class HdfsArtifactCacheAppDeployer implements AppDeployer {
+
+	private final AppDeployer delegate;
+
+	/**
+	 * Instantiates a new hdfs artifact cache app deployer.
+	 *
+	 * @param delegate the delegate app deployer
+	 */
+	public HdfsArtifactCacheAppDeployer(AppDeployer delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String deploy(AppDeploymentRequest request) {
+		return delegate.deploy(CachedMavenResource.toHdfsRequest(request));
+	}
+
+	@Override
+	public void undeploy(String id) {
+		delegate.undeploy(id);
+	}
+
+	@Override
+	public AppStatus status(String id) {
+		return delegate.status(id);
+	}
+
+	@Override
+	public RuntimeEnvironmentInfo environmentInfo() {
+		return delegate.environmentInfo();
+	}
+}
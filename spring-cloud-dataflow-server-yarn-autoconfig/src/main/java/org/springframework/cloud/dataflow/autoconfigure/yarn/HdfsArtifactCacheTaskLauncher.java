@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.core.RuntimeEnvironmentInfo;
+import org.springframework.cloud.deployer.spi.task.TaskLauncher;
+import org.springframework.cloud.deployer.spi.task.TaskStatus;
+
+/**
+ * {@link TaskLauncher} handing {@link CachedMavenResource}s to a delegate
+ * as cached blobs in hdfs.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class HdfsArtifactCacheTaskLauncher implements TaskLauncher {
+
+	private final TaskLauncher delegate;
+
+	/**
+	 * Instantiates a new hdfs artifact cache task launcher.
+	 *
+	 * @param delegate the delegate task launcher
+	 */
+	public HdfsArtifactCacheTaskLauncher(TaskLauncher delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String launch(AppDeploymentRequest request) {
+		return delegate.launch(CachedMavenResource.toHdfsRequest(request));
+	}
+
+	@Override
+	public void cancel(String id) {
+		delegate.cancel(id);
+	}
+
+	@Override
+	public TaskStatus status(String id) {
+		return delegate.status(id);
+	}
+
+	@Override
+	public void cleanup(String id) {
+		delegate.cleanup(id);
+	}
+
+	@Override
+	public void destroy(String appName) {
+		delegate.destroy(appName);
+	}
+
+	@Override
+	public RuntimeEnvironmentInfo environmentInfo() {
+		return delegate.environmentInfo();
+	}
+}
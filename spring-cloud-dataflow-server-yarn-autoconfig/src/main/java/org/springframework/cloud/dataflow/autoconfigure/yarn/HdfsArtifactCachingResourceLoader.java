@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.cloud.deployer.resource.support.DelegatingResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.hadoop.fs.HdfsResourceLoader;
+
+/**
+ * {@link DelegatingResourceLoader} wrapping a configured resource loader
+ * and returning its {@code maven} resources as {@link CachedMavenResource}s.
+ * Those still resolve into local files while
+ * {@link HdfsArtifactCacheAppDeployer} and
+ * {@link HdfsArtifactCacheTaskLauncher} swap them into cached blobs in hdfs,
+ * so nothing is resolved or uploaded by a lookup itself. All other
+ * resources are returned as is from a wrapped loader.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class HdfsArtifactCachingResourceLoader extends DelegatingResourceLoader {
+
+	private final ResourceLoader delegate;
+	private final HdfsResourceLoader hdfsResourceLoader;
+	private final HdfsArtifactCache cache;
+
+	/**
+	 * Instantiates a new hdfs artifact caching resource loader.
+	 *
+	 * @param delegate the resource loader resolving all locations
+	 * @param hdfsResourceLoader the hdfs resource loader
+	 * @param cache the hdfs artifact cache
+	 */
+	public HdfsArtifactCachingResourceLoader(ResourceLoader delegate, HdfsResourceLoader hdfsResourceLoader,
+			HdfsArtifactCache cache) {
+		// nothing is resolved by this loader itself, thus no loaders and
+		// no need for a cache directory of its own
+		super(Collections.<String, ResourceLoader>emptyMap(), new File(System.getProperty("java.io.tmpdir")));
+		this.delegate = delegate;
+		this.hdfsResourceLoader = hdfsResourceLoader;
+		this.cache = cache;
+	}
+
+	@Override
+	public Resource getResource(String location) {
+		Resource resource = delegate.getResource(location);
+		if (resource instanceof MavenResource) {
+			return new CachedMavenResource((MavenResource) resource, cache, hdfsResourceLoader);
+		}
+		return resource;
+	}
+
+	@Override
+	public ClassLoader getClassLoader() {
+		return delegate.getClassLoader();
+	}
+
+	/**
+	 * Gets the hdfs artifact cache.
+	 *
+	 * @return the hdfs artifact cache
+	 */
+	public HdfsArtifactCache getCache() {
+		return cache;
+	}
+}
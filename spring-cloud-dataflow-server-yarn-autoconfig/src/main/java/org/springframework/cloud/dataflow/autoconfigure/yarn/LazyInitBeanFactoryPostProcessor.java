@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link BeanDefinitionRegistryPostProcessor} deferring creation of given
+ * beans until first use. Original bean definition is moved under a
+ * name prefixed with {@link #TARGET_BEAN_NAME_PREFIX} and marked lazy,
+ * and a proxy created by {@link LazyInitProxyFactory} is registered with
+ * an original name so that beans depending on it can be created without
+ * creating a target itself.
+ * <p>
+ * Proxy type is resolved from a bean definition only, a factory method
+ * return type or a bean class, as asking it from a bean factory would
+ * instantiate factory beans and beans declaring factory methods this
+ * early.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class LazyInitBeanFactoryPostProcessor implements BeanDefinitionRegistryPostProcessor, BeanClassLoaderAware {
+
+	public static final String TARGET_BEAN_NAME_PREFIX = "lazyInitTarget.";
+	private static final String PROXY_FACTORY_BEAN_NAME = "lazyInitProxyFactory";
+	private static final Log log = LogFactory.getLog(LazyInitBeanFactoryPostProcessor.class);
+	private final Set<String> beanNames;
+	private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+
+	/**
+	 * Instantiates a new lazy init bean factory post processor.
+	 *
+	 * @param beanNames the names of beans to defer
+	 */
+	public LazyInitBeanFactoryPostProcessor(String... beanNames) {
+		this.beanNames = new LinkedHashSet<String>(Arrays.asList(beanNames));
+	}
+
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		this.beanClassLoader = classLoader;
+	}
+
+	@Override
+	public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+		for (String beanName : beanNames) {
+			if (!registry.containsBeanDefinition(beanName)) {
+				log.debug("Not deferring bean '" + beanName + "' as it doesn't exist");
+				continue;
+			}
+			BeanDefinition definition = registry.getBeanDefinition(beanName);
+			if (!definition.isSingleton() || !(definition instanceof AbstractBeanDefinition)) {
+				log.debug("Not deferring bean '" + beanName + "' as it is not a singleton");
+				continue;
+			}
+			// type needs to be known without creating a bean
+			Class<?> targetType = getType(definition);
+			if (targetType == null) {
+				log.debug("Not deferring bean '" + beanName + "' as its type is not known");
+				continue;
+			}
+			if (!registry.containsBeanDefinition(PROXY_FACTORY_BEAN_NAME)) {
+				registry.registerBeanDefinition(PROXY_FACTORY_BEAN_NAME, new RootBeanDefinition(LazyInitProxyFactory.class));
+			}
+			String targetBeanName = TARGET_BEAN_NAME_PREFIX + beanName;
+			registry.removeBeanDefinition(beanName);
+			AbstractBeanDefinition target = (AbstractBeanDefinition) definition;
+			RootBeanDefinition proxy = new RootBeanDefinition();
+			proxy.setFactoryBeanName(PROXY_FACTORY_BEAN_NAME);
+			proxy.setFactoryMethodName("getProxy");
+			proxy.getConstructorArgumentValues().addIndexedArgumentValue(0, targetBeanName);
+			proxy.getConstructorArgumentValues().addIndexedArgumentValue(1, targetType);
+			proxy.setTargetType(targetType);
+			proxy.setPrimary(target.isPrimary());
+			proxy.setRole(target.getRole());
+			target.setLazyInit(true);
+			target.setPrimary(false);
+			target.setAutowireCandidate(false);
+			registry.registerBeanDefinition(targetBeanName, target);
+			registry.registerBeanDefinition(beanName, proxy);
+			log.info("Deferring creation of bean '" + beanName + "' until first use");
+		}
+	}
+
+	private Class<?> getType(BeanDefinition definition) {
+		String typeName = null;
+		if (definition instanceof AnnotatedBeanDefinition
+				&& ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() != null) {
+			MethodMetadata factoryMethod = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata();
+			typeName = factoryMethod.getReturnTypeName();
+		}
+		else if (definition instanceof RootBeanDefinition && ((RootBeanDefinition) definition).getTargetType() != null) {
+			return ((RootBeanDefinition) definition).getTargetType();
+		}
+		else if (definition.getFactoryMethodName() == null) {
+			typeName = definition.getBeanClassName();
+		}
+		if (typeName == null) {
+			return null;
+		}
+		try {
+			Class<?> type = ClassUtils.forName(typeName, beanClassLoader);
+			// type of an object created by a factory bean is not known
+			return FactoryBean.class.isAssignableFrom(type) ? null : type;
+		}
+		catch (ClassNotFoundException e) {
+			return null;
+		}
+		catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+	}
+}
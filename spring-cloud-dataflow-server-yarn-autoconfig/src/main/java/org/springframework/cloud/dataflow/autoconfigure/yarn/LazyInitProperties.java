@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for lazy initialization of server beans.
+ * Lazy initialization is disabled on default and when enabled
+ * deployer and hdfs resource loader beans are deferred and warmed up
+ * in a background after server is ready.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = LazyInitProperties.PREFIX)
+public class LazyInitProperties {
+
+	public static final String PREFIX = "dataflow.server.yarn.lazy-init";
+	private boolean enabled;
+	private boolean warmup = true;
+	private List<String> beans = new ArrayList<String>(
+			Arrays.asList("appDeployer", "taskLauncher", "delegatingResourceLoader"));
+
+	/**
+	 * Checks if lazy initialization is enabled.
+	 *
+	 * @return true, if lazy initialization is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if lazy initialization is enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Checks if deferred beans are created in a background.
+	 *
+	 * @return true, if deferred beans are warmed up
+	 */
+	public boolean isWarmup() {
+		return warmup;
+	}
+
+	/**
+	 * Sets if deferred beans are created in a background.
+	 *
+	 * @param warmup the new warmup flag
+	 */
+	public void setWarmup(boolean warmup) {
+		this.warmup = warmup;
+	}
+
+	/**
+	 * Gets the names of deferred beans.
+	 *
+	 * @return the names of deferred beans
+	 */
+	public List<String> getBeans() {
+		return beans;
+	}
+
+	/**
+	 * Sets the names of deferred beans.
+	 *
+	 * @param beans the new names of deferred beans
+	 */
+	public void setBeans(List<String> beans) {
+		this.beans = beans;
+	}
+}
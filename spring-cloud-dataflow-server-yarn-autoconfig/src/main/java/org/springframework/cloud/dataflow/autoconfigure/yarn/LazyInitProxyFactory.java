@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.target.EmptyTargetSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.Aware;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Factory creating proxies which resolve their target bean from a
+ * {@link BeanFactory} on a first method invocation. Proxy implements
+ * a target type if it is an interface, otherwise a class based proxy
+ * is created. Proxy ignores container callbacks as those are called for
+ * a target itself when it is created.
+ *
+ * @author Janne Valkealahti
+ * @see LazyInitBeanFactoryPostProcessor
+ *
+ */
+public class LazyInitProxyFactory implements BeanFactoryAware, BeanClassLoaderAware {
+
+	private BeanFactory beanFactory;
+	private ClassLoader classLoader;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Gets a proxy for a target bean.
+	 *
+	 * @param targetBeanName the target bean name
+	 * @param targetType the target type
+	 * @return the proxy
+	 */
+	public Object getProxy(String targetBeanName, Class<?> targetType) {
+		ProxyFactory factory = new ProxyFactory();
+		// target is resolved by an interceptor so that container callbacks
+		// into a class based proxy don't create it
+		factory.setTargetSource(EmptyTargetSource.forClass(targetType));
+		factory.addAdvice(new LazyInitInterceptor(beanFactory, targetBeanName, targetType));
+		if (targetType.isInterface()) {
+			factory.addInterface(targetType);
+		}
+		else {
+			factory.setProxyTargetClass(true);
+		}
+		return factory.getProxy(classLoader);
+	}
+
+	private static class LazyInitInterceptor implements MethodInterceptor {
+
+		private final BeanFactory beanFactory;
+		private final String targetBeanName;
+		private final Class<?> targetType;
+		private volatile Object target;
+
+		LazyInitInterceptor(BeanFactory beanFactory, String targetBeanName, Class<?> targetType) {
+			this.beanFactory = beanFactory;
+			this.targetBeanName = targetBeanName;
+			this.targetType = targetType;
+		}
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			if (target == null && isContainerCallback(invocation.getMethod())) {
+				return null;
+			}
+			if (target == null) {
+				target = beanFactory.getBean(targetBeanName);
+			}
+			Method method = invocation.getMethod();
+			if (!method.getDeclaringClass().isInstance(target)) {
+				// target may have been wrapped by a post processor into other
+				// implementation of a same interface
+				Method targetMethod = ReflectionUtils.findMethod(target.getClass(), method.getName(),
+						method.getParameterTypes());
+				if (targetMethod != null) {
+					method = targetMethod;
+				}
+			}
+			return AopUtils.invokeJoinpointUsingReflection(target, method, invocation.getArguments());
+		}
+
+		private boolean isContainerCallback(Method method) {
+			for (Class<?> iface : ClassUtils.getAllInterfacesForClassAsSet(targetType)) {
+				if ((Aware.class.isAssignableFrom(iface) || iface == InitializingBean.class
+						|| iface == DisposableBean.class)
+						&& ReflectionUtils.findMethod(iface, method.getName(), method.getParameterTypes()) != null) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
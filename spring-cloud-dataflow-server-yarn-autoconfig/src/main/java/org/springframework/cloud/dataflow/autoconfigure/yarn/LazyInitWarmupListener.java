@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@link ApplicationListener} reporting time used to get an application
+ * ready and creating beans deferred by
+ * {@link LazyInitBeanFactoryPostProcessor} in a background thread.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class LazyInitWarmupListener implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Log log = LogFactory.getLog(LazyInitWarmupListener.class);
+	private final boolean warmup;
+
+	/**
+	 * Instantiates a new lazy init warmup listener.
+	 *
+	 * @param warmup flag if deferred beans should be created in a background
+	 */
+	public LazyInitWarmupListener(boolean warmup) {
+		this.warmup = warmup;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		final ConfigurableApplicationContext context = event.getApplicationContext();
+		final long ready = System.currentTimeMillis();
+		final List<String> targetBeanNames = new ArrayList<String>();
+		for (String beanName : context.getBeanFactory().getBeanDefinitionNames()) {
+			if (beanName.startsWith(LazyInitBeanFactoryPostProcessor.TARGET_BEAN_NAME_PREFIX)) {
+				targetBeanNames.add(beanName);
+			}
+		}
+		log.info("Application ready in " + (ready - context.getStartupDate()) + " ms with deferred beans "
+				+ targetBeanNames);
+		if (!warmup || targetBeanNames.isEmpty()) {
+			return;
+		}
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				for (String beanName : targetBeanNames) {
+					long start = System.currentTimeMillis();
+					try {
+						context.getBean(beanName);
+						log.info("Created deferred bean '" + beanName + "' in " + (System.currentTimeMillis() - start)
+								+ " ms");
+					}
+					catch (Exception e) {
+						// bean is created again on first use
+						log.warn("Failed to create deferred bean '" + beanName + "'", e);
+					}
+				}
+				log.info("Deferred beans created " + (System.currentTimeMillis() - ready) + " ms after application ready");
+			}
+		}, "lazy-init-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.NodeReport;
+import org.apache.hadoop.yarn.api.records.NodeState;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.core.RuntimeEnvironmentInfo;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.yarn.boot.actuate.endpoint.YarnContainerClusterEndpoint;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.AbstractContainerClusterRequest.ProjectionDataType;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.ContainerClusterCreateRequest;
+import org.springframework.yarn.boot.app.YarnContainerClusterTemplate;
+
+/**
+ * {@link AppDeployer} passing locality preferences of stream apps into
+ * a container cluster projection of a stream appmaster. Deployer
+ * requests containers without locality, thus once an app is deployed
+ * its container cluster is modified to request containers from hosts
+ * and racks planned by {@link ContainerLocalityPlanner}. An appmaster
+ * is the running application listing a deployed cluster, which works
+ * regardless of how appmasters are named. Failing to modify a cluster
+ * is logged and leaves containers where those are.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class LocalityAppDeployer implements AppDeployer {
+
+	public static final String PREFIX = "spring.cloud.deployer.yarn.app.streamcontainer.locality.";
+	public static final String HOSTS_PROPERTY_KEY = PREFIX + "hosts";
+	public static final String RACKS_PROPERTY_KEY = PREFIX + "racks";
+	public static final String SPREAD_PROPERTY_KEY = PREFIX + "spread";
+	public static final String HDFS_PATH_PROPERTY_KEY = PREFIX + "hdfs-path";
+	private static final Logger log = LoggerFactory.getLogger(LocalityAppDeployer.class);
+	private final AppDeployer delegate;
+	private final ObjectFactory<Configuration> configuration;
+	private final ObjectFactory<YarnClient> yarnClient;
+	private final RestTemplate restTemplate = new RestTemplate();
+	private final Map<Path, DataHosts> dataHosts = new ConcurrentHashMap<Path, DataHosts>();
+
+	/**
+	 * Instantiates a new locality app deployer.
+	 *
+	 * @param delegate the delegate app deployer
+	 * @param configuration the factory for hadoop configuration
+	 * @param yarnClient the factory for started yarn client
+	 */
+	public LocalityAppDeployer(AppDeployer delegate, ObjectFactory<Configuration> configuration,
+			ObjectFactory<YarnClient> yarnClient) {
+		this.delegate = delegate;
+		this.configuration = configuration;
+		this.yarnClient = yarnClient;
+	}
+
+	@Override
+	public String deploy(AppDeploymentRequest request) {
+		Map<String, String> properties = request.getDeploymentProperties();
+		String id = delegate.deploy(request);
+		ContainerLocalityPlanner planner = new ContainerLocalityPlanner().hosts(properties.get(HOSTS_PROPERTY_KEY))
+				.racks(properties.get(RACKS_PROPERTY_KEY))
+				.spread(Boolean.parseBoolean(properties.get(SPREAD_PROPERTY_KEY)));
+		String hdfsPath = properties.get(HDFS_PATH_PROPERTY_KEY);
+		if (!planner.hasPreferences() && !StringUtils.hasText(hdfsPath)) {
+			return id;
+		}
+		try {
+			applyLocality(id, request, planner, hdfsPath);
+		}
+		catch (Exception e) {
+			log.warn("Unable to apply locality preferences for {}", id, e);
+		}
+		return id;
+	}
+
+	@Override
+	public void undeploy(String id) {
+		delegate.undeploy(id);
+	}
+
+	@Override
+	public AppStatus status(String id) {
+		return delegate.status(id);
+	}
+
+	@Override
+	public RuntimeEnvironmentInfo environmentInfo() {
+		return delegate.environmentInfo();
+	}
+
+	private void applyLocality(String id, AppDeploymentRequest request, ContainerLocalityPlanner planner,
+			String hdfsPath) throws Exception {
+		if (StringUtils.hasText(hdfsPath)) {
+			planner.dataHosts(getDataHosts(new Path(hdfsPath)));
+		}
+		YarnClient client = yarnClient.getObject();
+		Map<String, Integer> nodes = new HashMap<String, Integer>();
+		if (planner.needsNodes()) {
+			for (NodeReport node : client.getNodeReports(NodeState.RUNNING)) {
+				nodes.put(node.getNodeId().getHost(), node.getNumContainers());
+			}
+		}
+		String count = request.getDeploymentProperties().get(COUNT_PROPERTY_KEY);
+		ContainerLocalityPlanner.Plan plan = planner.plan(StringUtils.hasText(count) ? Integer.parseInt(count) : 1,
+				nodes);
+		for (ApplicationReport report : client.getApplications(EnumSet.of(YarnApplicationState.RUNNING))) {
+			if (!StringUtils.hasText(report.getOriginalTrackingUrl())) {
+				continue;
+			}
+			YarnContainerClusterTemplate template = new YarnContainerClusterTemplate(
+					report.getOriginalTrackingUrl() + "/" + YarnContainerClusterEndpoint.ENDPOINT_ID, restTemplate);
+			try {
+				if (!template.getClusters().getClusters().contains(id)) {
+					continue;
+				}
+			}
+			catch (Exception e) {
+				log.debug("Not a stream appmaster {}", report.getApplicationId(), e);
+				continue;
+			}
+			ProjectionDataType projectionData = new ProjectionDataType();
+			projectionData.setAny(plan.getAny());
+			projectionData.setHosts(plan.getHosts());
+			projectionData.setRacks(plan.getRacks());
+			ContainerClusterCreateRequest modifyRequest = new ContainerClusterCreateRequest();
+			modifyRequest.setClusterId(id);
+			modifyRequest.setProjectionData(projectionData);
+			template.clusterModify(id, modifyRequest);
+			log.info("Applied locality {} for {} in {}", plan, id, report.getApplicationId());
+			return;
+		}
+		log.warn("No running stream appmaster has cluster {}, not applying locality", id);
+	}
+
+	private List<String> getDataHosts(Path path) throws IOException {
+		FileSystem fs = FileSystem.get(configuration.getObject());
+		FileStatus status = fs.getFileStatus(path);
+		DataHosts hosts = dataHosts.get(path);
+		if (hosts == null || hosts.modificationTime != status.getModificationTime()) {
+			hosts = new DataHosts(status.getModificationTime(), ContainerLocalityPlanner.blockHosts(fs, status));
+			dataHosts.put(path, hosts);
+		}
+		return hosts.hosts;
+	}
+
+	/**
+	 * Hosts ranked by blocks of a path, kept until the path is modified.
+	 */
+	private static class DataHosts {
+
+		private final long modificationTime;
+		private final List<String> hosts;
+
+		DataHosts(long modificationTime, List<String> hosts) {
+			this.modificationTime = modificationTime;
+			this.hosts = hosts;
+		}
+	}
+}
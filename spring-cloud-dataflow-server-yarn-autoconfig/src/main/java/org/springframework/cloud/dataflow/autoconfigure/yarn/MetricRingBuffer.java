@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size ring buffer of timestamped metric samples. Buffer has a
+ * single writer and readers never block it, a sample being overwritten
+ * while read is detected from a position stored with it and skipped.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class MetricRingBuffer {
+
+	private final AtomicLongArray times;
+	private final AtomicLongArray values;
+	private final AtomicLongArray positions;
+	private volatile long count;
+
+	/**
+	 * Instantiates a new metric ring buffer.
+	 *
+	 * @param capacity the number of kept samples
+	 */
+	public MetricRingBuffer(int capacity) {
+		this.times = new AtomicLongArray(capacity);
+		this.values = new AtomicLongArray(capacity);
+		this.positions = new AtomicLongArray(capacity);
+	}
+
+	/**
+	 * Adds a sample overwriting an oldest one if buffer is full. Must only
+	 * be called from a single thread.
+	 *
+	 * @param time the sample time
+	 * @param value the sample value
+	 */
+	public void add(long time, double value) {
+		long position = count;
+		int index = (int) (position % times.length());
+		// invalidate a slot first so that readers skip it until both time
+		// and value are written
+		positions.set(index, -1);
+		values.set(index, Double.doubleToRawLongBits(value));
+		times.set(index, time);
+		positions.set(index, position);
+		count = position + 1;
+	}
+
+	/**
+	 * Gets the time of a latest sample.
+	 *
+	 * @return the time of a latest sample, zero if buffer is empty
+	 */
+	public long getLastTime() {
+		long c = count;
+		return c == 0 ? 0 : times.get((int) ((c - 1) % times.length()));
+	}
+
+	/**
+	 * Gets samples taken at or after given time, oldest first.
+	 *
+	 * @param since the time of an oldest returned sample
+	 * @return the samples as time and value pairs
+	 */
+	public double[][] getSamples(long since) {
+		long c = count;
+		int length = (int) Math.min(c, times.length());
+		double[][] samples = new double[length][];
+		int size = 0;
+		for (long i = c - length; i < c; i++) {
+			int index = (int) (i % times.length());
+			if (positions.get(index) != i) {
+				continue;
+			}
+			long time = times.get(index);
+			double value = Double.longBitsToDouble(values.get(index));
+			if (time >= since && positions.get(index) == i) {
+				samples[size++] = new double[] { time, value };
+			}
+		}
+		double[][] result = new double[size][];
+		System.arraycopy(samples, 0, result, 0, size);
+		return result;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for rolling windows of stream app metrics.
+ * Windows are disabled on default and when enabled, metrics are sampled
+ * every 5 seconds and aggregated over 1, 5 and 15 minutes. Sampled metrics
+ * are channel send counts and rates and handler durations.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = MetricWindowProperties.PREFIX)
+public class MetricWindowProperties {
+
+	public static final String PREFIX = "dataflow.server.yarn.metric-windows";
+	private boolean enabled;
+	private long resolution = 5000;
+	private List<Long> windows = new ArrayList<Long>(Arrays.asList(60000L, 300000L, 900000L));
+	private List<String> metrics = new ArrayList<String>(Arrays.asList("integration.channel.*.sendCount",
+			"integration.channel.*.sendRate.mean", "integration.handler.*.duration.mean"));
+
+	/**
+	 * Checks if windows are enabled.
+	 *
+	 * @return true, if windows are enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if windows are enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the time in milliseconds between metric samples.
+	 *
+	 * @return the resolution
+	 */
+	public long getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Sets the time in milliseconds between metric samples.
+	 *
+	 * @param resolution the new resolution
+	 */
+	public void setResolution(long resolution) {
+		this.resolution = resolution;
+	}
+
+	/**
+	 * Gets the window lengths in milliseconds.
+	 *
+	 * @return the windows
+	 */
+	public List<Long> getWindows() {
+		return windows;
+	}
+
+	/**
+	 * Sets the window lengths in milliseconds.
+	 *
+	 * @param windows the new windows
+	 */
+	public void setWindows(List<Long> windows) {
+		this.windows = windows;
+	}
+
+	/**
+	 * Gets the patterns of sampled metric names.
+	 *
+	 * @return the metric name patterns
+	 */
+	public List<String> getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the patterns of sampled metric names.
+	 *
+	 * @param metrics the new metric name patterns
+	 */
+	public void setMetrics(List<String> metrics) {
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.core.RuntimeEnvironmentInfo;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link AppDeployer} returning from a deploy right away with a handle
+ * while an app is deployed in a background. Artifacts of apps are
+ * resolved concurrently and apps are handed to a delegate in an order
+ * those were deployed, so that while one app is deployed artifacts of
+ * following apps in a stream are already resolved.
+ * <p>
+ * Handle of a deployment is {@code <group>:<app>} which is also a
+ * cluster id used in a stream appmaster. Status of a deployment is
+ * {@link DeploymentState#deploying} until a delegate has deployed it.
+ * If an app fails to deploy, apps of its group still in a pipeline are
+ * undeployed or not deployed at all and all of those report
+ * {@link DeploymentState#failed}. Apps deployed without a group are
+ * deployed synchronously.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class PipelinedAppDeployer implements AppDeployer, DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(PipelinedAppDeployer.class);
+	private static final int MAX_FAILURES = 100;
+	private final AppDeployer delegate;
+	private final ExecutorService resolveExecutor;
+	private final ExecutorService deployExecutor;
+	// deployments not yet handed to a delegate
+	private final ConcurrentMap<String, Future<String>> deployments = new ConcurrentHashMap<String, Future<String>>();
+	// handles of deployed apps whose deployment id differs from a handle
+	private final ConcurrentMap<String, String> ids = new ConcurrentHashMap<String, String>();
+	// groups with apps in a pipeline, guarded by itself
+	private final Map<String, GroupDeployment> groups = new HashMap<String, GroupDeployment>();
+	// latest failed handles reported as failed until undeployed
+	private final Map<String, Boolean> failures = Collections.synchronizedMap(
+			new LinkedHashMap<String, Boolean>() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+					return size() > MAX_FAILURES;
+				}
+			});
+
+	/**
+	 * Instantiates a new pipelined app deployer.
+	 *
+	 * @param delegate the delegate app deployer
+	 * @param parallelism the number of artifacts resolved concurrently
+	 */
+	public PipelinedAppDeployer(AppDeployer delegate, int parallelism) {
+		this.delegate = delegate;
+		this.resolveExecutor = Executors.newFixedThreadPool(parallelism, newThreadFactory("pipelined-resolve-"));
+		this.deployExecutor = Executors.newSingleThreadExecutor(newThreadFactory("pipelined-deploy-"));
+	}
+
+	@Override
+	public String deploy(final AppDeploymentRequest request) {
+		final String group = request.getDeploymentProperties().get(GROUP_PROPERTY_KEY);
+		if (!StringUtils.hasText(group)) {
+			return delegate.deploy(request);
+		}
+		final String handle = group + ":" + request.getDefinition().getName();
+		final GroupDeployment groupDeployment;
+		synchronized (groups) {
+			GroupDeployment existing = groups.get(group);
+			groupDeployment = existing != null ? existing : new GroupDeployment();
+			groups.put(group, groupDeployment);
+			groupDeployment.pending++;
+		}
+		failures.remove(handle);
+		final Future<?> resolved = resolveExecutor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				resolve(handle, request.getResource());
+			}
+		});
+		final FutureTask<String> deployed = new FutureTask<String>(new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				try {
+					return deploy(handle, group, groupDeployment, request, resolved);
+				}
+				finally {
+					synchronized (groups) {
+						if (--groupDeployment.pending == 0) {
+							groups.remove(group);
+						}
+					}
+				}
+			}
+		});
+		// registered before it runs so that it can remove itself when done
+		deployments.put(handle, deployed);
+		deployExecutor.execute(deployed);
+		return handle;
+	}
+
+	@Override
+	public void undeploy(String id) {
+		Future<String> deployed = deployments.get(id);
+		if (deployed != null) {
+			// app can't be undeployed before delegate knows about it
+			get(deployed);
+		}
+		String deploymentId = ids.remove(id);
+		// failed apps are not known to a delegate
+		if (failures.remove(id) == null) {
+			delegate.undeploy(deploymentId != null ? deploymentId : id);
+		}
+	}
+
+	@Override
+	public AppStatus status(String id) {
+		Future<String> deployed = deployments.get(id);
+		if (deployed != null) {
+			if (!deployed.isDone()) {
+				return AppStatus.of(id).generalState(DeploymentState.deploying).build();
+			}
+			// done but not yet removed from pending deployments
+			if (get(deployed) == null) {
+				return AppStatus.of(id).generalState(DeploymentState.failed).build();
+			}
+		}
+		if (failures.containsKey(id)) {
+			return AppStatus.of(id).generalState(DeploymentState.failed).build();
+		}
+		String deploymentId = ids.get(id);
+		return delegate.status(deploymentId != null ? deploymentId : id);
+	}
+
+	@Override
+	public RuntimeEnvironmentInfo environmentInfo() {
+		return delegate.environmentInfo();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		resolveExecutor.shutdownNow();
+		for (Runnable deployment : deployExecutor.shutdownNow()) {
+			// releases callers waiting for a deployment to undeploy it
+			((Future<?>) deployment).cancel(false);
+		}
+		deployExecutor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	private String deploy(String handle, String group, GroupDeployment groupDeployment,
+			AppDeploymentRequest request, Future<?> resolved) throws Exception {
+		try {
+			if (groupDeployment.failed) {
+				log.warn("Not deploying {} as another app of group {} failed to deploy", handle, group);
+				failures.put(handle, Boolean.TRUE);
+				return null;
+			}
+			resolved.get();
+			long start = System.currentTimeMillis();
+			String id;
+			try {
+				id = delegate.deploy(request);
+			}
+			catch (RuntimeException e) {
+				log.error("Failed to deploy {}", handle, e);
+				failures.put(handle, Boolean.TRUE);
+				groupDeployment.failed = true;
+				undeployGroup(group, groupDeployment);
+				throw e;
+			}
+			log.info("Deployed {} as {} in {} ms", handle, id, System.currentTimeMillis() - start);
+			if (!handle.equals(id)) {
+				log.warn("Deployment id {} differs from handle {} and is not known after a restart", id, handle);
+				ids.put(handle, id);
+			}
+			groupDeployment.deployed.add(handle);
+			return id;
+		}
+		finally {
+			deployments.remove(handle);
+		}
+	}
+
+	private void undeployGroup(String group, GroupDeployment groupDeployment) {
+		for (String handle : groupDeployment.deployed) {
+			String deploymentId = ids.remove(handle);
+			try {
+				delegate.undeploy(deploymentId != null ? deploymentId : handle);
+				log.info("Undeployed {} as another app of group {} failed to deploy", handle, group);
+			}
+			catch (RuntimeException e) {
+				log.error("Failed to undeploy {}", handle, e);
+			}
+			failures.put(handle, Boolean.TRUE);
+		}
+		groupDeployment.deployed.clear();
+	}
+
+	private void resolve(String handle, Resource resource) {
+		long start = System.currentTimeMillis();
+		if (resource instanceof CachedMavenResource) {
+			// resolved once per resource, deployer then uses the same blob
+			((CachedMavenResource) resource).getHdfsResource();
+		}
+		else if (resource instanceof MavenResource) {
+			try {
+				resource.getFile();
+			}
+			catch (IOException e) {
+				// delegate resolves it again and reports a failure
+				log.warn("Unable to resolve {} for {}", resource, handle, e);
+				return;
+			}
+		}
+		else {
+			return;
+		}
+		log.info("Resolved {} for {} in {} ms", resource, handle, System.currentTimeMillis() - start);
+	}
+
+	private static String get(Future<String> deployed) {
+		try {
+			return deployed.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for app deployment", e);
+		}
+		catch (ExecutionException e) {
+			// failure is logged by a deployment itself
+			return null;
+		}
+		catch (CancellationException e) {
+			return null;
+		}
+	}
+
+	private static CustomizableThreadFactory newThreadFactory(String threadNamePrefix) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+	private static class GroupDeployment {
+
+		// deployed and failed are only accessed from a deploy thread
+		final List<String> deployed = new ArrayList<String>();
+		boolean failed;
+		int pending;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for pipelined app deployments. Pipelining is
+ * disabled on default and when enabled resolves artifacts of 4 apps
+ * concurrently.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = PipelinedDeployProperties.PREFIX)
+public class PipelinedDeployProperties {
+
+	public static final String PREFIX = "dataflow.server.yarn.pipelined-deploy";
+	private boolean enabled;
+	private int parallelism = 4;
+
+	/**
+	 * Checks if pipelining is enabled.
+	 *
+	 * @return true, if pipelining is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if pipelining is enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the number of artifacts resolved concurrently.
+	 *
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of artifacts resolved concurrently.
+	 *
+	 * @param parallelism the new parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+}
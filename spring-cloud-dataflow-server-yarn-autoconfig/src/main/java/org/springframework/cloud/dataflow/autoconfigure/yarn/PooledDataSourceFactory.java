@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+/**
+ * Factory creating a {@link WaitTimingDataSource} for a server from
+ * {@link DataSourceProperties} sized by {@link DataSourcePoolProperties}.
+ * Connection state is kept within a pool to avoid extra round trips
+ * and prepared statements are cached per connection.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class PooledDataSourceFactory {
+
+	private final DataSourceProperties dataSourceProperties;
+	private final DataSourcePoolProperties properties;
+
+	/**
+	 * Instantiates a new pooled data source factory.
+	 *
+	 * @param dataSourceProperties the data source properties
+	 * @param properties the pool properties
+	 */
+	public PooledDataSourceFactory(DataSourceProperties dataSourceProperties, DataSourcePoolProperties properties) {
+		this.dataSourceProperties = dataSourceProperties;
+		this.properties = properties;
+	}
+
+	/**
+	 * Creates a data source. Pool itself is created on a first use.
+	 *
+	 * @return the data source
+	 */
+	public WaitTimingDataSource createDataSource() {
+		WaitTimingDataSource dataSource = (WaitTimingDataSource) dataSourceProperties.initializeDataSourceBuilder()
+				.type(WaitTimingDataSource.class).build();
+		dataSource.setInitialSize(properties.getInitialSize());
+		dataSource.setMinIdle(properties.getMinIdle());
+		dataSource.setMaxIdle(properties.getMaxActive());
+		dataSource.setMaxActive(properties.getMaxActive());
+		dataSource.setMaxWait(properties.getMaxWait());
+		String validationQuery = DatabaseDriver.fromJdbcUrl(dataSource.getUrl()).getValidationQuery();
+		if (validationQuery != null) {
+			dataSource.setTestOnBorrow(true);
+			dataSource.setValidationQuery(validationQuery);
+		}
+		String interceptors = "ConnectionState";
+		if (properties.getStatementCacheSize() > 0) {
+			interceptors += ";StatementCache(prepared=true,callable=false,max=" + properties.getStatementCacheSize() + ")";
+		}
+		dataSource.setJdbcInterceptors(interceptors);
+		return dataSource;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.core.RuntimeEnvironmentInfo;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link AppDeployer} deploying apps of many streams into a shared stream
+ * appmaster. Deployer starts one appmaster per deployment group, thus
+ * a group of a request is replaced with a name of a shared appmaster and
+ * an original group is moved into an app name to keep its container
+ * cluster unique within an appmaster. Group and app name are joined with
+ * {@link #SEPARATOR} which can't appear in dataflow stream or app names,
+ * so that different streams never end up with a same cluster.
+ * <p>
+ * Appmaster is chosen with a {@link #APPMASTER_PROPERTY_KEY} deployment
+ * property, allowing tenants or queues to use their own appmasters, and
+ * defaults to a configured name.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class SharedAppmasterAppDeployer implements AppDeployer {
+
+	public static final String APPMASTER_PROPERTY_KEY = "spring.cloud.deployer.yarn.app.streamappmaster.shared";
+	// dataflow names only have java identifier characters and '-', and
+	// unlike '.' this is not taken as a file extension in a rest path
+	public static final String SEPARATOR = "~";
+	private static final Logger log = LoggerFactory.getLogger(SharedAppmasterAppDeployer.class);
+	private final AppDeployer delegate;
+	private final String defaultAppmaster;
+
+	/**
+	 * Instantiates a new shared appmaster app deployer.
+	 *
+	 * @param delegate the delegate app deployer
+	 * @param defaultAppmaster the default appmaster name
+	 */
+	public SharedAppmasterAppDeployer(AppDeployer delegate, String defaultAppmaster) {
+		this.delegate = delegate;
+		this.defaultAppmaster = defaultAppmaster;
+	}
+
+	@Override
+	public String deploy(AppDeploymentRequest request) {
+		Map<String, String> deploymentProperties = request.getDeploymentProperties();
+		String group = deploymentProperties.get(GROUP_PROPERTY_KEY);
+		if (!StringUtils.hasText(group)) {
+			return delegate.deploy(request);
+		}
+		String appmaster = deploymentProperties.get(APPMASTER_PROPERTY_KEY);
+		if (!StringUtils.hasText(appmaster)) {
+			appmaster = defaultAppmaster;
+		}
+		Map<String, String> properties = new HashMap<String, String>(deploymentProperties);
+		properties.put(GROUP_PROPERTY_KEY, appmaster);
+		String name = request.getDefinition().getName();
+		Assert.isTrue(!group.contains(SEPARATOR) && !name.contains(SEPARATOR),
+				"Group '" + group + "' or app '" + name + "' contains '" + SEPARATOR + "'");
+		AppDefinition definition = new AppDefinition(group + SEPARATOR + name,
+				request.getDefinition().getProperties());
+		log.info("Deploying {} of {} into shared appmaster {}", request.getDefinition().getName(), group, appmaster);
+		return delegate.deploy(new AppDeploymentRequest(definition, request.getResource(), properties,
+				request.getCommandlineArguments()));
+	}
+
+	@Override
+	public void undeploy(String id) {
+		delegate.undeploy(id);
+	}
+
+	@Override
+	public AppStatus status(String id) {
+		return delegate.status(id);
+	}
+
+	@Override
+	public RuntimeEnvironmentInfo environmentInfo() {
+		return delegate.environmentInfo();
+	}
+}
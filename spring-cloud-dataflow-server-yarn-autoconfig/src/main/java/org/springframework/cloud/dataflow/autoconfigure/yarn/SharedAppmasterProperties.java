@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for shared stream appmasters. Sharing is
+ * disabled on default and when enabled streams not choosing an
+ * appmaster are deployed into an appmaster named 'shared'.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = SharedAppmasterProperties.PREFIX)
+public class SharedAppmasterProperties {
+
+	public static final String PREFIX = "dataflow.server.yarn.shared-appmaster";
+	private boolean enabled;
+	private String name = "shared";
+
+	/**
+	 * Checks if sharing is enabled.
+	 *
+	 * @return true, if sharing is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if sharing is enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the default appmaster name.
+	 *
+	 * @return the default appmaster name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the default appmaster name.
+	 *
+	 * @param name the new default appmaster name
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+}
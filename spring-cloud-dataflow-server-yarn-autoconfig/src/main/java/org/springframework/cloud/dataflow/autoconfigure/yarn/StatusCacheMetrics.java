@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * {@link PublicMetrics} exposing {@link CachingAppDeployer} hits, misses
+ * and coalesced status queries.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class StatusCacheMetrics implements PublicMetrics {
+
+	private final StatusCacheStatistics statistics;
+
+	/**
+	 * Instantiates a new status cache metrics.
+	 *
+	 * @param statistics the status cache statistics
+	 */
+	public StatusCacheMetrics(StatusCacheStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>("dataflow.yarn.statuscache.hits", statistics.getHits()));
+		metrics.add(new Metric<Long>("dataflow.yarn.statuscache.misses", statistics.getMisses()));
+		metrics.add(new Metric<Long>("dataflow.yarn.statuscache.coalesced", statistics.getCoalesced()));
+		return metrics;
+	}
+}
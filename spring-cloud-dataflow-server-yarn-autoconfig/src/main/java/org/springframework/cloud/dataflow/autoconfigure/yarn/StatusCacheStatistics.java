@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link CachingAppDeployer}, shared with metrics as the
+ * deployer itself is created by a post processor.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class StatusCacheStatistics {
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Gets the number of statuses returned from a cache.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of statuses queried from a delegate.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the number of callers which shared a query of another caller.
+	 *
+	 * @return the number of coalesced queries
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	void hit() {
+		hits.incrementAndGet();
+	}
+
+	void miss() {
+		misses.incrementAndGet();
+	}
+
+	void coalesce() {
+		coalesced.incrementAndGet();
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + hits.get() + ", misses=" + misses.get() + ", coalesced=" + coalesced.get();
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.dataflow.server.controller.support.ApplicationsMetrics;
+import org.springframework.cloud.dataflow.server.controller.support.MetricStore;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * Keeps rolling windows of stream app metrics sampled from a metrics
+ * collector through a {@link MetricStore}. Every metric of every app
+ * instance is kept in its own {@link MetricRingBuffer} sized for a longest
+ * window, thus memory used per metric is fixed.
+ *
+ * Metrics with a name ending with 'Count' are counters which are reported
+ * as a rate per second over a window, other metrics are reported with
+ * their average, minimum, maximum and percentiles over a window. App level
+ * counter rates are sums of instance rates and other app level values are
+ * calculated over samples of all instances.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class StreamMetricWindows {
+
+	private static final Log log = LogFactory.getLog(StreamMetricWindows.class);
+	private static final String SEPARATOR = "\u0000";
+	private final MetricStore metricStore;
+	private final MetricWindowProperties properties;
+	private final long maxWindow;
+	private final Map<String, MetricRingBuffer> buffers = new ConcurrentHashMap<String, MetricRingBuffer>();
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Instantiates a new stream metric windows.
+	 *
+	 * @param metricStore the metric store
+	 * @param properties the metric window properties
+	 */
+	public StreamMetricWindows(MetricStore metricStore, MetricWindowProperties properties) {
+		this.metricStore = metricStore;
+		this.properties = properties;
+		this.maxWindow = properties.getWindows().isEmpty() ? 0 : Collections.max(properties.getWindows());
+	}
+
+	/**
+	 * Starts sampling metrics.
+	 */
+	public void start() {
+		executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("metric-windows-"));
+		executor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					sample(System.currentTimeMillis());
+				}
+				catch (Exception e) {
+					log.warn("Failed to sample stream metrics", e);
+				}
+			}
+		}, 0, properties.getResolution(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling metrics.
+	 */
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Samples current metrics of all stream apps and drops metrics which
+	 * have not been seen within a longest window.
+	 *
+	 * @param time the sample time
+	 */
+	public void sample(long time) {
+		for (ApplicationsMetrics stream : metricStore.getMetrics()) {
+			if (stream.getApplications() == null) {
+				continue;
+			}
+			for (ApplicationsMetrics.Application app : stream.getApplications()) {
+				if (app.getInstances() == null) {
+					continue;
+				}
+				for (ApplicationsMetrics.Instance instance : app.getInstances()) {
+					if (instance.getMetrics() == null) {
+						continue;
+					}
+					for (ApplicationsMetrics.Metric metric : instance.getMetrics()) {
+						if (!(metric.getValue() instanceof Number) || !PatternMatchUtils
+								.simpleMatch(properties.getMetrics().toArray(new String[0]), metric.getName())) {
+							continue;
+						}
+						String key = stream.getName() + SEPARATOR + app.getName() + SEPARATOR + instance.getIndex()
+								+ SEPARATOR + metric.getName();
+						MetricRingBuffer buffer = buffers.get(key);
+						if (buffer == null) {
+							buffer = new MetricRingBuffer((int) (maxWindow / properties.getResolution()) + 1);
+							buffers.put(key, buffer);
+						}
+						buffer.add(time, ((Number) metric.getValue()).doubleValue());
+					}
+				}
+			}
+		}
+		Iterator<MetricRingBuffer> iterator = buffers.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getLastTime() < time - maxWindow) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets aggregated metrics of all streams over all windows. Structure is
+	 * stream, app, 'aggregate' or instance index, metric name and window
+	 * length in seconds.
+	 *
+	 * @return the aggregated metrics
+	 */
+	public Map<String, Object> getWindows() {
+		return getWindows(System.currentTimeMillis());
+	}
+
+	Map<String, Object> getWindows(long now) {
+		// stream -> app -> metric -> instance -> buffer
+		Map<String, Map<String, Map<String, Map<String, MetricRingBuffer>>>> tree =
+				new TreeMap<String, Map<String, Map<String, Map<String, MetricRingBuffer>>>>();
+		for (Entry<String, MetricRingBuffer> entry : buffers.entrySet()) {
+			String[] key = entry.getKey().split(SEPARATOR, 4);
+			getOrCreate(getOrCreate(getOrCreate(tree, key[0]), key[1]), key[3]).put(key[2], entry.getValue());
+		}
+		Map<String, Object> streams = new LinkedHashMap<String, Object>();
+		for (Entry<String, Map<String, Map<String, Map<String, MetricRingBuffer>>>> stream : tree.entrySet()) {
+			Map<String, Object> apps = new LinkedHashMap<String, Object>();
+			for (Entry<String, Map<String, Map<String, MetricRingBuffer>>> app : stream.getValue().entrySet()) {
+				Map<String, Map<String, Object>> appMetrics = new TreeMap<String, Map<String, Object>>();
+				for (Entry<String, Map<String, MetricRingBuffer>> metric : app.getValue().entrySet()) {
+					boolean counter = metric.getKey().endsWith("Count");
+					for (Entry<String, MetricRingBuffer> instance : metric.getValue().entrySet()) {
+						getOrCreate(appMetrics, instance.getKey()).put(metric.getKey(),
+								getWindows(Collections.singletonList(instance.getValue()), counter, now));
+					}
+					getOrCreate(appMetrics, "aggregate").put(metric.getKey(),
+							getWindows(metric.getValue().values(), counter, now));
+				}
+				apps.put(app.getKey(), appMetrics);
+			}
+			streams.put(stream.getKey(), apps);
+		}
+		return streams;
+	}
+
+	private Map<String, Object> getWindows(Iterable<MetricRingBuffer> buffers, boolean counter, long now) {
+		Map<String, Object> windows = new LinkedHashMap<String, Object>();
+		for (Long window : properties.getWindows()) {
+			List<double[][]> samples = new ArrayList<double[][]>();
+			for (MetricRingBuffer buffer : buffers) {
+				samples.add(buffer.getSamples(now - window));
+			}
+			windows.put((window / 1000) + "s", counter ? getRate(samples) : getStats(samples));
+		}
+		return windows;
+	}
+
+	// sum of per instance rates, counter resets are skipped
+	private static Map<String, Object> getRate(List<double[][]> samples) {
+		double rate = 0;
+		for (double[][] s : samples) {
+			if (s.length < 2) {
+				continue;
+			}
+			double delta = 0;
+			for (int i = 1; i < s.length; i++) {
+				delta += Math.max(0, s[i][1] - s[i - 1][1]);
+			}
+			rate += delta * 1000 / (s[s.length - 1][0] - s[0][0]);
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("rate", rate);
+		return result;
+	}
+
+	private static Map<String, Object> getStats(List<double[][]> samples) {
+		int size = 0;
+		for (double[][] s : samples) {
+			size += s.length;
+		}
+		double[] values = new double[size];
+		int i = 0;
+		double sum = 0;
+		for (double[][] s : samples) {
+			for (double[] sample : s) {
+				values[i++] = sample[1];
+				sum += sample[1];
+			}
+		}
+		Arrays.sort(values);
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("count", size);
+		if (size > 0) {
+			result.put("avg", sum / size);
+			result.put("min", values[0]);
+			result.put("max", values[size - 1]);
+			result.put("p50", getPercentile(values, 50));
+			result.put("p95", getPercentile(values, 95));
+			result.put("p99", getPercentile(values, 99));
+		}
+		return result;
+	}
+
+	// nearest rank percentile of sorted values
+	private static double getPercentile(double[] values, int percentile) {
+		int rank = (int) Math.ceil(percentile / 100.0 * values.length);
+		return values[Math.max(0, rank - 1)];
+	}
+
+	private static <V> Map<String, V> getOrCreate(Map<String, Map<String, V>> map, String key) {
+		Map<String, V> value = map.get(key);
+		if (value == null) {
+			value = new TreeMap<String, V>();
+			map.put(key, value);
+		}
+		return value;
+	}
+}
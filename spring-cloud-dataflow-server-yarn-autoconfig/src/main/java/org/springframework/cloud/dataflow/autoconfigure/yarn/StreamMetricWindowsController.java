@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller exposing rolling windows of stream metrics kept by
+ * {@link StreamMetricWindows}.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@RestController
+@RequestMapping("/metrics/streams/windows")
+public class StreamMetricWindowsController {
+
+	private final StreamMetricWindows streamMetricWindows;
+
+	/**
+	 * Instantiates a new stream metric windows controller.
+	 *
+	 * @param streamMetricWindows the stream metric windows
+	 */
+	public StreamMetricWindowsController(StreamMetricWindows streamMetricWindows) {
+		this.streamMetricWindows = streamMetricWindows;
+	}
+
+	/**
+	 * Gets aggregated metrics of all streams over all windows.
+	 *
+	 * @return the aggregated metrics
+	 */
+	@RequestMapping(method = RequestMethod.GET)
+	public Map<String, Object> list() {
+		return streamMetricWindows.getWindows();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.DataSource;
+
+/**
+ * Tomcat pooled {@link DataSource} keeping track of time callers wait for
+ * a connection from a pool, which pool itself doesn't record.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class WaitTimingDataSource extends DataSource {
+
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong waitTime = new AtomicLong();
+	private final AtomicLong maxWaitTime = new AtomicLong();
+	private volatile boolean poolCreated;
+
+	@Override
+	public ConnectionPool createPool() throws SQLException {
+		ConnectionPool pool = super.createPool();
+		poolCreated = true;
+		return pool;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return super.getConnection();
+		}
+		finally {
+			long time = System.nanoTime() - start;
+			waits.incrementAndGet();
+			waitTime.addAndGet(time);
+			long max = maxWaitTime.get();
+			while (time > max && !maxWaitTime.compareAndSet(max, time)) {
+				max = maxWaitTime.get();
+			}
+		}
+	}
+
+	/**
+	 * Checks if a pool has been created.
+	 *
+	 * @return true, if pool has been created
+	 */
+	public boolean isPoolCreated() {
+		return poolCreated;
+	}
+
+	/**
+	 * Gets the number of connection requests.
+	 *
+	 * @return the number of connection requests
+	 */
+	public long getWaits() {
+		return waits.get();
+	}
+
+	/**
+	 * Gets the average time in milliseconds waited for a connection.
+	 *
+	 * @return the average wait time
+	 */
+	public double getAverageWaitTime() {
+		long count = waits.get();
+		return count > 0 ? waitTime.get() / 1e6 / count : 0;
+	}
+
+	/**
+	 * Gets the longest time in milliseconds waited for a connection.
+	 *
+	 * @return the maximum wait time
+	 */
+	public double getMaxWaitTime() {
+		return maxWaitTime.get() / 1e6;
+	}
+}
@@ -16,18 +16,40 @@
 
 package org.springframework.cloud.dataflow.autoconfigure.yarn;
 
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.bind.PropertySourcesPropertyValues;
+import org.springframework.boot.bind.RelaxedDataBinder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.dataflow.server.controller.support.MetricStore;
+import org.springframework.cloud.deployer.resource.support.DelegatingResourceLoader;
 import org.springframework.cloud.deployer.spi.app.AppDeployer;
 import org.springframework.cloud.deployer.spi.task.TaskLauncher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.hadoop.fs.HdfsResourceLoader;
 import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.yarn.boot.app.YarnContainerClusterTemplate;
 
 /**
  * {@link EnableAutoConfiguration Auto-configuration} for dataflow
@@ -66,4 +88,236 @@ public class YarnDataFlowServerAutoConfiguration {
 			}
 		};
 	}
+
+	@Configuration
+	@ConditionalOnClass(DelegatingResourceLoader.class)
+	@ConditionalOnProperty(prefix = "dataflow.server.yarn.artifact-cache", name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(ArtifactCacheProperties.class)
+	public static class ArtifactCacheConfiguration {
+
+		@Bean
+		public BeanPostProcessor artifactCachingResourceLoaderBeanPostProcessor(final ArtifactCacheProperties properties,
+				final ObjectFactory<org.apache.hadoop.conf.Configuration> configuration) {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+					return bean;
+				}
+
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+					// configured loader is wrapped as is, it still resolves every
+					// location and only its maven resources are swapped
+					if (bean instanceof DelegatingResourceLoader && !(bean instanceof HdfsArtifactCachingResourceLoader)
+							&& !AopUtils.isAopProxy(bean)) {
+						FileSystem fs;
+						try {
+							// shared instance which is closed by hadoop itself
+							fs = FileSystem.get(configuration.getObject());
+						}
+						catch (IOException e) {
+							throw new BeanCreationException(beanName, "Cannot get FileSystem for artifact cache", e);
+						}
+						HdfsArtifactCache cache = new HdfsArtifactCache(fs, properties.getDirectory(),
+								properties.getMaxSize(), properties.getMaxEntries());
+						return new HdfsArtifactCachingResourceLoader((ResourceLoader) bean, new HdfsResourceLoader(fs),
+								cache);
+					}
+					return bean;
+				}
+			};
+		}
+
+		@Bean
+		public AppDeployerWrappingPostProcessor artifactCacheAppDeployerBeanPostProcessor() {
+			return new AppDeployerWrappingPostProcessor(HdfsArtifactCacheAppDeployer.class,
+					AppDeployerWrappingPostProcessor.ARTIFACT_CACHE_ORDER) {
+				@Override
+				protected AppDeployer wrap(AppDeployer deployer) {
+					return new HdfsArtifactCacheAppDeployer(deployer);
+				}
+			};
+		}
+
+		@Bean
+		public BeanPostProcessor artifactCacheTaskLauncherBeanPostProcessor() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+					return bean;
+				}
+
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+					// lazy init proxies are skipped as their target is wrapped when created
+					if (bean instanceof TaskLauncher && !(bean instanceof HdfsArtifactCacheTaskLauncher)
+							&& !AopUtils.isAopProxy(bean)) {
+						return new HdfsArtifactCacheTaskLauncher((TaskLauncher) bean);
+					}
+					return bean;
+				}
+			};
+		}
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = StatusCacheProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(StatusCacheProperties.class)
+	public static class StatusCacheConfiguration {
+
+		@Bean
+		public StatusCacheStatistics statusCacheStatistics() {
+			return new StatusCacheStatistics();
+		}
+
+		@Bean
+		public AppDeployerWrappingPostProcessor cachingAppDeployerBeanPostProcessor(
+				final StatusCacheProperties properties, final StatusCacheStatistics statistics) {
+			return new AppDeployerWrappingPostProcessor(CachingAppDeployer.class,
+					AppDeployerWrappingPostProcessor.STATUS_CACHE_ORDER) {
+				@Override
+				protected AppDeployer wrap(AppDeployer deployer) {
+					return new CachingAppDeployer(deployer, properties.getMaxAge(), statistics);
+				}
+			};
+		}
+
+		@Configuration
+		@ConditionalOnClass(PublicMetrics.class)
+		public static class StatusCacheMetricsConfiguration {
+
+			@Bean
+			public StatusCacheMetrics statusCacheMetrics(StatusCacheStatistics statistics) {
+				return new StatusCacheMetrics(statistics);
+			}
+		}
+	}
+
+	@Configuration
+	@ConditionalOnClass(YarnContainerClusterTemplate.class)
+	@ConditionalOnProperty(prefix = "dataflow.server.yarn.locality", name = "enabled", havingValue = "true")
+	public static class LocalityConfiguration {
+
+		@Bean
+		public AppDeployerWrappingPostProcessor localityAppDeployerBeanPostProcessor(
+				final ObjectFactory<org.apache.hadoop.conf.Configuration> configuration,
+				final ObjectFactory<YarnClient> yarnClient) {
+			return new AppDeployerWrappingPostProcessor(LocalityAppDeployer.class,
+					AppDeployerWrappingPostProcessor.LOCALITY_ORDER) {
+				@Override
+				protected AppDeployer wrap(AppDeployer deployer) {
+					return new LocalityAppDeployer(deployer, configuration, yarnClient);
+				}
+			};
+		}
+
+		@Bean(destroyMethod = "stop")
+		@Lazy
+		@ConditionalOnMissingBean(YarnClient.class)
+		public YarnClient localityYarnClient(org.apache.hadoop.conf.Configuration configuration) {
+			YarnClient yarnClient = YarnClient.createYarnClient();
+			yarnClient.init(configuration);
+			yarnClient.start();
+			return yarnClient;
+		}
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = PipelinedDeployProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(PipelinedDeployProperties.class)
+	public static class PipelinedDeployConfiguration {
+
+		@Bean
+		public AppDeployerWrappingPostProcessor pipelinedAppDeployerBeanPostProcessor(
+				final PipelinedDeployProperties properties) {
+			return new AppDeployerWrappingPostProcessor(PipelinedAppDeployer.class,
+					AppDeployerWrappingPostProcessor.PIPELINED_DEPLOY_ORDER) {
+				@Override
+				protected AppDeployer wrap(AppDeployer deployer) {
+					return new PipelinedAppDeployer(deployer, properties.getParallelism());
+				}
+			};
+		}
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = SharedAppmasterProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(SharedAppmasterProperties.class)
+	public static class SharedAppmasterConfiguration {
+
+		@Bean
+		public AppDeployerWrappingPostProcessor sharedAppmasterAppDeployerBeanPostProcessor(
+				final SharedAppmasterProperties properties) {
+			return new AppDeployerWrappingPostProcessor(SharedAppmasterAppDeployer.class,
+					AppDeployerWrappingPostProcessor.SHARED_APPMASTER_ORDER) {
+				@Override
+				protected AppDeployer wrap(AppDeployer deployer) {
+					return new SharedAppmasterAppDeployer(deployer, properties.getName());
+				}
+			};
+		}
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = LazyInitProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(LazyInitProperties.class)
+	public static class LazyInitConfiguration {
+
+		@Bean
+		public static LazyInitBeanFactoryPostProcessor lazyInitBeanFactoryPostProcessor(ConfigurableEnvironment environment) {
+			// post processor is created before configuration properties are bound
+			LazyInitProperties properties = new LazyInitProperties();
+			new RelaxedDataBinder(properties, LazyInitProperties.PREFIX)
+					.bind(new PropertySourcesPropertyValues(environment.getPropertySources()));
+			return new LazyInitBeanFactoryPostProcessor(properties.getBeans().toArray(new String[0]));
+		}
+
+		@Bean
+		public LazyInitWarmupListener lazyInitWarmupListener(LazyInitProperties properties) {
+			return new LazyInitWarmupListener(properties.isWarmup());
+		}
+	}
+
+	@Configuration
+	@ConditionalOnClass(org.apache.tomcat.jdbc.pool.DataSource.class)
+	@ConditionalOnProperty(prefix = DataSourcePoolProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties({ DataSourcePoolProperties.class, DataSourceProperties.class })
+	public static class DataSourcePoolConfiguration {
+
+		// defined before boot's own datasource which then backs off,
+		// explicit spring.datasource.tomcat settings still apply
+		@Bean
+		@ConfigurationProperties(prefix = "spring.datasource.tomcat")
+		public WaitTimingDataSource dataSource(DataSourceProperties dataSourceProperties,
+				DataSourcePoolProperties properties) {
+			return new PooledDataSourceFactory(dataSourceProperties, properties).createDataSource();
+		}
+
+		@Configuration
+		@ConditionalOnClass(PublicMetrics.class)
+		public static class DataSourcePoolMetricsConfiguration {
+
+			@Bean
+			public DataSourcePoolMetrics dataSourcePoolMetrics(WaitTimingDataSource dataSource) {
+				return new DataSourcePoolMetrics(dataSource);
+			}
+		}
+	}
+
+	@Configuration
+	@ConditionalOnClass(MetricStore.class)
+	@ConditionalOnProperty(prefix = MetricWindowProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(MetricWindowProperties.class)
+	public static class MetricWindowConfiguration {
+
+		@Bean(initMethod = "start", destroyMethod = "stop")
+		public StreamMetricWindows streamMetricWindows(MetricStore metricStore, MetricWindowProperties properties) {
+			return new StreamMetricWindows(metricStore, properties);
+		}
+
+		@Bean
+		public StreamMetricWindowsController streamMetricWindowsController(StreamMetricWindows streamMetricWindows) {
+			return new StreamMetricWindowsController(streamMetricWindows);
+		}
+	}
 }
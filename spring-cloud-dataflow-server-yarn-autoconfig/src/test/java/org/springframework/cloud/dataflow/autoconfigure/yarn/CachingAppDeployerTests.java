@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingAppDeployerTests {
+
+	@Test
+	public void testStatusCached() {
+		AppDeployer delegate = mock(AppDeployer.class);
+		AppStatus status = status("app", DeploymentState.deployed);
+		when(delegate.status("app")).thenReturn(status);
+		CachingAppDeployer deployer = new CachingAppDeployer(delegate, 60000);
+		assertThat(deployer.status("app"), sameInstance(status));
+		assertThat(deployer.status("app"), sameInstance(status));
+		verify(delegate, times(1)).status("app");
+		assertThat(deployer.getStatistics().toString(), is("hits=1, misses=1, coalesced=0"));
+	}
+
+	@Test
+	public void testExpiredStatusQueried() throws InterruptedException {
+		AppDeployer delegate = mock(AppDeployer.class);
+		when(delegate.status("app")).thenReturn(status("app", DeploymentState.deploying),
+				status("app", DeploymentState.deployed));
+		CachingAppDeployer deployer = new CachingAppDeployer(delegate, 0);
+		assertThat(deployer.status("app").getState(), is(DeploymentState.deploying));
+		Thread.sleep(5);
+		assertThat(deployer.status("app").getState(), is(DeploymentState.deployed));
+		verify(delegate, times(2)).status("app");
+	}
+
+	@Test
+	public void testDeployAndUndeployDropStatus() {
+		AppDeployer delegate = mock(AppDeployer.class);
+		when(delegate.deploy(any(AppDeploymentRequest.class))).thenReturn("app");
+		when(delegate.status("app")).thenReturn(status("app", DeploymentState.unknown),
+				status("app", DeploymentState.deploying), status("app", DeploymentState.unknown));
+		CachingAppDeployer deployer = new CachingAppDeployer(delegate, 60000);
+		assertThat(deployer.status("app").getState(), is(DeploymentState.unknown));
+		deployer.deploy(mock(AppDeploymentRequest.class));
+		assertThat(deployer.status("app").getState(), is(DeploymentState.deploying));
+		deployer.undeploy("app");
+		assertThat(deployer.status("app").getState(), is(DeploymentState.unknown));
+		verify(delegate, times(3)).status("app");
+	}
+
+	@Test
+	public void testConcurrentQueriesCoalesced() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		AppDeployer delegate = mock(AppDeployer.class);
+		when(delegate.status("app")).thenAnswer(new Answer<AppStatus>() {
+
+			@Override
+			public AppStatus answer(InvocationOnMock invocation) throws Throwable {
+				started.countDown();
+				release.await(10, TimeUnit.SECONDS);
+				return status("app", DeploymentState.deployed);
+			}
+		});
+		StatusCacheStatistics statistics = new StatusCacheStatistics();
+		final CachingAppDeployer deployer = new CachingAppDeployer(delegate, 60000, statistics);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Callable<AppStatus> query = new Callable<AppStatus>() {
+
+				@Override
+				public AppStatus call() throws Exception {
+					return deployer.status("app");
+				}
+			};
+			List<Future<AppStatus>> futures = new ArrayList<Future<AppStatus>>();
+			futures.add(executor.submit(query));
+			assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+			futures.add(executor.submit(query));
+			futures.add(executor.submit(query));
+			long timeout = System.currentTimeMillis() + 10000;
+			while (statistics.getCoalesced() < 2 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+			for (Future<AppStatus> future : futures) {
+				assertThat(future.get(10, TimeUnit.SECONDS).getState(), is(DeploymentState.deployed));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(delegate, times(1)).status("app");
+		assertThat(statistics.getMisses(), is(1L));
+		assertThat(statistics.getCoalesced(), is(2L));
+	}
+
+	@Test
+	public void testFailedQueryNotCached() {
+		AppDeployer delegate = mock(AppDeployer.class);
+		when(delegate.status("app")).thenThrow(new IllegalStateException("failed"))
+				.thenReturn(status("app", DeploymentState.deployed));
+		CachingAppDeployer deployer = new CachingAppDeployer(delegate, 60000);
+		try {
+			deployer.status("app");
+			fail("Expected status to fail");
+		}
+		catch (IllegalStateException e) {
+			assertThat(e.getMessage(), is("failed"));
+		}
+		assertThat(deployer.status("app").getState(), is(DeploymentState.deployed));
+	}
+
+	@Test
+	public void testMetrics() {
+		AppDeployer delegate = mock(AppDeployer.class);
+		when(delegate.status("app")).thenReturn(status("app", DeploymentState.deployed));
+		StatusCacheStatistics statistics = new StatusCacheStatistics();
+		CachingAppDeployer deployer = new CachingAppDeployer(delegate, 60000, statistics);
+		deployer.status("app");
+		deployer.status("app");
+		deployer.status("app");
+		List<String> metrics = new ArrayList<String>();
+		for (Metric<?> metric : new StatusCacheMetrics(statistics).metrics()) {
+			metrics.add(metric.getName() + "=" + metric.getValue());
+		}
+		assertThat(metrics.toString(), is("[dataflow.yarn.statuscache.hits=2, dataflow.yarn.statuscache.misses=1, "
+				+ "dataflow.yarn.statuscache.coalesced=0]"));
+	}
+
+	private static AppStatus status(String id, DeploymentState state) {
+		return AppStatus.of(id).generalState(state).build();
+	}
+}
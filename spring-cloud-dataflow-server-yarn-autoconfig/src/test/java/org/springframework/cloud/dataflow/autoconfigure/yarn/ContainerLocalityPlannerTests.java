@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.junit.Test;
+
+import org.springframework.cloud.dataflow.autoconfigure.yarn.ContainerLocalityPlanner.Plan;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContainerLocalityPlannerTests {
+
+	private static final Map<String, Integer> NO_NODES = Collections.emptyMap();
+
+	@Test
+	public void testNoPreferences() {
+		ContainerLocalityPlanner planner = new ContainerLocalityPlanner().hosts(null).racks("");
+		assertThat(planner.hasPreferences(), is(false));
+		assertThat(planner.plan(3, NO_NODES).toString(), is("Plan [hosts={}, racks={}, any=3]"));
+	}
+
+	@Test
+	public void testHostsDistributed() {
+		Plan plan = new ContainerLocalityPlanner().hosts("node1, node2").plan(3, NO_NODES);
+		assertThat(plan.toString(), is("Plan [hosts={node1=2, node2=1}, racks={}, any=0]"));
+	}
+
+	@Test
+	public void testRacksDistributed() {
+		Plan plan = new ContainerLocalityPlanner().racks("/rack1,/rack2").plan(4, NO_NODES);
+		assertThat(plan.toString(), is("Plan [hosts={}, racks={/rack1=2, /rack2=2}, any=0]"));
+	}
+
+	@Test
+	public void testHostsAndRacksCombined() {
+		Plan plan = new ContainerLocalityPlanner().hosts("node1,node2").racks("/rack1").plan(4, NO_NODES);
+		assertThat(plan.toString(), is("Plan [hosts={node1=2, node2=1}, racks={/rack1=1}, any=0]"));
+	}
+
+	@Test
+	public void testSpreadOverHostsThenRacks() {
+		ContainerLocalityPlanner planner = new ContainerLocalityPlanner().hosts("node1,node2").racks("/rack1")
+				.spread(true);
+		assertThat(planner.needsNodes(), is(false));
+		assertThat(planner.plan(4, NO_NODES).toString(),
+				is("Plan [hosts={node1=1, node2=1}, racks={/rack1=2}, any=0]"));
+	}
+
+	@Test
+	public void testSpreadOverLeastUsedNodes() {
+		ContainerLocalityPlanner planner = new ContainerLocalityPlanner().spread(true);
+		assertThat(planner.needsNodes(), is(true));
+		Map<String, Integer> nodes = new LinkedHashMap<String, Integer>();
+		nodes.put("node1", 5);
+		nodes.put("node2", 0);
+		nodes.put("node3", 2);
+		assertThat(planner.plan(2, nodes).toString(), is("Plan [hosts={node2=1, node3=1}, racks={}, any=0]"));
+		assertThat(planner.plan(4, nodes).toString(),
+				is("Plan [hosts={node2=1, node3=1, node1=1}, racks={}, any=1]"));
+	}
+
+	@Test
+	public void testHdfsPathHostsRankedByBlocks() throws IOException {
+		FileSystem fs = mock(FileSystem.class);
+		FileStatus dir = new FileStatus(0, true, 1, 1, 0, new Path("/data/in"));
+		final Iterator<LocatedFileStatus> files = Arrays.asList(
+				file(new BlockLocation(null, new String[] { "node1", "node2" }, 0, 1),
+						new BlockLocation(null, new String[] { "node2", "node3" }, 1, 1)),
+				new LocatedFileStatus(dir, null),
+				file(new BlockLocation(null, new String[] { "node2", "node3" }, 0, 1))).iterator();
+		when(fs.listLocatedStatus(new Path("/data/in"))).thenReturn(new RemoteIterator<LocatedFileStatus>() {
+
+			@Override
+			public boolean hasNext() throws IOException {
+				return files.hasNext();
+			}
+
+			@Override
+			public LocatedFileStatus next() throws IOException {
+				return files.next();
+			}
+		});
+		Plan plan = new ContainerLocalityPlanner().hosts("node4")
+				.dataHosts(ContainerLocalityPlanner.blockHosts(fs, dir)).spread(true).plan(3, NO_NODES);
+		assertThat(plan.toString(), is("Plan [hosts={node4=1, node2=1, node3=1}, racks={}, any=0]"));
+	}
+
+	@Test
+	public void testHdfsFileHostsRankedByBlocks() throws IOException {
+		FileSystem fs = mock(FileSystem.class);
+		FileStatus file = new FileStatus(2, false, 1, 1, 0, new Path("/data/in/file"));
+		when(fs.getFileBlockLocations(file, 0, 2)).thenReturn(new BlockLocation[] {
+				new BlockLocation(null, new String[] { "node1", "node2" }, 0, 1),
+				new BlockLocation(null, new String[] { "node2" }, 1, 1) });
+		assertThat(ContainerLocalityPlanner.blockHosts(fs, file), is(Arrays.asList("node2", "node1")));
+	}
+
+	private static LocatedFileStatus file(BlockLocation... locations) throws IOException {
+		return new LocatedFileStatus(new FileStatus(2, false, 1, 1, 0, new Path("/data/in/file")), locations);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class HdfsArtifactCacheTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private RawLocalFileSystem fs;
+	private MavenProperties mavenProperties;
+	private String directory;
+
+	@Before
+	public void setup() throws IOException {
+		fs = new RawLocalFileSystem();
+		fs.initialize(URI.create("file:///"), new Configuration());
+		mavenProperties = new MavenProperties();
+		mavenProperties.setLocalRepository(folder.newFolder("repository").getAbsolutePath());
+		mavenProperties.setOffline(true);
+		directory = folder.newFolder("cache").getAbsolutePath();
+	}
+
+	@Test
+	public void testReleaseResolvedFromIndex() throws IOException {
+		File jar = install("app", "1.0.0", "content");
+		Path blob = cache(10000, 10).resolve(maven("app", "1.0.0"));
+		assertThat(fs.exists(blob), is(true));
+
+		// index is read by a new cache instance and maven is not touched
+		jar.delete();
+		HdfsArtifactCache cache = cache(10000, 10);
+		assertThat(cache.resolve(maven("app", "1.0.0")), is(blob));
+		assertThat(cache.getStats(), is("hits=1, misses=0, uploads=0, evictions=0"));
+	}
+
+	@Test
+	public void testSameContentSharesBlob() throws IOException {
+		install("app", "1.0.0", "content");
+		install("other", "1.0.0", "content");
+		HdfsArtifactCache cache = cache(10000, 10);
+		Path blob = cache.resolve(maven("app", "1.0.0"));
+		assertThat(cache.resolve(maven("other", "1.0.0")).getParent(), is(blob.getParent()));
+	}
+
+	@Test
+	public void testSnapshotUploadedOnlyWhenChanged() throws IOException {
+		install("app", "1.0.0-SNAPSHOT", "content");
+		HdfsArtifactCache cache = cache(10000, 10);
+		Path first = cache.resolve(maven("app", "1.0.0-SNAPSHOT"));
+		assertThat(cache.resolve(maven("app", "1.0.0-SNAPSHOT")), is(first));
+		assertThat(cache.getStats(), is("hits=0, misses=2, uploads=1, evictions=0"));
+
+		install("app", "1.0.0-SNAPSHOT", "changed content");
+		Path second = cache.resolve(maven("app", "1.0.0-SNAPSHOT"));
+		assertThat(second, not(first));
+		assertThat(cache.getStats(), is("hits=0, misses=3, uploads=2, evictions=0"));
+	}
+
+	@Test
+	public void testEvictByEntries() throws IOException {
+		install("app", "1.0.0", "content1");
+		install("other", "1.0.0", "content2");
+		HdfsArtifactCache cache = cache(10000, 1);
+		Path first = cache.resolve(maven("app", "1.0.0"));
+		Path second = cache.resolve(maven("other", "1.0.0"));
+		assertThat(fs.exists(first), is(false));
+		assertThat(fs.exists(first.getParent()), is(false));
+		assertThat(fs.exists(second), is(true));
+		assertThat(cache.getStats(), is("hits=0, misses=2, uploads=2, evictions=1"));
+	}
+
+	@Test
+	public void testEvictBySizeKeepsNewest() throws IOException {
+		install("app", "1.0.0", "content1");
+		HdfsArtifactCache cache = cache(1, 10);
+		Path blob = cache.resolve(maven("app", "1.0.0"));
+		assertThat(fs.exists(blob), is(true));
+		assertThat(cache.getStats(), is("hits=0, misses=1, uploads=1, evictions=0"));
+	}
+
+	private HdfsArtifactCache cache(long maxSize, int maxEntries) {
+		return new HdfsArtifactCache(fs, directory, maxSize, maxEntries);
+	}
+
+	private MavenResource maven(String artifactId, String version) {
+		return MavenResource.parse("org.example:" + artifactId + ":" + version, mavenProperties);
+	}
+
+	private File install(String artifactId, String version, String content) throws IOException {
+		File dir = new File(mavenProperties.getLocalRepository(), "org/example/" + artifactId + "/" + version);
+		dir.mkdirs();
+		File jar = new File(dir, artifactId + "-" + version + ".jar");
+		Files.write(jar.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return jar;
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+import org.springframework.cloud.dataflow.configuration.metadata.BootApplicationConfigurationMetadataResolver;
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.cloud.deployer.resource.maven.MavenResourceLoader;
+import org.springframework.cloud.deployer.resource.support.DelegatingResourceLoader;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.deployer.spi.task.TaskLauncher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.hadoop.fs.HdfsResourceLoader;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class HdfsArtifactCachingResourceLoaderTests {
+
+	private static final String LOCATION = "maven://org.example:app:1.0.0";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File blobs;
+	private HdfsArtifactCache cache;
+	private HdfsArtifactCachingResourceLoader loader;
+
+	@Before
+	public void setup() throws IOException {
+		RawLocalFileSystem fs = new RawLocalFileSystem();
+		fs.initialize(URI.create("file:///"), new Configuration());
+		MavenProperties mavenProperties = new MavenProperties();
+		mavenProperties.setLocalRepository(folder.newFolder("repository").getAbsolutePath());
+		mavenProperties.setOffline(true);
+		installApp(new File(mavenProperties.getLocalRepository(), "org/example/app/1.0.0/app-1.0.0.jar"));
+		File directory = folder.newFolder("cache");
+		blobs = new File(directory, "blobs");
+		cache = new HdfsArtifactCache(fs, directory.getAbsolutePath(), 10000, 10);
+		HdfsResourceLoader hdfsResourceLoader = new HdfsResourceLoader(fs);
+		Map<String, ResourceLoader> loaders = new HashMap<String, ResourceLoader>();
+		loaders.put(MavenResource.URI_SCHEME, new MavenResourceLoader(mavenProperties));
+		loaders.put("hdfs", hdfsResourceLoader);
+		loader = new HdfsArtifactCachingResourceLoader(new DelegatingResourceLoader(loaders, folder.newFolder("tmp")),
+				hdfsResourceLoader, cache);
+	}
+
+	@Test
+	public void testLookupDoesNotUpload() throws IOException {
+		Resource resource = loader.getResource(LOCATION);
+		assertThat(resource, instanceOf(CachedMavenResource.class));
+		assertThat(resource.getFilename(), is("app-1.0.0.jar"));
+		assertThat(resource.getFile().exists(), is(true));
+		assertThat(blobs.exists(), is(false));
+	}
+
+	@Test
+	public void testMetadataResolver() {
+		Resource resource = loader.getResource(LOCATION);
+		List<String> names = new ArrayList<String>();
+		for (ConfigurationMetadataProperty property : new BootApplicationConfigurationMetadataResolver()
+				.listProperties(resource, true)) {
+			names.add(property.getId());
+		}
+		assertThat(names, contains("app.greeting"));
+		assertThat(blobs.exists(), is(false));
+	}
+
+	@Test
+	public void testHdfsResourceResolvedOnce() throws IOException {
+		CachedMavenResource resource = (CachedMavenResource) loader.getResource(LOCATION);
+		Resource hdfsResource = resource.getHdfsResource();
+		assertThat(hdfsResource.getFile().getAbsolutePath(), startsWith(blobs.getAbsolutePath()));
+		assertThat(resource.getHdfsResource(), sameInstance(hdfsResource));
+		assertThat(cache.getStats(), is("hits=0, misses=1, uploads=1, evictions=0"));
+	}
+
+	@Test
+	public void testAppDeployerGetsHdfsResource() {
+		AppDeployer delegate = mock(AppDeployer.class);
+		AppDeploymentRequest request = request(loader.getResource(LOCATION));
+		new HdfsArtifactCacheAppDeployer(delegate).deploy(request);
+		ArgumentCaptor<AppDeploymentRequest> captor = ArgumentCaptor.forClass(AppDeploymentRequest.class);
+		verify(delegate).deploy(captor.capture());
+		assertDeployedFromCache(request, captor.getValue());
+	}
+
+	@Test
+	public void testTaskLauncherGetsHdfsResource() {
+		TaskLauncher delegate = mock(TaskLauncher.class);
+		AppDeploymentRequest request = request(loader.getResource(LOCATION));
+		new HdfsArtifactCacheTaskLauncher(delegate).launch(request);
+		ArgumentCaptor<AppDeploymentRequest> captor = ArgumentCaptor.forClass(AppDeploymentRequest.class);
+		verify(delegate).launch(captor.capture());
+		assertDeployedFromCache(request, captor.getValue());
+	}
+
+	@Test
+	public void testOtherResourcesPassedAsIs() {
+		AppDeployer delegate = mock(AppDeployer.class);
+		AppDeploymentRequest request = request(loader.getResource("file:/tmp/app.jar"));
+		new HdfsArtifactCacheAppDeployer(delegate).deploy(request);
+		verify(delegate).deploy(request);
+	}
+
+	private void assertDeployedFromCache(AppDeploymentRequest request, AppDeploymentRequest deployed) {
+		assertThat(deployed.getResource(),
+				sameInstance(((CachedMavenResource) request.getResource()).getHdfsResource()));
+		assertThat(deployed.getDefinition(), sameInstance(request.getDefinition()));
+		assertThat(deployed.getDeploymentProperties(), is(request.getDeploymentProperties()));
+		assertThat(deployed.getCommandlineArguments(), is(request.getCommandlineArguments()));
+		assertThat(cache.getStats(), is("hits=0, misses=1, uploads=1, evictions=0"));
+	}
+
+	private static AppDeploymentRequest request(Resource resource) {
+		return new AppDeploymentRequest(new AppDefinition("app", Collections.singletonMap("foo", "bar")), resource,
+				Collections.singletonMap("spring.cloud.deployer.group", "stream"), Collections.singletonList("--x=y"));
+	}
+
+	private static void installApp(File jar) throws IOException {
+		jar.getParentFile().mkdirs();
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			out.putNextEntry(new ZipEntry("META-INF/spring-configuration-metadata.json"));
+			out.write("{\"properties\": [{\"name\": \"app.greeting\", \"type\": \"java.lang.String\"}]}"
+					.getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LazyInitBeanFactoryPostProcessorTests {
+
+	private static final AtomicInteger CREATED = new AtomicInteger();
+	private AnnotationConfigApplicationContext context;
+
+	@Before
+	public void setup() {
+		CREATED.set(0);
+	}
+
+	@After
+	public void clean() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	@Test
+	public void testFactoryMethodBeanDeferred() throws Exception {
+		context = new AnnotationConfigApplicationContext(TestConfig.class);
+		assertThat(CREATED.get(), is(0));
+		Callable<?> callable = context.getBean(Consumer.class).callable;
+		assertThat(AopUtils.isAopProxy(callable), is(true));
+		assertThat(callable.call(), is((Object) "called"));
+		assertThat(CREATED.get(), is(1));
+		assertThat(context.getBean("callable", Callable.class).call(), is((Object) "called"));
+		assertThat(CREATED.get(), is(1));
+	}
+
+	@Test
+	public void testClassBeanDeferred() {
+		context = new AnnotationConfigApplicationContext();
+		context.register(TestConfig.class, CountingBean.class);
+		context.refresh();
+		assertThat(CREATED.get(), is(0));
+		assertThat(AopUtils.isAopProxy(context.getBean("lazyInitBeanFactoryPostProcessorTests.CountingBean")),
+				is(true));
+	}
+
+	@Test
+	public void testFactoryBeanNotDeferred() {
+		context = new AnnotationConfigApplicationContext(TestConfig.class);
+		assertThat(AopUtils.isAopProxy(context.getBean("factoryBean")), is(false));
+		assertThat(context.containsBeanDefinition(LazyInitBeanFactoryPostProcessor.TARGET_BEAN_NAME_PREFIX
+				+ "factoryBean"), is(false));
+	}
+
+	@Configuration
+	static class TestConfig {
+
+		@Bean
+		public static LazyInitBeanFactoryPostProcessor lazyInitBeanFactoryPostProcessor() {
+			return new LazyInitBeanFactoryPostProcessor("callable", "factoryBean",
+					"lazyInitBeanFactoryPostProcessorTests.CountingBean");
+		}
+
+		@Bean
+		public Callable<String> callable() {
+			CREATED.incrementAndGet();
+			return new Callable<String>() {
+
+				@Override
+				public String call() throws Exception {
+					return "called";
+				}
+			};
+		}
+
+		@Bean
+		public FactoryBean<String> factoryBean() {
+			return new FactoryBean<String>() {
+
+				@Override
+				public String getObject() throws Exception {
+					return "value";
+				}
+
+				@Override
+				public Class<?> getObjectType() {
+					return String.class;
+				}
+
+				@Override
+				public boolean isSingleton() {
+					return true;
+				}
+			};
+		}
+
+		@Bean
+		public Consumer consumer(Callable<String> callable) {
+			return new Consumer(callable);
+		}
+	}
+
+	static class Consumer {
+
+		final Callable<?> callable;
+
+		Consumer(Callable<?> callable) {
+			this.callable = callable;
+		}
+	}
+
+	public static class CountingBean {
+
+		public CountingBean() {
+			CREATED.incrementAndGet();
+		}
+	}
+}
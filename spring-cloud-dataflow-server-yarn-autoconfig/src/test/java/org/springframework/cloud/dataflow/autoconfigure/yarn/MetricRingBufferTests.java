@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MetricRingBufferTests {
+
+	@Test
+	public void testEmpty() {
+		MetricRingBuffer buffer = new MetricRingBuffer(3);
+		assertThat(buffer.getLastTime(), is(0L));
+		assertThat(buffer.getSamples(0).length, is(0));
+	}
+
+	@Test
+	public void testSamplesSince() {
+		MetricRingBuffer buffer = new MetricRingBuffer(3);
+		buffer.add(1000, 1);
+		buffer.add(2000, 2);
+		buffer.add(3000, 3);
+		double[][] samples = buffer.getSamples(2000);
+		assertThat(samples.length, is(2));
+		assertThat(samples[0][0], is(2000d));
+		assertThat(samples[0][1], is(2d));
+		assertThat(samples[1][0], is(3000d));
+		assertThat(samples[1][1], is(3d));
+		assertThat(buffer.getLastTime(), is(3000L));
+	}
+
+	@Test
+	public void testOldestOverwritten() {
+		MetricRingBuffer buffer = new MetricRingBuffer(3);
+		for (int i = 1; i <= 5; i++) {
+			buffer.add(i * 1000, i);
+		}
+		double[][] samples = buffer.getSamples(0);
+		assertThat(samples.length, is(3));
+		assertThat(samples[0][1], is(3d));
+		assertThat(samples[1][1], is(4d));
+		assertThat(samples[2][1], is(5d));
+		assertThat(buffer.getLastTime(), is(5000L));
+	}
+
+	@Test
+	public void testReaderNeverSeesTornSamples() throws Exception {
+		final MetricRingBuffer buffer = new MetricRingBuffer(16);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				long time = 1;
+				while (running.get()) {
+					buffer.add(time, time);
+					time++;
+				}
+			}
+		});
+		writer.start();
+		try {
+			for (int i = 0; i < 10000; i++) {
+				double previous = 0;
+				for (double[] sample : buffer.getSamples(1)) {
+					assertThat(sample[1], is(sample[0]));
+					assertThat(sample[0] > previous, is(true));
+					previous = sample[0];
+				}
+			}
+		}
+		finally {
+			running.set(false);
+			writer.join();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.core.io.ByteArrayResource;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PipelinedAppDeployerTests {
+
+	private AppDeployer delegate;
+	private CountDownLatch release;
+	private List<String> deployed;
+	private Set<String> blocking;
+	private Set<String> failing;
+	private Map<String, String> ids;
+	private PipelinedAppDeployer deployer;
+
+	@Before
+	public void setup() {
+		delegate = mock(AppDeployer.class);
+		release = new CountDownLatch(1);
+		deployed = new CopyOnWriteArrayList<String>();
+		blocking = new HashSet<String>();
+		failing = new HashSet<String>();
+		ids = new HashMap<String, String>();
+		when(delegate.deploy(any(AppDeploymentRequest.class))).thenAnswer(new Answer<String>() {
+
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				AppDeploymentRequest request = (AppDeploymentRequest) invocation.getArguments()[0];
+				String group = request.getDeploymentProperties().get(AppDeployer.GROUP_PROPERTY_KEY);
+				String name = request.getDefinition().getName();
+				String handle = group != null ? group + ":" + name : name;
+				if (blocking.contains(handle)) {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				if (failing.contains(handle)) {
+					throw new IllegalStateException("failed");
+				}
+				deployed.add(handle);
+				return ids.containsKey(handle) ? ids.get(handle) : handle;
+			}
+		});
+		when(delegate.status(anyString())).thenAnswer(new Answer<AppStatus>() {
+
+			@Override
+			public AppStatus answer(InvocationOnMock invocation) throws Throwable {
+				return AppStatus.of((String) invocation.getArguments()[0]).generalState(DeploymentState.deployed)
+						.build();
+			}
+		});
+		deployer = new PipelinedAppDeployer(delegate, 2);
+	}
+
+	@After
+	public void clean() throws Exception {
+		release.countDown();
+		deployer.destroy();
+	}
+
+	@Test
+	public void testDeployedInBackground() throws InterruptedException {
+		blocking.add("stream:app");
+		assertThat(deployer.deploy(request("stream", "app")), is("stream:app"));
+		assertThat(deployer.status("stream:app").getState(), is(DeploymentState.deploying));
+		verify(delegate, never()).status(anyString());
+		release.countDown();
+		awaitState("stream:app", DeploymentState.deployed);
+		verify(delegate, atLeastOnce()).status("stream:app");
+	}
+
+	@Test
+	public void testWithoutGroupDeployedSynchronously() {
+		assertThat(deployer.deploy(request(null, "app")), is("app"));
+		assertThat(deployed, contains("app"));
+	}
+
+	@Test
+	public void testFailedDeployReportsFailed() throws InterruptedException {
+		failing.add("stream:app");
+		deployer.deploy(request("stream", "app"));
+		awaitState("stream:app", DeploymentState.failed);
+		assertThat(deployer.status("stream:app").getState(), is(DeploymentState.failed));
+		deployer.undeploy("stream:app");
+		verify(delegate, never()).undeploy(anyString());
+		// failure is forgotten once undeployed
+		assertThat(deployer.status("stream:app").getState(), is(DeploymentState.deployed));
+	}
+
+	@Test
+	public void testFailedDeployUndeploysGroup() throws InterruptedException {
+		blocking.add("stream:source");
+		failing.add("stream:processor");
+		deployer.deploy(request("stream", "source"));
+		deployer.deploy(request("stream", "processor"));
+		deployer.deploy(request("stream", "sink"));
+		deployer.deploy(request("other", "sink"));
+		release.countDown();
+		awaitState("other:sink", DeploymentState.deployed);
+		verify(delegate).undeploy("stream:source");
+		assertThat(deployed, contains("stream:source", "other:sink"));
+		assertThat(deployer.status("stream:source").getState(), is(DeploymentState.failed));
+		assertThat(deployer.status("stream:processor").getState(), is(DeploymentState.failed));
+		assertThat(deployer.status("stream:sink").getState(), is(DeploymentState.failed));
+
+		// group is deployed again once failed apps have left a pipeline
+		deployer.deploy(request("stream", "sink"));
+		awaitState("stream:sink", DeploymentState.deployed);
+		assertThat(deployed, contains("stream:source", "other:sink", "stream:sink"));
+	}
+
+	@Test
+	public void testDeploymentIdUsedForUndeploy() throws InterruptedException {
+		ids.put("stream:app", "other");
+		deployer.deploy(request("stream", "app"));
+		awaitState("stream:app", DeploymentState.deployed);
+		verify(delegate, atLeastOnce()).status("other");
+		deployer.undeploy("stream:app");
+		verify(delegate).undeploy("other");
+	}
+
+	@Test
+	public void testDestroyReleasesPendingUndeploy() throws Exception {
+		blocking.add("stream:source");
+		deployer.deploy(request("stream", "source"));
+		deployer.deploy(request("stream", "sink"));
+		final CountDownLatch undeployed = new CountDownLatch(1);
+		Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				deployer.undeploy("stream:sink");
+				undeployed.countDown();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+		deployer.destroy();
+		assertThat(undeployed.await(10, TimeUnit.SECONDS), is(true));
+		assertThat(deployed, not(hasItem("stream:sink")));
+	}
+
+	private void awaitState(String id, DeploymentState state) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 10000;
+		while (deployer.status(id).getState() != state && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertThat(deployer.status(id).getState(), is(state));
+	}
+
+	private static AppDeploymentRequest request(String group, String name) {
+		return new AppDeploymentRequest(new AppDefinition(name, Collections.<String, String>emptyMap()),
+				new ByteArrayResource(new byte[0]), group != null
+						? Collections.singletonMap(AppDeployer.GROUP_PROPERTY_KEY, group)
+						: Collections.<String, String>emptyMap());
+	}
+}
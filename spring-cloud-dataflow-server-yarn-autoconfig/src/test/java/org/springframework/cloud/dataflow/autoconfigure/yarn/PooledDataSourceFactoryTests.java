@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PooledDataSourceFactoryTests {
+
+	private WaitTimingDataSource dataSource;
+
+	@After
+	public void clean() {
+		if (dataSource != null) {
+			dataSource.close(true);
+		}
+	}
+
+	@Test
+	public void testPoolSettings() {
+		DataSourcePoolProperties properties = new DataSourcePoolProperties();
+		properties.setInitialSize(2);
+		properties.setMinIdle(1);
+		properties.setMaxActive(4);
+		properties.setMaxWait(500);
+		properties.setStatementCacheSize(50);
+		dataSource = create("jdbc:h2:mem:pool1", properties);
+		assertThat(dataSource.getUrl(), is("jdbc:h2:mem:pool1"));
+		assertThat(dataSource.getInitialSize(), is(2));
+		assertThat(dataSource.getMinIdle(), is(1));
+		assertThat(dataSource.getMaxIdle(), is(4));
+		assertThat(dataSource.getMaxActive(), is(4));
+		assertThat(dataSource.getMaxWait(), is(500));
+		assertThat(dataSource.isTestOnBorrow(), is(true));
+		assertThat(dataSource.getValidationQuery(), is("SELECT 1"));
+		assertThat(dataSource.getJdbcInterceptors(),
+				is("ConnectionState;StatementCache(prepared=true,callable=false,max=50)"));
+	}
+
+	@Test
+	public void testStatementCacheDisabled() {
+		DataSourcePoolProperties properties = new DataSourcePoolProperties();
+		properties.setStatementCacheSize(0);
+		dataSource = create("jdbc:h2:mem:pool2", properties);
+		assertThat(dataSource.getJdbcInterceptors(), is("ConnectionState"));
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		dataSource = create("jdbc:h2:mem:pool3", new DataSourcePoolProperties());
+		DataSourcePoolMetrics metrics = new DataSourcePoolMetrics(dataSource);
+		assertThat(values(metrics).get("dataflow.yarn.datasource.active"), is((Number) 0));
+		// reading metrics doesn't create a pool
+		assertThat(dataSource.isPoolCreated(), is(false));
+
+		Connection connection = dataSource.getConnection();
+		try {
+			Map<String, Number> values = values(metrics);
+			assertThat(dataSource.isPoolCreated(), is(true));
+			assertThat(values.get("dataflow.yarn.datasource.active"), is((Number) 1));
+			assertThat(values.get("dataflow.yarn.datasource.idle"), is((Number) 4));
+			assertThat(values.get("dataflow.yarn.datasource.waiting"), is((Number) 0));
+			assertThat(values.get("dataflow.yarn.datasource.wait.count"), is((Number) 1L));
+		}
+		finally {
+			connection.close();
+		}
+		assertThat(values(metrics).get("dataflow.yarn.datasource.active"), is((Number) 0));
+	}
+
+	private static WaitTimingDataSource create(String url, DataSourcePoolProperties properties) {
+		DataSourceProperties dataSourceProperties = new DataSourceProperties();
+		dataSourceProperties.setUrl(url);
+		dataSourceProperties.setUsername("sa");
+		return new PooledDataSourceFactory(dataSourceProperties, properties).createDataSource();
+	}
+
+	private static Map<String, Number> values(DataSourcePoolMetrics metrics) {
+		Map<String, Number> values = new HashMap<String, Number>();
+		for (Metric<?> metric : metrics.metrics()) {
+			values.put(metric.getName(), metric.getValue());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.core.io.ByteArrayResource;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class SharedAppmasterAppDeployerTests {
+
+	private AppDeployer delegate;
+	private SharedAppmasterAppDeployer deployer;
+
+	@Before
+	public void setup() {
+		delegate = mock(AppDeployer.class);
+		deployer = new SharedAppmasterAppDeployer(delegate, "shared");
+	}
+
+	@Test
+	public void testGroupMovedIntoName() {
+		AppDeploymentRequest deployed = deploy(request("foostream", "log", null));
+		assertThat(deployed.getDefinition().getName(), is("foostream~log"));
+		assertThat(deployed.getDefinition().getProperties(), is(Collections.singletonMap("foo", "bar")));
+		assertThat(deployed.getDeploymentProperties().get(AppDeployer.GROUP_PROPERTY_KEY), is("shared"));
+		assertThat(deployed.getDeploymentProperties().get("spring.cloud.deployer.count"), is("2"));
+		assertThat(deployed.getCommandlineArguments(), is(Collections.singletonList("--x=y")));
+	}
+
+	@Test
+	public void testAppmasterFromProperty() {
+		AppDeploymentRequest deployed = deploy(request("foostream", "log", "tenant1"));
+		assertThat(deployed.getDeploymentProperties().get(AppDeployer.GROUP_PROPERTY_KEY), is("tenant1"));
+	}
+
+	@Test
+	public void testDashedNamesDoNotCollide() {
+		String first = deploy(request("foo-bar", "log", null)).getDefinition().getName();
+		String second = deploy(request("foo", "bar-log", null)).getDefinition().getName();
+		assertThat(first, not(second));
+	}
+
+	@Test
+	public void testSeparatorInNameRejected() {
+		try {
+			deployer.deploy(request("foo", "bar~log", null));
+			fail("Expected deploy to fail");
+		}
+		catch (IllegalArgumentException e) {
+			assertThat(e.getMessage(), is("Group 'foo' or app 'bar~log' contains '~'"));
+		}
+		verify(delegate, never()).deploy(any(AppDeploymentRequest.class));
+	}
+
+	@Test
+	public void testWithoutGroupPassedAsIs() {
+		AppDeploymentRequest request = new AppDeploymentRequest(
+				new AppDefinition("app", Collections.<String, String>emptyMap()), new ByteArrayResource(new byte[0]));
+		assertThat(deploy(request), sameInstance(request));
+	}
+
+	private AppDeploymentRequest deploy(AppDeploymentRequest request) {
+		ArgumentCaptor<AppDeploymentRequest> captor = ArgumentCaptor.forClass(AppDeploymentRequest.class);
+		deployer.deploy(request);
+		verify(delegate, atLeastOnce()).deploy(captor.capture());
+		return captor.getValue();
+	}
+
+	private static AppDeploymentRequest request(String group, String name, String appmaster) {
+		Map<String, String> properties = new HashMap<String, String>();
+		properties.put(AppDeployer.GROUP_PROPERTY_KEY, group);
+		properties.put("spring.cloud.deployer.count", "2");
+		if (appmaster != null) {
+			properties.put(SharedAppmasterAppDeployer.APPMASTER_PROPERTY_KEY, appmaster);
+		}
+		return new AppDeploymentRequest(new AppDefinition(name, Collections.singletonMap("foo", "bar")),
+				new ByteArrayResource(new byte[0]), properties, Collections.singletonList("--x=y"));
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.autoconfigure.yarn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.dataflow.server.controller.support.ApplicationsMetrics;
+import org.springframework.cloud.dataflow.server.controller.support.MetricStore;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamMetricWindowsTests {
+
+	private static final String SEND_COUNT = "integration.channel.input.sendCount";
+	private static final String SEND_RATE = "integration.channel.input.sendRate.mean";
+
+	private MetricStore metricStore;
+	private MetricWindowProperties properties;
+
+	@Before
+	public void setup() {
+		metricStore = mock(MetricStore.class);
+		properties = new MetricWindowProperties();
+		properties.setResolution(1000);
+		properties.setWindows(Arrays.asList(2000L, 10000L));
+		properties.setMetrics(Arrays.asList("integration.channel.*.sendCount", "integration.channel.*.sendRate.mean"));
+	}
+
+	@Test
+	public void testCounterRates() {
+		ApplicationsMetrics.Metric first = metric(SEND_COUNT, 0);
+		ApplicationsMetrics.Metric second = metric(SEND_COUNT, 0);
+		when(metricStore.getMetrics()).thenReturn(stream("ticktock", "log", instance(0, first), instance(1, second)));
+		StreamMetricWindows windows = new StreamMetricWindows(metricStore, properties);
+		for (int i = 1; i <= 5; i++) {
+			first.setValue(i * 10);
+			second.setValue(i * 5);
+			windows.sample(i * 1000);
+		}
+
+		Map<String, Object> app = getApp(windows.getWindows(5000), "ticktock", "log");
+		assertThat(getWindow(app, "0", SEND_COUNT, "2s").get("rate"), is((Object) 10d));
+		assertThat(getWindow(app, "1", SEND_COUNT, "10s").get("rate"), is((Object) 5d));
+		assertThat(getWindow(app, "aggregate", SEND_COUNT, "10s").get("rate"), is((Object) 15d));
+	}
+
+	@Test
+	public void testCounterResetSkipped() {
+		ApplicationsMetrics.Metric count = metric(SEND_COUNT, 0);
+		when(metricStore.getMetrics()).thenReturn(stream("ticktock", "log", instance(0, count)));
+		StreamMetricWindows windows = new StreamMetricWindows(metricStore, properties);
+		double[] values = { 10, 20, 0, 10, 20 };
+		for (int i = 0; i < values.length; i++) {
+			count.setValue(values[i]);
+			windows.sample((i + 1) * 1000);
+		}
+
+		Map<String, Object> app = getApp(windows.getWindows(5000), "ticktock", "log");
+		assertThat(getWindow(app, "0", SEND_COUNT, "10s").get("rate"), is((Object) 7.5d));
+	}
+
+	@Test
+	public void testGaugeStatistics() {
+		ApplicationsMetrics.Metric first = metric(SEND_RATE, 0);
+		ApplicationsMetrics.Metric second = metric(SEND_RATE, 0);
+		when(metricStore.getMetrics()).thenReturn(stream("ticktock", "log", instance(0, first), instance(1, second)));
+		StreamMetricWindows windows = new StreamMetricWindows(metricStore, properties);
+		for (int i = 1; i <= 2; i++) {
+			first.setValue(i);
+			second.setValue(i + 2);
+			windows.sample(i * 1000);
+		}
+
+		Map<String, Object> app = getApp(windows.getWindows(2000), "ticktock", "log");
+		Map<String, Object> instance = getWindow(app, "0", SEND_RATE, "10s");
+		assertThat(instance.get("count"), is((Object) 2));
+		assertThat(instance.get("avg"), is((Object) 1.5d));
+		Map<String, Object> aggregate = getWindow(app, "aggregate", SEND_RATE, "10s");
+		assertThat(aggregate.get("count"), is((Object) 4));
+		assertThat(aggregate.get("avg"), is((Object) 2.5d));
+		assertThat(aggregate.get("min"), is((Object) 1d));
+		assertThat(aggregate.get("max"), is((Object) 4d));
+		assertThat(aggregate.get("p50"), is((Object) 2d));
+		assertThat(aggregate.get("p99"), is((Object) 4d));
+	}
+
+	@Test
+	public void testUnmatchedAndNonNumericMetricsIgnored() {
+		when(metricStore.getMetrics()).thenReturn(stream("ticktock", "log",
+				instance(0, metric("integration.channel.input.errorRate.mean", 1), metric(SEND_COUNT, "foo"))));
+		StreamMetricWindows windows = new StreamMetricWindows(metricStore, properties);
+		windows.sample(1000);
+
+		assertThat(windows.getWindows(1000).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testStaleMetricsDropped() {
+		when(metricStore.getMetrics()).thenReturn(stream("ticktock", "log", instance(0, metric(SEND_COUNT, 1))));
+		StreamMetricWindows windows = new StreamMetricWindows(metricStore, properties);
+		windows.sample(1000);
+		assertThat(windows.getWindows(1000).containsKey("ticktock"), is(true));
+
+		when(metricStore.getMetrics()).thenReturn(new ArrayList<ApplicationsMetrics>());
+		windows.sample(20000);
+		assertThat(windows.getWindows(20000).get("ticktock"), nullValue());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getApp(Map<String, Object> streams, String stream, String app) {
+		return (Map<String, Object>) ((Map<String, Object>) streams.get(stream)).get(app);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getWindow(Map<String, Object> app, String instance, String metric,
+			String window) {
+		Map<String, Object> metrics = (Map<String, Object>) app.get(instance);
+		return (Map<String, Object>) ((Map<String, Object>) metrics.get(metric)).get(window);
+	}
+
+	private static List<ApplicationsMetrics> stream(String name, String app,
+			ApplicationsMetrics.Instance... instances) {
+		ApplicationsMetrics.Application application = new ApplicationsMetrics.Application();
+		application.setName(app);
+		application.setInstances(Arrays.asList(instances));
+		ApplicationsMetrics stream = new ApplicationsMetrics();
+		stream.setName(name);
+		stream.setApplications(Collections.singletonList(application));
+		return Collections.singletonList(stream);
+	}
+
+	private static ApplicationsMetrics.Instance instance(int index, ApplicationsMetrics.Metric... metrics) {
+		ApplicationsMetrics.Instance instance = new ApplicationsMetrics.Instance();
+		instance.setIndex(index);
+		instance.setMetrics(Arrays.asList(metrics));
+		return instance;
+	}
+
+	private static ApplicationsMetrics.Metric metric(String name, Object value) {
+		ApplicationsMetrics.Metric metric = new ApplicationsMetrics.Metric();
+		metric.setName(name);
+		metric.setValue(value);
+		return metric;
+	}
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+import org.springframework.util.StringUtils;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.AbstractContainerClusterRequest.ProjectionDataType;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.ContainerClusterCreateRequest;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.ContainerClusterModifyRequest;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.domain.ContainerClusterResource;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.domain.YarnContainerClusterEndpointResource;
+import org.springframework.yarn.boot.app.YarnContainerClusterOperations;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Single container cluster operation parsed from a batch file. Each
+ * non-empty line which is not a comment starting with '#' is an
+ * operation name followed by its options, for example:
+ *
+ * <pre>
+ * clustercreate -a application_1473924456009_0001 -c ticktock-1 -i module-template -p default -w 1
+ * clusterstart -c ticktock-1
+ * clustermodify -c ticktock-1 -w 2 --property containerCount=2
+ * </pre>
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class BatchOperation {
+
+	private final int line;
+	private final Type type;
+	private final String applicationId;
+	private final String clusterId;
+	private final String clusterDef;
+	private final String projectionType;
+	private final Integer projectionAny;
+	private final Map<String, Integer> projectionHosts;
+	private final Map<String, Integer> projectionRacks;
+	private final Map<String, Object> extraProperties;
+
+	/**
+	 * Instantiates a new batch operation.
+	 *
+	 * @param line the line number in a batch file
+	 * @param type the operation type
+	 * @param applicationId the yarn application id
+	 * @param clusterId the container cluster id
+	 * @param clusterDef the container cluster definition
+	 * @param projectionType the projection type
+	 * @param projectionAny the projected count of any containers
+	 * @param projectionHosts the projected counts of containers per host
+	 * @param projectionRacks the projected counts of containers per rack
+	 * @param extraProperties the extra properties
+	 */
+	public BatchOperation(int line, Type type, String applicationId, String clusterId, String clusterDef,
+			String projectionType, Integer projectionAny, Map<String, Integer> projectionHosts,
+			Map<String, Integer> projectionRacks, Map<String, Object> extraProperties) {
+		this.line = line;
+		this.type = type;
+		this.applicationId = applicationId;
+		this.clusterId = clusterId;
+		this.clusterDef = clusterDef;
+		this.projectionType = projectionType;
+		this.projectionAny = projectionAny;
+		this.projectionHosts = projectionHosts;
+		this.projectionRacks = projectionRacks;
+		this.extraProperties = extraProperties;
+	}
+
+	/**
+	 * Parses batch operations from a reader.
+	 *
+	 * @param reader the reader
+	 * @param defaultApplicationId the application id used if operation doesn't define one
+	 * @return the parsed operations in order they appear in a reader
+	 * @throws IOException if reading fails
+	 * @throws IllegalArgumentException if operation is not valid
+	 */
+	public static List<BatchOperation> parse(Reader reader, String defaultApplicationId) throws IOException {
+		List<BatchOperation> operations = new ArrayList<BatchOperation>();
+		BufferedReader lines = new BufferedReader(reader);
+		String text;
+		int line = 0;
+		while ((text = lines.readLine()) != null) {
+			line++;
+			text = text.trim();
+			if (!StringUtils.hasText(text) || text.startsWith("#")) {
+				continue;
+			}
+			operations.add(parse(line, text, defaultApplicationId));
+		}
+		return operations;
+	}
+
+	private static BatchOperation parse(int line, String text, String defaultApplicationId) {
+		String[] tokens = text.split("\\s+");
+		Type type = Type.fromName(tokens[0]);
+		if (type == null) {
+			throw new IllegalArgumentException("Unknown operation '" + tokens[0] + "' on line " + line);
+		}
+		OptionParser parser = new OptionParser();
+		OptionSpec<String> applicationIdOption = parser.acceptsAll(asList("application-id", "a")).withRequiredArg();
+		OptionSpec<String> clusterIdOption = parser.acceptsAll(asList("cluster-id", "c")).withRequiredArg();
+		OptionSpec<String> clusterDefOption = parser.acceptsAll(asList("cluster-def", "i")).withRequiredArg();
+		OptionSpec<String> projectionTypeOption = parser.acceptsAll(asList("projection-type", "p")).withRequiredArg();
+		OptionSpec<Integer> projectionAnyOption = parser.acceptsAll(asList("projection-any", "w")).withRequiredArg()
+				.ofType(Integer.class);
+		OptionSpec<String> hostOption = parser.accepts("host").withRequiredArg();
+		OptionSpec<String> rackOption = parser.accepts("rack").withRequiredArg();
+		OptionSpec<String> propertyOption = parser.accepts("property").withRequiredArg();
+		OptionSet options;
+		try {
+			options = parser.parse(asList(tokens).subList(1, tokens.length).toArray(new String[0]));
+		}
+		catch (OptionException e) {
+			throw new IllegalArgumentException("Invalid operation on line " + line + ": " + e.getMessage(), e);
+		}
+
+		String applicationId = options.has(applicationIdOption) ? options.valueOf(applicationIdOption)
+				: defaultApplicationId;
+		if (!StringUtils.hasText(applicationId)) {
+			throw new IllegalArgumentException("Application id not set for operation on line " + line);
+		}
+		String clusterId = options.valueOf(clusterIdOption);
+		if (type != Type.CLUSTERSINFO && !StringUtils.hasText(clusterId)) {
+			throw new IllegalArgumentException("Cluster id not set for operation on line " + line);
+		}
+
+		Map<String, Object> extraProperties = new HashMap<String, Object>();
+		for (Map.Entry<String, String> entry : toMap(options.valuesOf(propertyOption), line).entrySet()) {
+			extraProperties.put(entry.getKey(), entry.getValue());
+		}
+		return new BatchOperation(line, type, applicationId, clusterId, options.valueOf(clusterDefOption),
+				options.valueOf(projectionTypeOption), options.valueOf(projectionAnyOption),
+				toCounts(options.valuesOf(hostOption), line), toCounts(options.valuesOf(rackOption), line),
+				extraProperties);
+	}
+
+	private static Map<String, String> toMap(List<String> values, int line) {
+		Map<String, String> map = new HashMap<String, String>();
+		for (String value : values) {
+			int index = value.indexOf('=');
+			if (index < 1) {
+				throw new IllegalArgumentException("Expected key=value but got '" + value + "' on line " + line);
+			}
+			map.put(value.substring(0, index), value.substring(index + 1));
+		}
+		return map;
+	}
+
+	private static Map<String, Integer> toCounts(List<String> values, int line) {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (Map.Entry<String, String> entry : toMap(values, line).entrySet()) {
+			try {
+				counts.put(entry.getKey(), Integer.valueOf(entry.getValue()));
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Expected count for '" + entry.getKey() + "' on line " + line, e);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Executes this operation.
+	 *
+	 * @param operations the container cluster operations
+	 * @return the operation result message
+	 */
+	public String execute(YarnContainerClusterOperations operations) {
+		switch (type) {
+		case CLUSTERSINFO:
+			YarnContainerClusterEndpointResource clusters = operations.getClusters();
+			return clusters.getClusters().size() + " clusters";
+		case CLUSTERINFO:
+			ContainerClusterResource cluster = operations.clusterInfo(clusterId);
+			return "Cluster " + clusterId + " " + cluster.getContainerClusterState().getClusterState() + " with "
+					+ cluster.getGridProjection().getMembers().size() + " members";
+		case CLUSTERCREATE:
+			ContainerClusterCreateRequest createRequest = buildCreateRequest();
+			createRequest.setClusterDef(clusterDef);
+			createRequest.setProjection(projectionType);
+			operations.clusterCreate(createRequest);
+			return "Cluster " + clusterId + " created";
+		case CLUSTERSTART:
+			ContainerClusterModifyRequest startRequest = new ContainerClusterModifyRequest();
+			startRequest.setAction("start");
+			operations.clusterStart(clusterId, startRequest);
+			return "Cluster " + clusterId + " started";
+		case CLUSTERSTOP:
+			ContainerClusterModifyRequest stopRequest = new ContainerClusterModifyRequest();
+			stopRequest.setAction("stop");
+			operations.clusterStop(clusterId, stopRequest);
+			return "Cluster " + clusterId + " stopped";
+		case CLUSTERMODIFY:
+			operations.clusterModify(clusterId, buildCreateRequest());
+			return "Cluster " + clusterId + " modified";
+		case CLUSTERDESTROY:
+			operations.clusterDestroy(clusterId);
+			return "Cluster " + clusterId + " destroyed";
+		default:
+			throw new IllegalStateException("Unsupported operation " + type);
+		}
+	}
+
+	private ContainerClusterCreateRequest buildCreateRequest() {
+		ContainerClusterCreateRequest request = new ContainerClusterCreateRequest();
+		request.setClusterId(clusterId);
+		request.setExtraProperties(extraProperties);
+		ProjectionDataType projectionData = new ProjectionDataType();
+		projectionData.setAny(projectionAny);
+		projectionData.setHosts(projectionHosts);
+		projectionData.setRacks(projectionRacks);
+		request.setProjectionData(projectionData);
+		return request;
+	}
+
+	/**
+	 * Gets the key of a resource this operation modifies. Operations having
+	 * same key need to be executed in order while operations with
+	 * different keys are independent.
+	 *
+	 * @return the operation key
+	 */
+	public String getKey() {
+		return type == Type.CLUSTERSINFO ? applicationId + "#" + line : applicationId + "/" + clusterId;
+	}
+
+	/**
+	 * Gets the line number in a batch file.
+	 *
+	 * @return the line number
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Gets the operation type.
+	 *
+	 * @return the operation type
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the yarn application id.
+	 *
+	 * @return the yarn application id
+	 */
+	public String getApplicationId() {
+		return applicationId;
+	}
+
+	/**
+	 * Gets the container cluster id.
+	 *
+	 * @return the container cluster id
+	 */
+	public String getClusterId() {
+		return clusterId;
+	}
+
+	/**
+	 * Supported operation types named after matching cli commands.
+	 */
+	public enum Type {
+
+		CLUSTERSINFO("clustersinfo"),
+		CLUSTERINFO("clusterinfo"),
+		CLUSTERCREATE("clustercreate"),
+		CLUSTERSTART("clusterstart"),
+		CLUSTERSTOP("clusterstop"),
+		CLUSTERMODIFY("clustermodify"),
+		CLUSTERDESTROY("clusterdestroy");
+
+		private final String name;
+
+		Type(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the operation name.
+		 *
+		 * @return the operation name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Finds a type by its name.
+		 *
+		 * @param name the operation name
+		 * @return the type or {@code null} if not found
+		 */
+		public static Type fromName(String name) {
+			for (Type type : values()) {
+				if (type.name.equalsIgnoreCase(name)) {
+					return type;
+				}
+			}
+			return null;
+		}
+	}
+}
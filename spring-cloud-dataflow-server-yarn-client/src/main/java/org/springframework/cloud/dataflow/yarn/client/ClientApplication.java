@@ -49,9 +49,14 @@ public class ClientApplication extends AbstractCli {
 		commands.add(new YarnClusterStopCommand());
 		commands.add(new YarnClusterModifyCommand());
 		commands.add(new YarnClusterDestroyCommand());
+		commands.add(new YarnBatchCommand());
+		// route commands into a daemon when one is running
+		List<Command> routed = DaemonRoutingCommand.wrap(commands,
+				new ClientDaemonClient(ClientDaemon.getDefaultStateFile()));
 		ClientApplication app = new ClientApplication();
-		app.registerCommands(commands);
-		app.registerCommand(new ShellCommand(commands));
+		app.registerCommands(routed);
+		app.registerCommand(new ShellCommand(routed));
+		app.registerCommand(new DaemonCommand(commands));
 		app.doMain(args);
 	}
 
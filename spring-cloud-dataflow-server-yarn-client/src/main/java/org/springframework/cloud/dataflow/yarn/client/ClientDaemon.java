@@ -0,0 +1,392 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.cli.command.Command;
+import org.springframework.boot.cli.command.status.ExitStatus;
+
+/**
+ * Long-lived daemon executing cli commands on behalf of short-lived cli
+ * processes. Keeping a single warm jvm avoids paying class loading and
+ * jit costs of Spring and Hadoop on every command.
+ * <p>
+ * Daemon listens on a loopback address only and its port and a random
+ * token are written into a state file readable only by the owner. Clients
+ * must present the token with every request. Requests are executed one at
+ * a time by a single worker because command output is captured by
+ * replacing {@link System#out} and {@link System#err}, and a client
+ * connecting while other request is executed is told that a daemon is
+ * busy. Applications started by commands are kept warm between requests,
+ * see {@link WarmApplicationContexts}.
+ * <p>
+ * Clients send their own {@link #currentContext() context} and its system
+ * properties are applied for a duration of a request. A working directory,
+ * a user and environment variables cannot be changed in a running jvm, so
+ * a daemon refuses to run commands for a client whose ones differ, which
+ * then runs those locally.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class ClientDaemon {
+
+	static final String STOP = "__stop";
+	static final int BUSY = 125;
+	static final int CONTEXT_MISMATCH = 126;
+	static final int UNKNOWN_COMMAND = 127;
+	private static final String[] CONTEXT_PROPERTY_PREFIXES = { "spring.", "dataflow.", "deployer.", "hadoop.", "yarn." };
+	private static final String[] CONTEXT_ENV_PREFIXES = { "SPRING_", "DATAFLOW_", "DEPLOYER_", "HADOOP_", "YARN_" };
+	private static final String ENV_PREFIX = "env.";
+	private static final int REQUEST_TIMEOUT = 10000;
+	private final Map<String, Command> commands = new HashMap<String, Command>();
+	private final Map<String, String> fixedContext = fixedContext(currentContext());
+	private final File stateFile;
+	private final long idleTimeout;
+	private final String token;
+	private final AtomicBoolean busy = new AtomicBoolean();
+	private volatile boolean running;
+
+	/**
+	 * Instantiates a new client daemon.
+	 *
+	 * @param commands the commands executed by a daemon
+	 * @param stateFile the state file
+	 * @param idleTimeout the idle timeout in milliseconds, zero for no timeout
+	 */
+	public ClientDaemon(List<Command> commands, File stateFile, long idleTimeout) {
+		for (Command command : commands) {
+			this.commands.put(command.getName(), command);
+		}
+		this.stateFile = stateFile;
+		this.idleTimeout = idleTimeout;
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder buf = new StringBuilder();
+		for (byte b : bytes) {
+			buf.append(String.format("%02x", b));
+		}
+		this.token = buf.toString();
+	}
+
+	/**
+	 * Gets the default state file.
+	 *
+	 * @return the default state file
+	 */
+	public static File getDefaultStateFile() {
+		return new File(System.getProperty("user.home"), ".spring-cloud-dataflow-yarn" + File.separator + "cli-daemon");
+	}
+
+	/**
+	 * Gets the context commands of this jvm depend on. Context consists of
+	 * a working directory, a user and configuration related system
+	 * properties and environment variables.
+	 *
+	 * @return the current context
+	 */
+	static Map<String, String> currentContext() {
+		Map<String, String> context = new TreeMap<String, String>();
+		context.put("user.dir", System.getProperty("user.dir"));
+		context.put("user.name", System.getProperty("user.name"));
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (startsWithAny(name, CONTEXT_PROPERTY_PREFIXES)) {
+				context.put(name, System.getProperty(name));
+			}
+		}
+		for (Entry<String, String> entry : System.getenv().entrySet()) {
+			if (startsWithAny(entry.getKey(), CONTEXT_ENV_PREFIXES)) {
+				context.put(ENV_PREFIX + entry.getKey(), entry.getValue());
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Runs the daemon until it is stopped or idle timeout is reached.
+	 *
+	 * @throws IOException if daemon cannot be started
+	 */
+	public void run() throws IOException {
+		ServerSocket server = new ServerSocket();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		PrintStream console = System.out;
+		try {
+			writeStateFile(server.getLocalPort());
+			running = true;
+			WarmApplicationContexts.enable();
+			console.println("Daemon listening on port " + server.getLocalPort() + " with " + commands.size()
+					+ " commands");
+			if (idleTimeout > 0) {
+				server.setSoTimeout((int) Math.min(idleTimeout, Integer.MAX_VALUE));
+			}
+			while (running) {
+				Socket socket;
+				try {
+					socket = server.accept();
+				}
+				catch (SocketTimeoutException e) {
+					if (busy.get()) {
+						continue;
+					}
+					console.println("Daemon idle for " + TimeUnit.MILLISECONDS.toSeconds(idleTimeout)
+							+ " seconds, stopping");
+					break;
+				}
+				accept(socket, executor, console);
+			}
+		}
+		finally {
+			running = false;
+			executor.shutdown();
+			try {
+				// let a running command complete before its context is closed
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			WarmApplicationContexts.close();
+			stateFile.delete();
+			server.close();
+		}
+	}
+
+	private void accept(final Socket socket, ExecutorService executor, final PrintStream console) {
+		boolean submitted = false;
+		try {
+			// don't let a stalled client block the daemon
+			socket.setSoTimeout(REQUEST_TIMEOUT);
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			if (!token.equals(in.readUTF())) {
+				writeResponse(out, "Invalid daemon token", ExitStatus.ERROR.getCode());
+				return;
+			}
+			final Map<String, String> requestContext = new TreeMap<String, String>();
+			int entries = in.readInt();
+			for (int i = 0; i < entries; i++) {
+				requestContext.put(in.readUTF(), in.readUTF());
+			}
+			String name = in.readUTF();
+			final String[] args = new String[in.readInt()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = in.readUTF();
+			}
+			if (STOP.equals(name)) {
+				running = false;
+				writeResponse(out, "Daemon stopped\n", ExitStatus.OK.getCode());
+				return;
+			}
+			final Command command = commands.get(name);
+			if (command == null) {
+				writeResponse(out, "", UNKNOWN_COMMAND);
+				return;
+			}
+			if (!fixedContext.equals(fixedContext(requestContext))) {
+				// relative paths and environment would resolve differently here
+				writeResponse(out, "", CONTEXT_MISMATCH);
+				return;
+			}
+			if (!busy.compareAndSet(false, true)) {
+				writeResponse(out, "", BUSY);
+				return;
+			}
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						execute(out, command, args, requestContext);
+					}
+					catch (IOException e) {
+						console.println("Failed to write response: " + e.getMessage());
+					}
+					finally {
+						busy.set(false);
+						closeQuietly(socket);
+					}
+				}
+			});
+			submitted = true;
+		}
+		catch (EOFException e) {
+			// client only checked that daemon is alive
+		}
+		catch (IOException e) {
+			console.println("Failed to handle request: " + e.getMessage());
+		}
+		finally {
+			if (!submitted) {
+				closeQuietly(socket);
+			}
+		}
+	}
+
+	private void execute(DataOutputStream out, Command command, String[] args, Map<String, String> requestContext)
+			throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream capture = new PrintStream(buffer, true, StandardCharsets.UTF_8.name());
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		Map<String, String> previous = applyProperties(requestContext);
+		int code;
+		System.setOut(capture);
+		System.setErr(capture);
+		try {
+			ExitStatus status = command.run(args);
+			code = status != null ? status.getCode() : ExitStatus.OK.getCode();
+		}
+		catch (Exception e) {
+			capture.println(e.getMessage() != null ? e.getMessage() : e.toString());
+			code = ExitStatus.ERROR.getCode();
+		}
+		finally {
+			System.setOut(stdout);
+			System.setErr(stderr);
+			restoreProperties(previous);
+			capture.flush();
+			// a client may send a next request as soon as it has a response
+			busy.set(false);
+		}
+		writeResponse(out, new String(buffer.toByteArray(), StandardCharsets.UTF_8), code);
+	}
+
+	/**
+	 * Replaces configuration related system properties with ones from a
+	 * request context.
+	 *
+	 * @return the previous values, {@code null} for properties not set
+	 */
+	private static Map<String, String> applyProperties(Map<String, String> requestContext) {
+		Map<String, String> previous = new HashMap<String, String>();
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (startsWithAny(name, CONTEXT_PROPERTY_PREFIXES)) {
+				previous.put(name, System.getProperty(name));
+				if (!requestContext.containsKey(name)) {
+					System.clearProperty(name);
+				}
+			}
+		}
+		for (Entry<String, String> entry : requestContext.entrySet()) {
+			if (startsWithAny(entry.getKey(), CONTEXT_PROPERTY_PREFIXES)) {
+				if (!previous.containsKey(entry.getKey())) {
+					previous.put(entry.getKey(), null);
+				}
+				System.setProperty(entry.getKey(), entry.getValue());
+			}
+		}
+		return previous;
+	}
+
+	private static void restoreProperties(Map<String, String> previous) {
+		for (Entry<String, String> entry : previous.entrySet()) {
+			if (entry.getValue() != null) {
+				System.setProperty(entry.getKey(), entry.getValue());
+			}
+			else {
+				System.clearProperty(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Gets the part of a context which cannot be applied for a request.
+	 */
+	private static Map<String, String> fixedContext(Map<String, String> context) {
+		Map<String, String> fixed = new TreeMap<String, String>();
+		for (Entry<String, String> entry : context.entrySet()) {
+			if (entry.getKey().equals("user.dir") || entry.getKey().equals("user.name")
+					|| entry.getKey().startsWith(ENV_PREFIX)) {
+				fixed.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return fixed;
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		}
+		catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	private static boolean startsWithAny(String name, String[] prefixes) {
+		for (String prefix : prefixes) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void writeResponse(DataOutputStream out, String output, int code) throws IOException {
+		byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.writeInt(code);
+		out.flush();
+	}
+
+	private void writeStateFile(int port) throws IOException {
+		File dir = stateFile.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create directory " + dir);
+		}
+		Path path = stateFile.toPath();
+		Files.deleteIfExists(path);
+		try {
+			// restrict permissions before token is written
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		catch (UnsupportedOperationException e) {
+			Files.createFile(path);
+			stateFile.setReadable(false, false);
+			stateFile.setReadable(true, true);
+		}
+		Files.write(path, (port + " " + token).getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Client sending commands to a running {@link ClientDaemon}.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class ClientDaemonClient {
+
+	private static final int CONNECT_TIMEOUT = 1000;
+	private final File stateFile;
+
+	/**
+	 * Instantiates a new client daemon client.
+	 *
+	 * @param stateFile the daemon state file
+	 */
+	public ClientDaemonClient(File stateFile) {
+		this.stateFile = stateFile;
+	}
+
+	/**
+	 * Checks if daemon is running. Stale state file of a daemon which is
+	 * not running anymore is removed.
+	 *
+	 * @return true, if daemon is running
+	 */
+	public boolean isRunning() {
+		String[] state = readState();
+		if (state == null) {
+			return false;
+		}
+		try {
+			Socket socket = connect(state);
+			socket.close();
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Executes a command in a daemon and writes its output into a given stream.
+	 *
+	 * @param out the stream where command output is written
+	 * @param name the command name
+	 * @param args the command arguments
+	 * @return the command exit code, or {@code null} if daemon is not running,
+	 *         is busy, doesn't know a command or runs in a different working
+	 *         directory or environment
+	 */
+	public Integer execute(PrintStream out, String name, String... args) {
+		return execute(out, ClientDaemon.currentContext(), name, args);
+	}
+
+	Integer execute(PrintStream out, Map<String, String> context, String name, String... args) {
+		String[] state = readState();
+		if (state == null) {
+			return null;
+		}
+		Socket socket;
+		try {
+			socket = connect(state);
+		}
+		catch (IOException e) {
+			return null;
+		}
+		try {
+			DataOutputStream request = new DataOutputStream(socket.getOutputStream());
+			request.writeUTF(state[1]);
+			request.writeInt(context.size());
+			for (Entry<String, String> entry : context.entrySet()) {
+				request.writeUTF(entry.getKey());
+				request.writeUTF(entry.getValue());
+			}
+			request.writeUTF(name);
+			request.writeInt(args.length);
+			for (String arg : args) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+			DataInputStream response = new DataInputStream(socket.getInputStream());
+			byte[] output = new byte[response.readInt()];
+			response.readFully(output);
+			int code = response.readInt();
+			if (code == ClientDaemon.UNKNOWN_COMMAND || code == ClientDaemon.CONTEXT_MISMATCH || code == ClientDaemon.BUSY) {
+				return null;
+			}
+			out.print(new String(output, StandardCharsets.UTF_8));
+			out.flush();
+			return code;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to execute command '" + name + "' in a daemon", e);
+		}
+		finally {
+			try {
+				socket.close();
+			}
+			catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+	private String[] readState() {
+		if (!stateFile.isFile()) {
+			return null;
+		}
+		try {
+			String[] state = new String(Files.readAllBytes(stateFile.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+			return state.length == 2 && state[0].matches("\\d+") ? state : null;
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	private Socket connect(String[] state) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(state[0])),
+					CONNECT_TIMEOUT);
+		}
+		catch (ConnectException e) {
+			// daemon was killed without cleaning up
+			stateFile.delete();
+			socket.close();
+			throw e;
+		}
+		catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return socket;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+import org.springframework.boot.cli.command.Command;
+import org.springframework.boot.cli.command.status.ExitStatus;
+import org.springframework.yarn.boot.cli.AbstractApplicationCommand;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Command running a {@link ClientDaemon} in a foreground, or stopping or
+ * querying a running daemon.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class DaemonCommand extends AbstractApplicationCommand {
+
+	public final static String DEFAULT_COMMAND = "daemon";
+
+	public final static String DEFAULT_DESC = "Run a daemon executing commands in a warm jvm";
+
+	/**
+	 * Instantiates a new daemon command using a default
+	 * command name and command description.
+	 *
+	 * @param commands the commands executed by a daemon
+	 */
+	public DaemonCommand(List<Command> commands) {
+		super(DEFAULT_COMMAND, DEFAULT_DESC, new DaemonOptionHandler(commands));
+	}
+
+	public static class DaemonOptionHandler extends ApplicationOptionHandler<String> {
+
+		public final static List<String> OPTIONS_STOP = asList("stop");
+		public final static String DESC_STOP = "Stop a running daemon";
+		public final static List<String> OPTIONS_STATUS = asList("status");
+		public final static String DESC_STATUS = "Check if daemon is running";
+		public final static List<String> OPTIONS_IDLE_TIMEOUT = asList("idle-timeout");
+		public final static String DESC_IDLE_TIMEOUT = "Minutes after an idle daemon stops, 0 to run forever";
+		private final List<Command> commands;
+		private OptionSpec<Void> stopOption;
+		private OptionSpec<Void> statusOption;
+		private OptionSpec<Integer> idleTimeoutOption;
+
+		/**
+		 * Instantiates a new daemon option handler.
+		 *
+		 * @param commands the commands executed by a daemon
+		 */
+		public DaemonOptionHandler(List<Command> commands) {
+			this.commands = commands;
+		}
+
+		@Override
+		protected final void options() {
+			this.stopOption = option(OPTIONS_STOP, DESC_STOP);
+			this.statusOption = option(OPTIONS_STATUS, DESC_STATUS);
+			this.idleTimeoutOption = option(OPTIONS_IDLE_TIMEOUT, DESC_IDLE_TIMEOUT).withRequiredArg()
+					.ofType(Integer.class).defaultsTo(60);
+		}
+
+		@Override
+		protected void runApplication(OptionSet options) throws Exception {
+			ClientDaemonClient client = new ClientDaemonClient(ClientDaemon.getDefaultStateFile());
+			if (options.has(stopOption)) {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				Integer code = client.execute(new PrintStream(buffer, true, StandardCharsets.UTF_8.name()),
+						ClientDaemon.STOP);
+				String output = new String(buffer.toByteArray(), StandardCharsets.UTF_8).trim();
+				if (code != null && code != ExitStatus.OK.getCode()) {
+					throw new IllegalStateException(output);
+				}
+				handleOutput(code != null ? output : "Daemon is not running");
+				return;
+			}
+			if (options.has(statusOption)) {
+				handleOutput(client.isRunning() ? "Daemon is running" : "Daemon is not running");
+				return;
+			}
+			if (client.isRunning()) {
+				throw new IllegalStateException("Daemon is already running");
+			}
+			long idleTimeout = TimeUnit.MINUTES.toMillis(options.valueOf(idleTimeoutOption));
+			new ClientDaemon(commands, ClientDaemon.getDefaultStateFile(), idleTimeout).run();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.boot.cli.command.Command;
+import org.springframework.boot.cli.command.options.OptionHelp;
+import org.springframework.boot.cli.command.status.ExitStatus;
+
+/**
+ * {@link Command} routing its execution into a running
+ * {@link ClientDaemon} and falling back to a local execution if daemon is
+ * not running.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class DaemonRoutingCommand implements Command {
+
+	private final Command delegate;
+	private final ClientDaemonClient client;
+
+	/**
+	 * Instantiates a new daemon routing command.
+	 *
+	 * @param delegate the command executed locally or in a daemon
+	 * @param client the daemon client
+	 */
+	public DaemonRoutingCommand(Command delegate, ClientDaemonClient client) {
+		this.delegate = delegate;
+		this.client = client;
+	}
+
+	/**
+	 * Wraps given commands with {@link DaemonRoutingCommand}s.
+	 *
+	 * @param commands the commands
+	 * @param client the daemon client
+	 * @return the routing commands
+	 */
+	public static List<Command> wrap(List<Command> commands, ClientDaemonClient client) {
+		List<Command> wrapped = new ArrayList<Command>();
+		for (Command command : commands) {
+			wrapped.add(new DaemonRoutingCommand(command, client));
+		}
+		return wrapped;
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public String getDescription() {
+		return delegate.getDescription();
+	}
+
+	@Override
+	public String getUsageHelp() {
+		return delegate.getUsageHelp();
+	}
+
+	@Override
+	public String getHelp() {
+		return delegate.getHelp();
+	}
+
+	@Override
+	public Collection<OptionHelp> getOptionsHelp() {
+		return delegate.getOptionsHelp();
+	}
+
+	@Override
+	public ExitStatus run(String... args) throws Exception {
+		Integer code = client.execute(System.out, getName(), args);
+		if (code == null) {
+			return delegate.run(args);
+		}
+		return code == ExitStatus.OK.getCode() ? ExitStatus.OK : new ExitStatus(code, "ERROR");
+	}
+}
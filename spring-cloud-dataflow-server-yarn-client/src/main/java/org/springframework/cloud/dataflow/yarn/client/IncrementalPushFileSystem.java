@@ -0,0 +1,519 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.util.Progressable;
+
+/**
+ * {@link FileSystem} used during a push which uploads only files whose
+ * content differs from what already exists in a file system. Digest of a
+ * pushed file is stored as an extended attribute and an index of digested
+ * files in other version directories of a same app type is kept for a
+ * push. Written content is hashed while it is compared against an existing
+ * file or a file with a same name in other version. Matching content is
+ * not uploaded, existing file is kept as is or a file from other version
+ * is copied within a file system. Extended attributes are dropped when a
+ * file is re-created, so a stored digest always matches file content. File
+ * systems without extended attribute support always upload files.
+ * <p>
+ * Registered into a hadoop {@link Configuration} with
+ * {@link #configure(Configuration, PushStatistics)} so that push
+ * implementations using {@link FileSystem#get(Configuration)} transparently
+ * use it. As instances are not cached, those are tracked per configuration
+ * and closed by {@link #release(Configuration)}.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class IncrementalPushFileSystem extends FilterFileSystem {
+
+	private static final Log log = LogFactory.getLog(IncrementalPushFileSystem.class);
+	private static final String DELEGATE_IMPL_KEY = "dataflow.yarn.push.delegate.impl";
+	private static final String STATISTICS_KEY = "dataflow.yarn.push.statistics";
+	private static final String DIGEST_XATTR = "user.dataflow.sha256";
+	private static final ConcurrentMap<String, PushContext> CONTEXTS = new ConcurrentHashMap<String, PushContext>();
+	private PushContext pushContext;
+	private PushStatistics pushStatistics;
+	private boolean xattrSupported = true;
+	private boolean closed;
+
+	/**
+	 * Returns a copy of a hadoop configuration where file system for a
+	 * default uri is replaced with {@link IncrementalPushFileSystem}.
+	 *
+	 * @param configuration the hadoop configuration
+	 * @param statistics the statistics updated by created file systems
+	 * @return the configuration for incremental push
+	 * @throws IOException if default file system cannot be resolved
+	 */
+	public static Configuration configure(Configuration configuration, PushStatistics statistics) throws IOException {
+		String scheme = FileSystem.getDefaultUri(configuration).getScheme();
+		Class<? extends FileSystem> delegate = FileSystem.getFileSystemClass(scheme, configuration);
+		String id = UUID.randomUUID().toString();
+		CONTEXTS.put(id, new PushContext(statistics));
+		Configuration conf = new Configuration(configuration);
+		conf.set(DELEGATE_IMPL_KEY, delegate.getName());
+		conf.set(STATISTICS_KEY, id);
+		conf.setClass("fs." + scheme + ".impl", IncrementalPushFileSystem.class, FileSystem.class);
+		// don't let cached instances of a delegate leak into a push
+		conf.setBoolean("fs." + scheme + ".impl.disable.cache", true);
+		return conf;
+	}
+
+	/**
+	 * Releases statistics associated with a configuration returned from
+	 * {@link #configure(Configuration, PushStatistics)} and closes file
+	 * systems created with it.
+	 *
+	 * @param configuration the configuration
+	 */
+	public static void release(Configuration configuration) {
+		String id = configuration.get(STATISTICS_KEY);
+		PushContext context = id != null ? CONTEXTS.remove(id) : null;
+		if (context == null) {
+			return;
+		}
+		for (FileSystem fileSystem : new ArrayList<FileSystem>(context.fileSystems)) {
+			try {
+				fileSystem.close();
+			}
+			catch (IOException e) {
+				log.warn("Unable to close " + fileSystem.getUri(), e);
+			}
+		}
+	}
+
+	@Override
+	public void initialize(URI name, Configuration conf) throws IOException {
+		Configuration delegateConf = new Configuration(conf);
+		delegateConf.set("fs." + name.getScheme() + ".impl", conf.get(DELEGATE_IMPL_KEY));
+		fs = FileSystem.newInstance(name, delegateConf);
+		String id = conf.get(STATISTICS_KEY);
+		pushContext = id != null ? CONTEXTS.get(id) : null;
+		if (pushContext != null) {
+			pushContext.fileSystems.add(this);
+		}
+		else {
+			pushContext = new PushContext(new PushStatistics());
+		}
+		pushStatistics = pushContext.statistics;
+		super.initialize(name, conf);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		pushContext.fileSystems.remove(this);
+		// closes the delegate created in initialize as well
+		super.close();
+	}
+
+	@Override
+	public FSDataOutputStream create(Path f, FsPermission permission, boolean overwrite, int bufferSize,
+			short replication, long blockSize, Progressable progress) throws IOException {
+		if (!overwrite && exists(f)) {
+			// let a delegate fail as it would without a push
+			return super.create(f, permission, overwrite, bufferSize, replication, blockSize, progress);
+		}
+		Path path = makeQualified(f);
+		return new FSDataOutputStream(new PushOutputStream(path, findBlob(path), permission, bufferSize, replication,
+				blockSize, progress), null);
+	}
+
+	/**
+	 * Finds a blob which content is expected to match a written file. Either
+	 * an existing file itself or a file with a same name in other version
+	 * directory of a same app type.
+	 */
+	private Blob findBlob(Path f) {
+		String digest = getDigest(f);
+		if (digest != null) {
+			return new Blob(f, digest);
+		}
+		Path versionDir = f.getParent();
+		if (versionDir == null || versionDir.getParent() == null || !xattrSupported) {
+			return null;
+		}
+		return pushContext.getIndex(this, versionDir.getParent(), versionDir).get(f.getName());
+	}
+
+	/**
+	 * Builds an index of digested files from version directories of an app
+	 * type keyed by file name, newest file winning.
+	 */
+	private Map<String, Blob> buildIndex(Path appDir, Path versionDir) {
+		Map<String, Blob> index = new HashMap<String, Blob>();
+		Map<String, Long> modified = new HashMap<String, Long>();
+		try {
+			if (!exists(appDir)) {
+				return index;
+			}
+			for (FileStatus dir : listStatus(appDir)) {
+				if (!dir.isDirectory() || makeQualified(dir.getPath()).equals(versionDir)) {
+					continue;
+				}
+				for (FileStatus file : listStatus(dir.getPath())) {
+					String name = file.getPath().getName();
+					Long previous = modified.get(name);
+					if (!file.isFile() || (previous != null && previous >= file.getModificationTime())) {
+						continue;
+					}
+					String digest = readDigest(file.getPath());
+					if (digest != null) {
+						index.put(name, new Blob(makeQualified(file.getPath()), digest));
+						modified.put(name, file.getModificationTime());
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			log.debug("Unable to index " + appDir, e);
+		}
+		log.debug("Indexed " + index.size() + " files from other versions in " + appDir);
+		return index;
+	}
+
+	private String getDigest(Path f) {
+		if (!xattrSupported) {
+			return null;
+		}
+		try {
+			return exists(f) ? readDigest(f) : null;
+		}
+		catch (IOException e) {
+			log.debug("Unable to read digest of " + f, e);
+		}
+		return null;
+	}
+
+	private String readDigest(Path f) {
+		if (!xattrSupported) {
+			return null;
+		}
+		try {
+			byte[] value = getXAttrs(f).get(DIGEST_XATTR);
+			return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+		}
+		catch (UnsupportedOperationException e) {
+			xattrSupported = false;
+		}
+		catch (IOException e) {
+			log.debug("Unable to read digest of " + f, e);
+		}
+		return null;
+	}
+
+	private void setDigest(Path f, String digest) {
+		if (!xattrSupported) {
+			return;
+		}
+		try {
+			setXAttr(f, DIGEST_XATTR, digest.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (UnsupportedOperationException e) {
+			xattrSupported = false;
+		}
+		catch (IOException e) {
+			log.warn("Unable to store digest of " + f + ", file will be uploaded again on next push", e);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 digest not available", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder buf = new StringBuilder();
+		for (byte b : bytes) {
+			buf.append(String.format("%02x", b));
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Output stream computing a digest of written content while comparing
+	 * it against a {@link Blob}. Matching content is never uploaded, a blob
+	 * from other version is copied within a file system instead. Once
+	 * content diverges, already matched prefix is copied from a blob and
+	 * rest of the content is streamed into a destination.
+	 */
+	private class PushOutputStream extends OutputStream {
+
+		private final Path path;
+		private final Blob blob;
+		private final FsPermission permission;
+		private final int bufferSize;
+		private final short replication;
+		private final long blockSize;
+		private final Progressable progress;
+		private final MessageDigest digest = newDigest();
+		private byte[] buffer = new byte[0];
+		private InputStream blobIn;
+		private OutputStream out;
+		private Path target;
+		private long length;
+		private boolean closed;
+
+		PushOutputStream(Path path, Blob blob, FsPermission permission, int bufferSize, short replication,
+				long blockSize, Progressable progress) throws IOException {
+			this.path = path;
+			this.blob = blob;
+			this.permission = permission;
+			this.bufferSize = bufferSize;
+			this.replication = replication;
+			this.blockSize = blockSize;
+			this.progress = progress;
+			if (blob != null) {
+				blobIn = open(blob.path, bufferSize);
+			}
+			else {
+				diverge();
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			digest.update(b, off, len);
+			if (out == null && !matches(b, off, len)) {
+				diverge();
+			}
+			if (out != null) {
+				out.write(b, off, len);
+			}
+			length += len;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			String hex = toHex(digest.digest());
+			try {
+				if (out == null) {
+					// all written content matched, blob must not have more
+					boolean same = blobIn.read() < 0 && hex.equals(blob.digest);
+					if (same) {
+						blobIn.close();
+						blobIn = null;
+						reuse();
+						pushStatistics.skipped(length);
+						return;
+					}
+					diverge();
+				}
+				out.close();
+				if (!target.equals(path)) {
+					delete(path, false);
+					if (!rename(target, path)) {
+						throw new IOException("Unable to rename " + target + " to " + path);
+					}
+				}
+				setDigest(path, hex);
+				pushStatistics.uploaded(length);
+			}
+			finally {
+				if (blobIn != null) {
+					blobIn.close();
+				}
+				if (target != null && !target.equals(path) && exists(target)) {
+					delete(target, false);
+				}
+			}
+		}
+
+		private boolean matches(byte[] b, int off, int len) throws IOException {
+			if (buffer.length < len) {
+				buffer = new byte[len];
+			}
+			int read = 0;
+			while (read < len) {
+				int count = blobIn.read(buffer, read, len - read);
+				if (count < 0) {
+					return false;
+				}
+				read += count;
+			}
+			for (int i = 0; i < len; i++) {
+				if (buffer[i] != b[off + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void diverge() throws IOException {
+			if (blobIn != null) {
+				blobIn.close();
+				blobIn = null;
+			}
+			// blob is read for a matched prefix, don't truncate it
+			target = blob != null && blob.path.equals(path)
+					? new Path(path.getParent(), "." + path.getName() + ".pushing") : path;
+			out = IncrementalPushFileSystem.super.create(target, permission, true, bufferSize, replication, blockSize,
+					progress);
+			if (length > 0) {
+				InputStream in = open(blob.path, bufferSize);
+				try {
+					IOUtils.copyBytes(in, out, length, false);
+				}
+				finally {
+					in.close();
+				}
+			}
+		}
+
+		private void reuse() throws IOException {
+			if (blob.path.equals(path)) {
+				log.info("Skipping unchanged " + path);
+				return;
+			}
+			log.info("Copying unchanged " + path + " from " + blob.path);
+			if (!FileUtil.copy(fs, blob.path, fs, path, false, true, getConf())) {
+				throw new IOException("Unable to copy " + blob.path + " to " + path);
+			}
+			setDigest(path, blob.digest);
+		}
+	}
+
+	/**
+	 * Existing file with a known digest.
+	 */
+	private static class Blob {
+
+		final Path path;
+		final String digest;
+
+		Blob(Path path, String digest) {
+			this.path = path;
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * Statistics and file systems of a configuration returned from
+	 * {@link #configure(Configuration, PushStatistics)}.
+	 */
+	private static class PushContext {
+
+		final PushStatistics statistics;
+		final Set<FileSystem> fileSystems = Collections.newSetFromMap(new ConcurrentHashMap<FileSystem, Boolean>());
+		final Map<Path, Map<String, Blob>> indexes = new HashMap<Path, Map<String, Blob>>();
+
+		PushContext(PushStatistics statistics) {
+			this.statistics = statistics;
+		}
+
+		synchronized Map<String, Blob> getIndex(IncrementalPushFileSystem fileSystem, Path appDir, Path versionDir) {
+			Map<String, Blob> index = indexes.get(appDir);
+			if (index == null) {
+				index = fileSystem.buildIndex(appDir, versionDir);
+				indexes.put(appDir, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Statistics of files uploaded and skipped during a push.
+	 */
+	public static class PushStatistics {
+
+		private final AtomicInteger uploadedFiles = new AtomicInteger();
+		private final AtomicLong uploadedBytes = new AtomicLong();
+		private final AtomicInteger skippedFiles = new AtomicInteger();
+		private final AtomicLong skippedBytes = new AtomicLong();
+
+		void uploaded(long bytes) {
+			uploadedFiles.incrementAndGet();
+			uploadedBytes.addAndGet(bytes);
+		}
+
+		void skipped(long bytes) {
+			skippedFiles.incrementAndGet();
+			skippedBytes.addAndGet(bytes);
+		}
+
+		/**
+		 * Gets the number of uploaded files.
+		 *
+		 * @return the number of uploaded files
+		 */
+		public int getUploadedFiles() {
+			return uploadedFiles.get();
+		}
+
+		/**
+		 * Gets the number of skipped files.
+		 *
+		 * @return the number of skipped files
+		 */
+		public int getSkippedFiles() {
+			return skippedFiles.get();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "Uploaded %d files (%d bytes), skipped %d unchanged files (%d bytes)",
+					uploadedFiles.get(), uploadedBytes.get(), skippedFiles.get(), skippedBytes.get());
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.yarn.boot.SpringApplicationCallback;
+import org.springframework.yarn.boot.SpringApplicationException;
+import org.springframework.yarn.boot.SpringApplicationTemplate;
+
+/**
+ * Application contexts kept warm within a {@link ClientDaemon} so that
+ * consecutive commands reuse a hadoop configuration, a yarn client and
+ * other beans instead of building a new context on every run. Outside of
+ * a daemon a context is created and closed for every run as
+ * {@link SpringApplicationTemplate} does.
+ * <p>
+ * Contexts are keyed by an application specific key, arguments and a
+ * {@link ClientDaemon#currentContext() context} a command runs in. Least
+ * recently used context is closed when more than {@code 4} are kept and
+ * a context whose callback fails is closed not to reuse a broken one.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+final class WarmApplicationContexts {
+
+	private static final int MAX_CONTEXTS = 4;
+	private static final Map<String, ConfigurableApplicationContext> CONTEXTS =
+			new LinkedHashMap<String, ConfigurableApplicationContext>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ConfigurableApplicationContext> eldest) {
+			if (size() > MAX_CONTEXTS) {
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+	};
+	private static boolean enabled;
+
+	private WarmApplicationContexts() {
+	}
+
+	/**
+	 * Enables keeping contexts warm.
+	 */
+	static synchronized void enable() {
+		enabled = true;
+	}
+
+	/**
+	 * Disables keeping contexts warm and closes all warm contexts.
+	 */
+	static synchronized void close() {
+		enabled = false;
+		for (ConfigurableApplicationContext context : CONTEXTS.values()) {
+			context.close();
+		}
+		CONTEXTS.clear();
+	}
+
+	/**
+	 * Executes a callback with a warm context, building it from a given
+	 * builder if needed.
+	 *
+	 * @param builder the spring application builder
+	 * @param key the key identifying a context built by a builder
+	 * @param callback the callback
+	 * @param args the spring application args
+	 * @param <T> the type of a callback result
+	 * @return the callback result
+	 * @throws SpringApplicationException if context cannot be built or callback fails
+	 */
+	static <T> T execute(SpringApplicationBuilder builder, String key, SpringApplicationCallback<T> callback,
+			String... args) {
+		if (!isEnabled()) {
+			return new SpringApplicationTemplate(builder).execute(callback, args);
+		}
+		String contextKey = key + Arrays.asList(args) + ClientDaemon.currentContext();
+		ConfigurableApplicationContext context = getContext(builder, contextKey, args);
+		try {
+			return callback.runWithSpringApplication(context);
+		}
+		catch (Exception e) {
+			evict(contextKey, context);
+			throw new SpringApplicationException("Error executing a spring application", e);
+		}
+	}
+
+	private static synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	private static synchronized ConfigurableApplicationContext getContext(SpringApplicationBuilder builder,
+			String key, String... args) {
+		ConfigurableApplicationContext context = CONTEXTS.get(key);
+		if (context == null || !context.isActive()) {
+			try {
+				context = builder.run(args);
+			}
+			catch (Exception e) {
+				throw new SpringApplicationException("Error executing a spring application", e);
+			}
+			CONTEXTS.put(key, context);
+		}
+		return context;
+	}
+
+	private static synchronized void evict(String key, ConfigurableApplicationContext context) {
+		if (CONTEXTS.get(key) == context) {
+			CONTEXTS.remove(key);
+		}
+		context.close();
+	}
+}
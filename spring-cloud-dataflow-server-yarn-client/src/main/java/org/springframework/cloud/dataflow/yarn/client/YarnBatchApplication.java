@@ -0,0 +1,362 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+
+import org.springframework.boot.actuate.autoconfigure.EndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.EndpointMBeanExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.batch.BatchAutoConfiguration;
+import org.springframework.boot.autoconfigure.jmx.JmxAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.EmbeddedServletContainerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.yarn.boot.SpringApplicationCallback;
+import org.springframework.yarn.boot.actuate.endpoint.YarnContainerClusterEndpoint;
+import org.springframework.yarn.boot.app.AbstractClientApplication;
+import org.springframework.yarn.boot.app.YarnContainerClusterOperations;
+import org.springframework.yarn.boot.app.YarnContainerClusterTemplate;
+import org.springframework.yarn.boot.support.SpringYarnBootUtils;
+import org.springframework.yarn.client.YarnClient;
+import org.springframework.yarn.support.console.Table;
+import org.springframework.yarn.support.console.TableHeader;
+
+/**
+ * Spring Boot client application executing a batch of container cluster
+ * operations within a single application context.
+ * <p>
+ * Yarn client, rest template and resolved appmaster tracking urls are
+ * shared by all operations and a context is kept warm within a
+ * {@link ClientDaemon}. Operations touching different clusters are
+ * executed concurrently while operations for a same cluster are executed
+ * in order they were given. If operation fails, remaining operations
+ * for a same cluster are skipped.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@Configuration
+@EnableAutoConfiguration(exclude = { EmbeddedServletContainerAutoConfiguration.class, WebMvcAutoConfiguration.class,
+		JmxAutoConfiguration.class, BatchAutoConfiguration.class, EndpointMBeanExportAutoConfiguration.class,
+		EndpointAutoConfiguration.class })
+public class YarnBatchApplication extends AbstractClientApplication<YarnBatchApplication.BatchReport, YarnBatchApplication> {
+
+	private List<BatchOperation> operations = new ArrayList<BatchOperation>();
+	private int parallelism = 4;
+
+	/**
+	 * Sets operations to execute.
+	 *
+	 * @param operations the batch operations
+	 * @return the {@link YarnBatchApplication} for chaining
+	 */
+	public YarnBatchApplication operations(List<BatchOperation> operations) {
+		Assert.notNull(operations, "Operations must be set");
+		this.operations = operations;
+		return this;
+	}
+
+	/**
+	 * Sets maximum number of operations executed concurrently.
+	 * Defaults to {@code 4}.
+	 *
+	 * @param parallelism the parallelism
+	 * @return the {@link YarnBatchApplication} for chaining
+	 */
+	public YarnBatchApplication parallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than zero");
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	@Override
+	public BatchReport run(String... args) {
+		SpringApplicationBuilder builder = new SpringApplicationBuilder();
+		builder.web(false);
+		builder.sources(YarnBatchApplication.class);
+		SpringYarnBootUtils.addSources(builder, sources.toArray(new Object[0]));
+		SpringYarnBootUtils.addProfiles(builder, profiles.toArray(new String[0]));
+		SpringYarnBootUtils.addApplicationListener(builder, appProperties);
+
+		String key = YarnBatchApplication.class.getName() + sources + profiles + appProperties;
+		return WarmApplicationContexts.execute(builder, key, new SpringApplicationCallback<BatchReport>() {
+
+			@Override
+			public BatchReport runWithSpringApplication(ApplicationContext context) throws Exception {
+				YarnClient yarnClient = context.getBean(YarnClient.class);
+				RestTemplate restTemplate = context.getBean("yarnRestTemplate", RestTemplate.class);
+				return execute(new ClusterOperationsResolver(yarnClient, restTemplate));
+			}
+
+		}, args);
+	}
+
+	private BatchReport execute(final ClusterOperationsResolver resolver) throws Exception {
+		Map<String, List<BatchOperation>> groups = new LinkedHashMap<String, List<BatchOperation>>();
+		for (BatchOperation operation : operations) {
+			List<BatchOperation> group = groups.get(operation.getKey());
+			if (group == null) {
+				group = new ArrayList<BatchOperation>();
+				groups.put(operation.getKey(), group);
+			}
+			group.add(operation);
+		}
+
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(groups.size(), 1)));
+		List<BatchResult> results = new ArrayList<BatchResult>();
+		try {
+			List<Future<List<BatchResult>>> futures = new ArrayList<Future<List<BatchResult>>>();
+			for (final List<BatchOperation> group : groups.values()) {
+				futures.add(executor.submit(new Callable<List<BatchResult>>() {
+
+					@Override
+					public List<BatchResult> call() throws Exception {
+						return executeGroup(group, resolver);
+					}
+				}));
+			}
+			for (Future<List<BatchResult>> future : futures) {
+				results.addAll(future.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		Collections.sort(results, new Comparator<BatchResult>() {
+
+			@Override
+			public int compare(BatchResult left, BatchResult right) {
+				return Integer.compare(left.getOperation().getLine(), right.getOperation().getLine());
+			}
+		});
+		return new BatchReport(results, (System.nanoTime() - start) / 1000000);
+	}
+
+	private List<BatchResult> executeGroup(List<BatchOperation> group, ClusterOperationsResolver resolver) {
+		List<BatchResult> results = new ArrayList<BatchResult>();
+		boolean failed = false;
+		for (BatchOperation operation : group) {
+			if (failed) {
+				results.add(new BatchResult(operation, BatchStatus.SKIPPED, "Previous operation failed", 0));
+				continue;
+			}
+			long start = System.nanoTime();
+			try {
+				String message = operation.execute(resolver.resolve(operation.getApplicationId()));
+				results.add(new BatchResult(operation, BatchStatus.OK, message, (System.nanoTime() - start) / 1000000));
+			}
+			catch (Exception e) {
+				failed = true;
+				results.add(new BatchResult(operation, BatchStatus.FAILED, e.getMessage(),
+						(System.nanoTime() - start) / 1000000));
+			}
+		}
+		return results;
+	}
+
+	@Override
+	protected YarnBatchApplication getThis() {
+		return this;
+	}
+
+	/**
+	 * Resolves and caches {@link YarnContainerClusterOperations} per yarn
+	 * application so that appmaster tracking url is queried only once.
+	 */
+	private static class ClusterOperationsResolver {
+
+		private final YarnClient yarnClient;
+		private final RestTemplate restTemplate;
+		private final Map<String, YarnContainerClusterOperations> operations = new HashMap<String, YarnContainerClusterOperations>();
+
+		ClusterOperationsResolver(YarnClient yarnClient, RestTemplate restTemplate) {
+			this.yarnClient = yarnClient;
+			this.restTemplate = restTemplate;
+		}
+
+		synchronized YarnContainerClusterOperations resolve(String applicationId) {
+			YarnContainerClusterOperations clusterOperations = operations.get(applicationId);
+			if (clusterOperations == null) {
+				ApplicationReport report = yarnClient.getApplicationReport(ConverterUtils.toApplicationId(applicationId));
+				clusterOperations = new YarnContainerClusterTemplate(
+						report.getOriginalTrackingUrl() + "/" + YarnContainerClusterEndpoint.ENDPOINT_ID, restTemplate);
+				operations.put(applicationId, clusterOperations);
+			}
+			return clusterOperations;
+		}
+	}
+
+	/**
+	 * Status of an executed batch operation.
+	 */
+	public enum BatchStatus {
+		OK, FAILED, SKIPPED
+	}
+
+	/**
+	 * Result of a single batch operation.
+	 */
+	public static class BatchResult {
+
+		private final BatchOperation operation;
+		private final BatchStatus status;
+		private final String message;
+		private final long elapsed;
+
+		/**
+		 * Instantiates a new batch result.
+		 *
+		 * @param operation the batch operation
+		 * @param status the result status
+		 * @param message the result message
+		 * @param elapsed the elapsed time in milliseconds
+		 */
+		public BatchResult(BatchOperation operation, BatchStatus status, String message, long elapsed) {
+			this.operation = operation;
+			this.status = status;
+			this.message = message;
+			this.elapsed = elapsed;
+		}
+
+		/**
+		 * Gets the batch operation.
+		 *
+		 * @return the batch operation
+		 */
+		public BatchOperation getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Gets the result status.
+		 *
+		 * @return the result status
+		 */
+		public BatchStatus getStatus() {
+			return status;
+		}
+
+		/**
+		 * Gets the result message.
+		 *
+		 * @return the result message
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * Gets the elapsed time in milliseconds.
+		 *
+		 * @return the elapsed time
+		 */
+		public long getElapsed() {
+			return elapsed;
+		}
+	}
+
+	/**
+	 * Report of all executed batch operations rendered as a table.
+	 */
+	public static class BatchReport {
+
+		private final List<BatchResult> results;
+		private final long elapsed;
+
+		/**
+		 * Instantiates a new batch report.
+		 *
+		 * @param results the batch results
+		 * @param elapsed the total elapsed time in milliseconds
+		 */
+		public BatchReport(List<BatchResult> results, long elapsed) {
+			this.results = results;
+			this.elapsed = elapsed;
+		}
+
+		/**
+		 * Gets the batch results.
+		 *
+		 * @return the batch results
+		 */
+		public List<BatchResult> getResults() {
+			return results;
+		}
+
+		/**
+		 * Checks if any of the operations failed.
+		 *
+		 * @return true, if some operation failed
+		 */
+		public boolean hasFailures() {
+			for (BatchResult result : results) {
+				if (result.getStatus() != BatchStatus.OK) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			Table table = new Table();
+			table.addHeader(1, new TableHeader("LINE"));
+			table.addHeader(2, new TableHeader("OPERATION"));
+			table.addHeader(3, new TableHeader("APPLICATION"));
+			table.addHeader(4, new TableHeader("CLUSTER"));
+			table.addHeader(5, new TableHeader("STATUS"));
+			table.addHeader(6, new TableHeader("TIME(ms)"));
+			table.addHeader(7, new TableHeader("MESSAGE"));
+			int failed = 0;
+			for (BatchResult result : results) {
+				BatchOperation operation = result.getOperation();
+				table.newRow()
+					.addValue(1, Integer.toString(operation.getLine()))
+					.addValue(2, operation.getType().getName())
+					.addValue(3, operation.getApplicationId())
+					.addValue(4, operation.getClusterId() != null ? operation.getClusterId() : "")
+					.addValue(5, result.getStatus().toString())
+					.addValue(6, Long.toString(result.getElapsed()))
+					.addValue(7, result.getMessage() != null ? result.getMessage() : "");
+				if (result.getStatus() != BatchStatus.OK) {
+					failed++;
+				}
+			}
+			return table.toString() + "\n" + results.size() + " operations in " + elapsed + " ms, " + failed
+					+ " not succeeded";
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+import org.springframework.cloud.dataflow.yarn.client.YarnBatchApplication.BatchReport;
+import org.springframework.yarn.boot.cli.AbstractApplicationCommand;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Command executing container cluster operations read from a file
+ * within a single {@link YarnBatchApplication}.
+ *
+ * @author Janne Valkealahti
+ * @see BatchOperation
+ *
+ */
+public class YarnBatchCommand extends AbstractApplicationCommand {
+
+	public final static String DEFAULT_COMMAND = "batch";
+
+	public final static String DEFAULT_DESC = "Run cluster operations from a file";
+
+	/**
+	 * Instantiates a new yarn batch command using a default
+	 * command name, command description and option handler.
+	 */
+	public YarnBatchCommand() {
+		super(DEFAULT_COMMAND, DEFAULT_DESC, new BatchOptionHandler());
+	}
+
+	public static class BatchOptionHandler extends ApplicationOptionHandler<BatchReport> {
+
+		public final static List<String> OPTIONS_FILE = asList("file", "f");
+		public final static String DESC_FILE = "File containing operations, one per line";
+		public final static List<String> OPTIONS_APPLICATION_ID = asList("application-id", "a");
+		public final static String DESC_APPLICATION_ID = "Default application id for operations not defining one";
+		public final static List<String> OPTIONS_PARALLELISM = asList("parallelism");
+		public final static String DESC_PARALLELISM = "Maximum number of operations executed concurrently";
+		private OptionSpec<File> fileOption;
+		private OptionSpec<String> applicationIdOption;
+		private OptionSpec<Integer> parallelismOption;
+
+		@Override
+		protected final void options() {
+			this.fileOption = option(OPTIONS_FILE, DESC_FILE).withRequiredArg().ofType(File.class);
+			this.applicationIdOption = option(OPTIONS_APPLICATION_ID, DESC_APPLICATION_ID).withRequiredArg();
+			this.parallelismOption = option(OPTIONS_PARALLELISM, DESC_PARALLELISM).withRequiredArg()
+					.ofType(Integer.class).defaultsTo(4);
+		}
+
+		@Override
+		protected void runApplication(OptionSet options) throws Exception {
+			File file = options.valueOf(fileOption);
+			if (file == null || !file.isFile()) {
+				throw new IllegalArgumentException("Batch file must be given with --file");
+			}
+			List<BatchOperation> operations;
+			Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+			try {
+				operations = BatchOperation.parse(reader, options.valueOf(applicationIdOption));
+			}
+			finally {
+				reader.close();
+			}
+			if (operations.isEmpty()) {
+				handleOutput("No operations found from " + file);
+				return;
+			}
+			YarnBatchApplication app = new YarnBatchApplication();
+			app.operations(operations);
+			app.parallelism(options.valueOf(parallelismOption));
+			BatchReport report = app.run();
+			handleOutput(report.toString());
+			if (report.hasFailures()) {
+				throw new IllegalStateException("Some of the operations failed");
+			}
+		}
+	}
+}
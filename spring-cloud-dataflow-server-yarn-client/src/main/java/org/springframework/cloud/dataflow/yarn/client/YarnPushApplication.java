@@ -16,9 +16,18 @@
 
 package org.springframework.cloud.dataflow.yarn.client;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.actuate.autoconfigure.EndpointAutoConfiguration;
@@ -29,6 +38,7 @@ import org.springframework.boot.autoconfigure.jmx.JmxAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.EmbeddedServletContainerAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.WebMvcAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.dataflow.yarn.client.IncrementalPushFileSystem.PushStatistics;
 import org.springframework.cloud.deployer.spi.yarn.DefaultYarnCloudAppService;
 import org.springframework.cloud.deployer.spi.yarn.YarnCloudAppService.CloudAppType;
 import org.springframework.context.ApplicationContext;
@@ -37,9 +47,10 @@ import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.yarn.boot.SpringApplicationCallback;
 import org.springframework.yarn.boot.SpringApplicationException;
-import org.springframework.yarn.boot.SpringApplicationTemplate;
 import org.springframework.yarn.boot.app.AbstractClientApplication;
 import org.springframework.yarn.boot.support.SpringYarnBootUtils;
+import org.springframework.yarn.support.console.Table;
+import org.springframework.yarn.support.console.TableHeader;
 
 /**
  * Generic Spring Boot client application used to push Spring Yarn Boot based apps into hdfs.
@@ -47,6 +58,15 @@ import org.springframework.yarn.boot.support.SpringYarnBootUtils;
  * Pushed application bundle is merely a collection of files inside a directory. All files
  * in this directory is considered to belong to the bundle and directory should not have any
  * other files or nested directories.
+ * <p>
+ * On default push is incremental meaning that files whose content already
+ * exists in hdfs are not uploaded again, see {@link IncrementalPushFileSystem}.
+ * <p>
+ * Several cloud app types and application versions can be pushed with a
+ * single run in which case every combination of type and version is
+ * pushed concurrently. Types of a version share an application context
+ * having application directory and version of that version, which is
+ * kept warm within a {@link ClientDaemon}.
  *
  * @author Janne Valkealahti
  *
@@ -58,7 +78,10 @@ import org.springframework.yarn.boot.support.SpringYarnBootUtils;
 public class YarnPushApplication extends AbstractClientApplication<String, YarnPushApplication> {
 
 	private Map<String, Properties> configFilesContents = new HashMap<String, Properties>();
-	private CloudAppType cloudAppType;
+	private List<CloudAppType> cloudAppTypes = new ArrayList<CloudAppType>();
+	private List<String> applicationVersions = new ArrayList<String>();
+	private boolean incremental = true;
+	private int parallelism = 4;
 
 	/**
 	 * Associates a new {@link CloudAppType} into this application.
@@ -68,7 +91,54 @@ public class YarnPushApplication extends AbstractClientApplication<String, YarnP
 	 */
 	public YarnPushApplication cloudAppType(CloudAppType cloudAppType) {
 		Assert.notNull(cloudAppType, "Cloud app type must be set");
-		this.cloudAppType = cloudAppType;
+		return cloudAppTypes(cloudAppType);
+	}
+
+	/**
+	 * Associates new {@link CloudAppType}s into this application.
+	 *
+	 * @param cloudAppTypes the cloud app types
+	 * @return the {@link YarnPushApplication} for chaining
+	 */
+	public YarnPushApplication cloudAppTypes(CloudAppType... cloudAppTypes) {
+		Assert.notEmpty(cloudAppTypes, "Cloud app types must be set");
+		this.cloudAppTypes = new ArrayList<CloudAppType>(Arrays.asList(cloudAppTypes));
+		return this;
+	}
+
+	/**
+	 * Sets application versions to push. If not set, version set
+	 * by {@link #applicationVersion(String)} is pushed.
+	 *
+	 * @param applicationVersions the application versions
+	 * @return the {@link YarnPushApplication} for chaining
+	 */
+	public YarnPushApplication applicationVersions(String... applicationVersions) {
+		this.applicationVersions = new ArrayList<String>(Arrays.asList(applicationVersions));
+		return this;
+	}
+
+	/**
+	 * Sets maximum number of concurrent pushes. Defaults to {@code 4}.
+	 *
+	 * @param parallelism the parallelism
+	 * @return the {@link YarnPushApplication} for chaining
+	 */
+	public YarnPushApplication parallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than zero");
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Sets whether push should upload only files which are changed.
+	 * Defaults to {@code true}.
+	 *
+	 * @param incremental the incremental flag
+	 * @return the {@link YarnPushApplication} for chaining
+	 */
+	public YarnPushApplication incremental(boolean incremental) {
+		this.incremental = incremental;
 		return this;
 	}
 
@@ -101,48 +171,194 @@ public class YarnPushApplication extends AbstractClientApplication<String, YarnP
 	 *
 	 * @param args the Spring Application args
 	 */
-	public String run(String... args) {
-		if (!StringUtils.hasText(applicationVersion)) {
+	public String run(final String... args) {
+		List<String> versions = applicationVersions.isEmpty() && StringUtils.hasText(applicationVersion)
+				? Arrays.asList(applicationVersion) : applicationVersions;
+		if (versions.isEmpty()) {
 			throw new SpringApplicationException("Error executing a spring application", new IllegalArgumentException(
 					"Instance id must be set"));
 		}
-		if (cloudAppType == null) {
+		if (cloudAppTypes.isEmpty()) {
 			throw new SpringApplicationException("Error executing a spring application", new IllegalArgumentException(
 					"cloudAppType must be set"));
 		}
-		
+
+		List<PushResult> results = new ArrayList<PushResult>();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		final Semaphore permits = new Semaphore(parallelism);
+		for (final String version : versions) {
+			final List<PushResult> versionResults = new ArrayList<PushResult>();
+			for (CloudAppType type : cloudAppTypes) {
+				versionResults.add(new PushResult(version, type));
+			}
+			results.addAll(versionResults);
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					pushVersion(version, versionResults, permits, args);
+					return null;
+				}
+			});
+		}
+		try {
+			executeAll(tasks);
+		}
+		catch (SpringApplicationException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new SpringApplicationException("Error executing a spring application", e);
+		}
+		if (results.size() == 1) {
+			return results.get(0).getSummary();
+		}
+
+		Table table = new Table();
+		table.addHeader(1, new TableHeader("TYPE"));
+		table.addHeader(2, new TableHeader("VERSION"));
+		table.addHeader(3, new TableHeader("TIME(ms)"));
+		table.addHeader(4, new TableHeader("FILES"));
+		for (PushResult result : results) {
+			table.newRow()
+				.addValue(1, result.type.toString())
+				.addValue(2, result.version)
+				.addValue(3, Long.toString(result.elapsed))
+				.addValue(4, incremental ? result.statistics.toString() : "Uploaded all files");
+		}
+		return table.toString();
+	}
+
+	/**
+	 * Pushes all types of a version within an application context having
+	 * application directory and version of a given version.
+	 */
+	private void pushVersion(String version, final List<PushResult> results, final Semaphore permits,
+			String... args) {
 		SpringApplicationBuilder builder = new SpringApplicationBuilder();
 		builder.web(false);
 		builder.sources(YarnPushApplication.class);
 		SpringYarnBootUtils.addSources(builder, sources.toArray(new Object[0]));
 		SpringYarnBootUtils.addProfiles(builder, profiles.toArray(new String[0]));
 		SpringYarnBootUtils.addConfigFilesContents(builder, configFilesContents);
+		Properties versionProperties = new Properties();
+		versionProperties.putAll(appProperties);
 		if (StringUtils.hasText(applicationBaseDir)) {
-			appProperties.setProperty("spring.yarn.applicationDir", applicationBaseDir + applicationVersion + "/");
+			versionProperties.setProperty("spring.yarn.applicationDir", applicationBaseDir + version + "/");
 		}
-		appProperties.setProperty("spring.yarn.applicationVersion", applicationVersion);
+		versionProperties.setProperty("spring.yarn.applicationVersion", version);
 
-		SpringYarnBootUtils.addApplicationListener(builder, appProperties);
+		SpringYarnBootUtils.addApplicationListener(builder, versionProperties);
 
-		SpringApplicationTemplate template = new SpringApplicationTemplate(builder);
-		return template.execute(new SpringApplicationCallback<String>() {
+		String key = YarnPushApplication.class.getName() + sources + profiles + configFilesContents
+				+ versionProperties;
+		WarmApplicationContexts.execute(builder, key, new SpringApplicationCallback<Void>() {
 
 			@Override
-			public String runWithSpringApplication(ApplicationContext context) throws Exception {
-				String deployerVersion = context.getEnvironment().getRequiredProperty("spring.cloud.deployer.yarn.version");
-				org.apache.hadoop.conf.Configuration configuration = context.getBean(org.apache.hadoop.conf.Configuration.class);
-				DefaultYarnCloudAppService defaultYarnCloudAppService = new DefaultYarnCloudAppService(deployerVersion);
-				defaultYarnCloudAppService.setConfiguration(configuration);
-				defaultYarnCloudAppService.pushApplication(applicationVersion, cloudAppType);
+			public Void runWithSpringApplication(ApplicationContext context) throws Exception {
+				final String deployerVersion = context.getEnvironment()
+						.getRequiredProperty("spring.cloud.deployer.yarn.version");
+				final org.apache.hadoop.conf.Configuration configuration = context
+						.getBean(org.apache.hadoop.conf.Configuration.class);
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for (final PushResult result : results) {
+					tasks.add(new Callable<Void>() {
+
+						@Override
+						public Void call() throws Exception {
+							permits.acquire();
+							try {
+								push(result, deployerVersion, configuration);
+							}
+							finally {
+								permits.release();
+							}
+							return null;
+						}
+					});
+				}
+				executeAll(tasks);
 				return null;
 			}
 
 		}, args);
 	}
 
+	/**
+	 * Executes tasks concurrently and throws a first failure after all
+	 * tasks are done.
+	 */
+	private void executeAll(List<Callable<Void>> tasks) throws Exception {
+		if (tasks.size() == 1) {
+			tasks.get(0).call();
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (Callable<Void> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			Exception error = null;
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException e) {
+					if (error == null) {
+						error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void push(PushResult result, String deployerVersion,
+			org.apache.hadoop.conf.Configuration configuration) throws Exception {
+		long start = System.nanoTime();
+		if (incremental) {
+			configuration = IncrementalPushFileSystem.configure(configuration, result.statistics);
+		}
+		try {
+			DefaultYarnCloudAppService defaultYarnCloudAppService = new DefaultYarnCloudAppService(deployerVersion);
+			defaultYarnCloudAppService.setConfiguration(configuration);
+			defaultYarnCloudAppService.pushApplication(result.version, result.type);
+		}
+		finally {
+			IncrementalPushFileSystem.release(configuration);
+		}
+		result.elapsed = (System.nanoTime() - start) / 1000000;
+	}
+
 	@Override
 	protected YarnPushApplication getThis() {
 		return this;
 	}
 
+	/**
+	 * Result of a push of a single cloud app type and version.
+	 */
+	private class PushResult {
+
+		private final String version;
+		private final CloudAppType type;
+		private final PushStatistics statistics = new PushStatistics();
+		private long elapsed;
+
+		PushResult(String version, CloudAppType type) {
+			this.version = version;
+			this.type = type;
+		}
+
+		String getSummary() {
+			return incremental ? statistics.toString() : null;
+		}
+	}
+
 }
@@ -17,7 +17,6 @@
 package org.springframework.cloud.dataflow.yarn.client;
 
 import java.util.List;
-import java.util.Properties;
 
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
@@ -73,35 +72,49 @@ public class YarnPushCommand extends AbstractApplicationCommand {
 	public static class PushOptionHandler extends ApplicationOptionHandler<String> {
 
 		public final static List<String> OPTIONS_CLOUD_APP_TYPE  = asList("cloud-app-type", "t");
-		public final static String DESC_CLOUD_APP_TYPE  = "Cloud App Type (STREAM|TASK)";
+		public final static String DESC_CLOUD_APP_TYPE  = "Cloud App Types separated by comma (STREAM|TASK)";
+		public final static List<String> OPTIONS_FULL  = asList("full");
+		public final static String DESC_FULL  = "Upload all files even if unchanged";
+		public final static List<String> OPTIONS_PARALLELISM  = asList("parallelism");
+		public final static String DESC_PARALLELISM  = "Maximum number of concurrent pushes";
 		private OptionSpec<CloudAppType> cloudAppTypeOption;
 		private OptionSpec<String> applicationVersionOption;
+		private OptionSpec<Void> fullOption;
+		private OptionSpec<Integer> parallelismOption;
 
 		@Override
 		protected final void options() {
 			this.cloudAppTypeOption = option(OPTIONS_CLOUD_APP_TYPE, DESC_CLOUD_APP_TYPE).withRequiredArg()
-					.ofType(CloudAppType.class);
+					.ofType(CloudAppType.class).withValuesSeparatedBy(',');
 			this.applicationVersionOption = option(CliSystemConstants.OPTIONS_APPLICATION_VERSION,
-					CliSystemConstants.DESC_APPLICATION_VERSION).withOptionalArg().defaultsTo("app");
+					CliSystemConstants.DESC_APPLICATION_VERSION).withOptionalArg().withValuesSeparatedBy(',')
+					.defaultsTo("app");
+			this.fullOption = option(OPTIONS_FULL, DESC_FULL);
+			this.parallelismOption = option(OPTIONS_PARALLELISM, DESC_PARALLELISM).withRequiredArg()
+					.ofType(Integer.class).defaultsTo(4);
 		}
 
 		@Override
 		protected void runApplication(OptionSet options) throws Exception {
-			String appVersion = options.valueOf(applicationVersionOption);
-			CloudAppType cloudAppType = options.valueOf(cloudAppTypeOption);
+			List<String> appVersions = options.valuesOf(applicationVersionOption);
+			List<CloudAppType> cloudAppTypes = options.valuesOf(cloudAppTypeOption);
 			YarnPushApplication app = new YarnPushApplication();
-			app.applicationVersion(appVersion);
-			app.cloudAppType(cloudAppType);
-			Properties instanceProperties = new Properties();
-			instanceProperties.setProperty("spring.yarn.applicationVersion", appVersion);
-			app.configFile("application.properties", instanceProperties);
+			app.applicationVersion(appVersions.get(0));
+			app.applicationVersions(appVersions.toArray(new String[0]));
+			app.cloudAppTypes(cloudAppTypes.toArray(new CloudAppType[0]));
+			app.incremental(!options.has(fullOption));
+			app.parallelism(options.valueOf(parallelismOption));
+			// application version is set by an application for every pushed version
 			handleApplicationRun(app);
 		}
 
 		@Override
 		protected void handleApplicationRun(ClientApplicationRunner<String> app) {
-			app.run();
+			String summary = app.run();
 			handleOutput("New version installed");
+			if (summary != null) {
+				handleOutput(summary);
+			}
 		}
 	}
 }
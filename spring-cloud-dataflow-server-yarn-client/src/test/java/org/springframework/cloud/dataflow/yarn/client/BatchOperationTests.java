@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.dataflow.yarn.client.BatchOperation.Type;
+import org.springframework.yarn.boot.actuate.endpoint.mvc.ContainerClusterCreateRequest;
+import org.springframework.yarn.boot.app.YarnContainerClusterOperations;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class BatchOperationTests {
+
+	private static final String APP = "application_1473924456009_0001";
+
+	@Test
+	public void testParse() throws IOException {
+		List<BatchOperation> operations = parse("# comment\n"
+				+ "\n"
+				+ "clustercreate -c foo -i module-template -p default -w 1\n"
+				+ "  CLUSTERSTART --cluster-id foo  \n"
+				+ "clustersinfo -a application_1473924456009_0002\n", APP);
+		assertThat(operations.size(), is(3));
+		assertOperation(operations.get(0), 3, Type.CLUSTERCREATE, APP, "foo");
+		assertOperation(operations.get(1), 4, Type.CLUSTERSTART, APP, "foo");
+		assertOperation(operations.get(2), 5, Type.CLUSTERSINFO, "application_1473924456009_0002", null);
+	}
+
+	@Test
+	public void testKeys() throws IOException {
+		List<BatchOperation> operations = parse("clusterstop -c foo\nclusterstop -c bar\nclusterstart -c foo\n"
+				+ "clustersinfo\nclustersinfo\n", APP);
+		assertThat(operations.get(0).getKey(), is(operations.get(2).getKey()));
+		assertThat(operations.get(0).getKey(), not(operations.get(1).getKey()));
+		assertThat(operations.get(3).getKey(), not(operations.get(4).getKey()));
+	}
+
+	@Test
+	public void testParseErrors() throws IOException {
+		assertParseError("clusterfoo -c foo", "Unknown operation 'clusterfoo' on line 1");
+		assertParseError("clusterstart", "Cluster id not set for operation on line 1");
+		assertParseError("clusterstart -c foo --unknown", "Invalid operation on line 1");
+		assertParseError("clustermodify -c foo --property bar", "Expected key=value but got 'bar' on line 1");
+		assertParseError("clustermodify -c foo --host host1=x", "Expected count for 'host1' on line 1");
+		try {
+			parse("clusterstart -c foo", null);
+			fail("Expected parse to fail");
+		}
+		catch (IllegalArgumentException e) {
+			assertThat(e.getMessage(), is("Application id not set for operation on line 1"));
+		}
+	}
+
+	@Test
+	public void testExecuteModify() throws IOException {
+		BatchOperation operation = parse(
+				"clustermodify -c foo -w 2 --host host1=1 --rack rack1=3 --property key=value", APP).get(0);
+		YarnContainerClusterOperations clusterOperations = mock(YarnContainerClusterOperations.class);
+		assertThat(operation.execute(clusterOperations), is("Cluster foo modified"));
+		ArgumentCaptor<ContainerClusterCreateRequest> captor = ArgumentCaptor
+				.forClass(ContainerClusterCreateRequest.class);
+		verify(clusterOperations).clusterModify(eq("foo"), captor.capture());
+		ContainerClusterCreateRequest request = captor.getValue();
+		assertThat(request.getClusterId(), is("foo"));
+		assertThat(request.getProjectionData().getAny(), is(2));
+		assertThat(request.getProjectionData().getHosts(), is(Collections.singletonMap("host1", 1)));
+		assertThat(request.getProjectionData().getRacks(), is(Collections.singletonMap("rack1", 3)));
+		assertThat(request.getExtraProperties(), is(Collections.<String, Object>singletonMap("key", "value")));
+	}
+
+	private static void assertOperation(BatchOperation operation, int line, Type type, String applicationId,
+			String clusterId) {
+		assertThat(operation.getLine(), is(line));
+		assertThat(operation.getType(), is(type));
+		assertThat(operation.getApplicationId(), is(applicationId));
+		if (clusterId == null) {
+			assertThat(operation.getClusterId(), is(nullValue()));
+		}
+		else {
+			assertThat(operation.getClusterId(), is(clusterId));
+		}
+	}
+
+	private static void assertParseError(String text, String message) throws IOException {
+		try {
+			parse(text, APP);
+			fail("Expected parse of '" + text + "' to fail");
+		}
+		catch (IllegalArgumentException e) {
+			assertThat(e.getMessage(), containsString(message));
+		}
+	}
+
+	private static List<BatchOperation> parse(String text, String defaultApplicationId) throws IOException {
+		return BatchOperation.parse(new StringReader(text), defaultApplicationId);
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.boot.cli.command.Command;
+import org.springframework.boot.cli.command.options.OptionHelp;
+import org.springframework.boot.cli.command.status.ExitStatus;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ClientDaemonTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File stateFile;
+	private ClientDaemonClient client;
+	private Thread daemon;
+	private ByteArrayOutputStream out;
+
+	@Before
+	public void setup() throws Exception {
+		stateFile = new File(folder.getRoot(), "state/cli-daemon");
+		client = new ClientDaemonClient(stateFile);
+		out = new ByteArrayOutputStream();
+		final ClientDaemon clientDaemon = new ClientDaemon(Arrays.<Command>asList(new EchoCommand()), stateFile, 0);
+		daemon = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					clientDaemon.run();
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		daemon.setDaemon(true);
+		daemon.start();
+		long timeout = System.currentTimeMillis() + 10000;
+		while (!client.isRunning() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertThat(client.isRunning(), is(true));
+	}
+
+	@After
+	public void clean() throws InterruptedException {
+		client.execute(new PrintStream(new ByteArrayOutputStream()), ClientDaemon.STOP);
+		daemon.join(10000);
+	}
+
+	@Test
+	public void testExecute() {
+		assertThat(client.execute(new PrintStream(out), "echo", "hello", "world"), is(0));
+		assertThat(out.toString(), is("hello world\n"));
+		assertThat(client.execute(new PrintStream(out), "echo", "fail"), is(ExitStatus.ERROR.getCode()));
+	}
+
+	@Test
+	public void testUnknownCommandNotRouted() {
+		assertThat(client.execute(new PrintStream(out), "unknown"), is(nullValue()));
+		assertThat(out.toString(), is(""));
+	}
+
+	@Test
+	public void testDifferentDirectoryNotRouted() {
+		Map<String, String> context = ClientDaemon.currentContext();
+		context.put("user.dir", new File(folder.getRoot(), "other").getAbsolutePath());
+		assertThat(client.execute(new PrintStream(out), context, "echo", "hello"), is(nullValue()));
+		context = ClientDaemon.currentContext();
+		context.put("env.SPRING_PROFILES_ACTIVE", "other");
+		assertThat(client.execute(new PrintStream(out), context, "echo", "hello"), is(nullValue()));
+		assertThat(out.toString(), is(""));
+	}
+
+	@Test
+	public void testSystemPropertiesApplied() {
+		Map<String, String> context = ClientDaemon.currentContext();
+		context.put("spring.config.location", "file:/other/servers.yml");
+		assertThat(client.execute(new PrintStream(out), context, "echo", "property", "spring.config.location"), is(0));
+		assertThat(out.toString(), is("file:/other/servers.yml\n"));
+		assertThat(System.getProperty("spring.config.location"), is(nullValue()));
+	}
+
+	@Test
+	public void testConcurrentClientRejected() throws Exception {
+		final ByteArrayOutputStream first = new ByteArrayOutputStream();
+		final Integer[] code = new Integer[1];
+		Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				code[0] = client.execute(new PrintStream(first), "echo", "block");
+			}
+		};
+		thread.start();
+		assertThat(EchoCommand.STARTED.await(10, TimeUnit.SECONDS), is(true));
+		assertThat(client.isRunning(), is(true));
+		assertThat(client.execute(new PrintStream(out), "echo", "hello"), is(nullValue()));
+		EchoCommand.RELEASE.countDown();
+		thread.join(10000);
+		assertThat(code[0], is(0));
+		assertThat(first.toString(), is("block\n"));
+		assertThat(client.execute(new PrintStream(out), "echo", "hello"), is(0));
+	}
+
+	@Test
+	public void testRoutingCommandFallsBackToLocal() throws Exception {
+		EchoCommand local = new EchoCommand();
+		DaemonRoutingCommand command = new DaemonRoutingCommand(local,
+				new ClientDaemonClient(new File(folder.getRoot(), "missing")));
+		PrintStream stdout = System.out;
+		System.setOut(new PrintStream(out));
+		try {
+			assertThat(command.run("hello"), is(ExitStatus.OK));
+		}
+		finally {
+			System.setOut(stdout);
+		}
+		assertThat(local.runs, is(1));
+		assertThat(out.toString(), is("hello\n"));
+	}
+
+	@Test
+	public void testStop() throws InterruptedException {
+		assertThat(client.execute(new PrintStream(out), ClientDaemon.STOP), is(0));
+		daemon.join(10000);
+		assertThat(client.isRunning(), is(false));
+		assertThat(stateFile.exists(), is(false));
+	}
+
+	private static class EchoCommand implements Command {
+
+		static final CountDownLatch STARTED = new CountDownLatch(1);
+		static final CountDownLatch RELEASE = new CountDownLatch(1);
+		int runs;
+
+		@Override
+		public String getName() {
+			return "echo";
+		}
+
+		@Override
+		public String getDescription() {
+			return "Echo arguments";
+		}
+
+		@Override
+		public String getUsageHelp() {
+			return null;
+		}
+
+		@Override
+		public String getHelp() {
+			return null;
+		}
+
+		@Override
+		public Collection<OptionHelp> getOptionsHelp() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public ExitStatus run(String... args) throws Exception {
+			runs++;
+			if (args.length == 1 && args[0].equals("fail")) {
+				throw new IllegalArgumentException("failed");
+			}
+			if (args.length == 1 && args[0].equals("block")) {
+				STARTED.countDown();
+				RELEASE.await(10, TimeUnit.SECONDS);
+			}
+			if (args.length == 2 && args[0].equals("property")) {
+				System.out.println(System.getProperty(args[1]));
+				return ExitStatus.OK;
+			}
+			StringBuilder buf = new StringBuilder();
+			for (String arg : args) {
+				buf.append(buf.length() > 0 ? " " : "").append(arg);
+			}
+			System.out.println(buf);
+			return ExitStatus.OK;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.fs.XAttrSetFlag;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.util.Progressable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.dataflow.yarn.client.IncrementalPushFileSystem.PushStatistics;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class IncrementalPushFileSystemTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PushStatistics statistics;
+	private Configuration base;
+	private Configuration configuration;
+
+	@Before
+	public void setup() throws IOException {
+		XAttrFileSystem.XATTRS.clear();
+		XAttrFileSystem.CLOSED.set(0);
+		base = new Configuration();
+		base.set("fs.defaultFS", XAttrFileSystem.NAME.toString());
+		base.setClass("fs." + XAttrFileSystem.NAME.getScheme() + ".impl", XAttrFileSystem.class, FileSystem.class);
+		statistics = new PushStatistics();
+		configuration = IncrementalPushFileSystem.configure(base, statistics);
+	}
+
+	@After
+	public void clean() {
+		IncrementalPushFileSystem.release(configuration);
+	}
+
+	@Test
+	public void testUnchangedFilesSkipped() throws IOException {
+		FileSystem fs = FileSystem.get(configuration);
+		assertThat(fs, instanceOf(IncrementalPushFileSystem.class));
+		Path path = path("app.jar");
+		write(fs, path, "content");
+		write(fs, path, "content");
+		assertThat(statistics.getUploadedFiles(), is(1));
+		assertThat(statistics.getSkippedFiles(), is(1));
+
+		write(fs, path, "changed content");
+		assertThat(statistics.getUploadedFiles(), is(2));
+		assertThat(read(path), is("changed content"));
+		assertThat(statistics.toString(),
+				is("Uploaded 2 files (22 bytes), skipped 1 unchanged files (7 bytes)"));
+	}
+
+	@Test
+	public void testChangedPrefixKeptFromExistingFile() throws IOException {
+		FileSystem fs = FileSystem.get(configuration);
+		Path path = path("app.jar");
+		write(fs, path, "content");
+		write(fs, path, "con", "tent", " changed");
+		assertThat(statistics.getUploadedFiles(), is(2));
+		assertThat(read(path), is("content changed"));
+		assertThat(new File(folder.getRoot(), ".app.jar.pushing").exists(), is(false));
+
+		write(fs, path, "content", " changed");
+		assertThat(statistics.getSkippedFiles(), is(1));
+		write(fs, path, "content");
+		assertThat(statistics.getUploadedFiles(), is(3));
+		assertThat(read(path), is("content"));
+	}
+
+	@Test
+	public void testFilesReusedFromOtherVersion() throws IOException {
+		FileSystem fs = FileSystem.get(configuration);
+		write(fs, path("app/1.0/app.jar"), "content");
+		write(fs, path("app/1.0/lib.jar"), "library");
+		IncrementalPushFileSystem.release(configuration);
+
+		PushStatistics next = new PushStatistics();
+		configuration = IncrementalPushFileSystem.configure(base, next);
+		fs = FileSystem.get(configuration);
+		write(fs, path("app/2.0/app.jar"), "content");
+		write(fs, path("app/2.0/lib.jar"), "lib", "rary changed");
+		write(fs, path("app/2.0/new.jar"), "new");
+		assertThat(next.getSkippedFiles(), is(1));
+		assertThat(next.getUploadedFiles(), is(2));
+		assertThat(read(path("app/2.0/app.jar")), is("content"));
+		assertThat(read(path("app/2.0/lib.jar")), is("library changed"));
+		assertThat(read(path("app/1.0/lib.jar")), is("library"));
+
+		// copied file has a digest for next push
+		write(fs, path("app/2.0/app.jar"), "content");
+		assertThat(next.getSkippedFiles(), is(2));
+		assertThat(next.getUploadedFiles(), is(2));
+	}
+
+	@Test
+	public void testFileWrittenOutsidePushUploaded() throws IOException {
+		FileSystem fs = FileSystem.get(configuration);
+		Path path = path("app.jar");
+		write(fs, path, "content");
+		// hdfs drops extended attributes of a file re-created outside a push
+		Files.write(new File(path.toUri().getPath()).toPath(), "other".getBytes(StandardCharsets.UTF_8));
+		XAttrFileSystem.XATTRS.clear();
+		write(fs, path, "content");
+		assertThat(statistics.getUploadedFiles(), is(2));
+		assertThat(read(path), is("content"));
+	}
+
+	@Test
+	public void testWithoutXAttrsAlwaysUploaded() throws IOException {
+		Configuration local = IncrementalPushFileSystem.configure(new Configuration(), statistics);
+		try {
+			FileSystem fs = FileSystem.get(local);
+			Path path = new Path(new File(folder.getRoot(), "app.jar").toURI());
+			write(fs, path, "content");
+			write(fs, path, "content");
+			assertThat(statistics.getUploadedFiles(), is(2));
+			assertThat(statistics.getSkippedFiles(), is(0));
+		}
+		finally {
+			IncrementalPushFileSystem.release(local);
+		}
+	}
+
+	@Test
+	public void testReleaseClosesFileSystems() throws IOException {
+		FileSystem first = FileSystem.get(configuration);
+		FileSystem second = FileSystem.get(configuration);
+		assertThat(second, not(sameInstance(first)));
+		IncrementalPushFileSystem.release(configuration);
+		assertThat(XAttrFileSystem.CLOSED.get(), is(2));
+		IncrementalPushFileSystem.release(configuration);
+		assertThat(XAttrFileSystem.CLOSED.get(), is(2));
+	}
+
+	@Test
+	public void testClosedFileSystemNotClosedAgain() throws IOException {
+		FileSystem fs = FileSystem.get(configuration);
+		fs.close();
+		fs.close();
+		assertThat(XAttrFileSystem.CLOSED.get(), is(1));
+		IncrementalPushFileSystem.release(configuration);
+		assertThat(XAttrFileSystem.CLOSED.get(), is(1));
+	}
+
+	private Path path(String name) {
+		return new Path(XAttrFileSystem.NAME.getScheme(), null, new File(folder.getRoot(), name).getAbsolutePath());
+	}
+
+	private static void write(FileSystem fs, Path path, String... chunks) throws IOException {
+		OutputStream out = fs.create(path, true);
+		try {
+			for (String chunk : chunks) {
+				out.write(chunk.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(new File(path.toUri().getPath()).toPath()), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Local file system keeping extended attributes in memory.
+	 */
+	public static class XAttrFileSystem extends RawLocalFileSystem {
+
+		static final URI NAME = URI.create("xattrfs:///");
+		static final ConcurrentMap<String, Map<String, byte[]>> XATTRS = new ConcurrentHashMap<String, Map<String, byte[]>>();
+		static final AtomicInteger CLOSED = new AtomicInteger();
+
+		@Override
+		public URI getUri() {
+			return NAME;
+		}
+
+		@Override
+		public FSDataOutputStream create(Path f, FsPermission permission, boolean overwrite, int bufferSize,
+				short replication, long blockSize, Progressable progress) throws IOException {
+			XATTRS.remove(key(f));
+			return super.create(f, permission, overwrite, bufferSize, replication, blockSize, progress);
+		}
+
+		@Override
+		public void setXAttr(Path path, String name, byte[] value, EnumSet<XAttrSetFlag> flag) throws IOException {
+			Map<String, byte[]> xattrs = new HashMap<String, byte[]>();
+			Map<String, byte[]> existing = XATTRS.putIfAbsent(key(path), xattrs);
+			(existing != null ? existing : xattrs).put(name, value);
+		}
+
+		@Override
+		public Map<String, byte[]> getXAttrs(Path path) throws IOException {
+			Map<String, byte[]> xattrs = XATTRS.get(key(path));
+			return xattrs != null ? xattrs : new HashMap<String, byte[]>();
+		}
+
+		@Override
+		public void close() throws IOException {
+			CLOSED.incrementAndGet();
+			super.close();
+		}
+
+		private String key(Path path) {
+			return makeQualified(path).toUri().getPath();
+		}
+	}
+}
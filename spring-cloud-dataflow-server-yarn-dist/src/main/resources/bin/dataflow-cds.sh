@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+
+##############################################################################
+##
+##  Class data sharing options sourced by dataflow launchers
+##
+##############################################################################
+
+# Sets CDS_OPTS for a launcher given as first argument when DATAFLOW_CDS is
+# true. Dynamic archives need java 13 or newer and older jvms ignore these
+# options, making this a no-op on java 8. Launchers run fat jars with -jar
+# and classes loaded from nested jars are never archived, so an archive only
+# covers jvm and boot launcher classes. An archive is only usable by a jvm
+# build which created it, so archive name has a checksum of a java command
+# and its version output.
+cdsOpts ( ) {
+    CDS_OPTS=""
+    if [ x"$DATAFLOW_CDS" != x"true" ] ; then
+        return
+    fi
+    if [ x"$DATAFLOW_CDS_DIR" = x ] ; then
+        DATAFLOW_CDS_DIR=$HOME/.spring-cloud-dataflow-yarn/cds
+    fi
+    CDS_JVM=`( echo "$JAVACMD" ; "$JAVACMD" -version 2>&1 ) | cksum | cut -d ' ' -f 1`
+    CDS_ARCHIVE="$DATAFLOW_CDS_DIR/$1-${DATAFLOW_VERSION}-${CDS_JVM}.jsa"
+    if [ -f "$CDS_ARCHIVE" ] ; then
+        CDS_OPTS="-XX:+IgnoreUnrecognizedVMOptions -XX:SharedArchiveFile=$CDS_ARCHIVE"
+    elif mkdir -p "$DATAFLOW_CDS_DIR" 2>/dev/null ; then
+        CDS_OPTS="-XX:+IgnoreUnrecognizedVMOptions -XX:ArchiveClassesAtExit=$CDS_ARCHIVE"
+    fi
+}
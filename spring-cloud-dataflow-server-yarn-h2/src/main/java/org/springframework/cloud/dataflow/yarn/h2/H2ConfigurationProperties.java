@@ -23,7 +23,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * defaults to '19092'. Default username is 'sa' with no password.
  * Default database name is 'dataflow'. On default in-memory
  * database is defined which will be persisted if 'directory' is
- * defined.
+ * defined. Cache size, write delay, compression and page size are
+ * left to H2 defaults unless set.
  *
  * @author Janne Valkealahti
  *
@@ -36,6 +37,10 @@ public class H2ConfigurationProperties {
 	private String password;
 	private String database = "dataflow";
 	private String directory;
+	private Integer cacheSize;
+	private Integer writeDelay;
+	private Boolean compress;
+	private Integer pageSize;
 
 	/**
 	 * Gets the port.
@@ -127,9 +132,84 @@ public class H2ConfigurationProperties {
 		this.directory = directory;
 	}
 
+	/**
+	 * Gets the cache size in kilobytes.
+	 *
+	 * @return the cache size
+	 */
+	public Integer getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the cache size in kilobytes.
+	 *
+	 * @param cacheSize the new cache size
+	 */
+	public void setCacheSize(Integer cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Gets the write delay in milliseconds. With MVStore this is a delay
+	 * after which committed changes are written to a disk.
+	 *
+	 * @return the write delay
+	 */
+	public Integer getWriteDelay() {
+		return writeDelay;
+	}
+
+	/**
+	 * Sets the write delay in milliseconds.
+	 *
+	 * @param writeDelay the new write delay
+	 */
+	public void setWriteDelay(Integer writeDelay) {
+		this.writeDelay = writeDelay;
+	}
+
+	/**
+	 * Gets the compress flag.
+	 *
+	 * @return the compress flag
+	 */
+	public Boolean getCompress() {
+		return compress;
+	}
+
+	/**
+	 * Sets the compress flag. Only used when a database file is opened.
+	 *
+	 * @param compress the new compress flag
+	 */
+	public void setCompress(Boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * Gets the page size in bytes.
+	 *
+	 * @return the page size
+	 */
+	public Integer getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Sets the page size in bytes. Only used when a database file is opened.
+	 *
+	 * @param pageSize the new page size
+	 */
+	public void setPageSize(Integer pageSize) {
+		this.pageSize = pageSize;
+	}
+
 	@Override
 	public String toString() {
 		return "H2ConfigurationProperties [port=" + port + ", username=" + username + ", password="
-				+ (password == null ? "" : password.replaceAll(".", "*")) + ", database=" + database + ", directory=" + directory + "]";
+				+ (password == null ? "" : password.replaceAll(".", "*")) + ", database=" + database + ", directory=" + directory
+				+ ", cacheSize=" + cacheSize + ", writeDelay=" + writeDelay + ", compress=" + compress + ", pageSize="
+				+ pageSize + "]";
 	}
 }
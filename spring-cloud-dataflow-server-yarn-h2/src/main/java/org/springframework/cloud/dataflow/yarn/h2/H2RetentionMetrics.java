@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * {@link PublicMetrics} exposing task executions, job executions and rows
+ * deleted by {@link H2RetentionService}.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class H2RetentionMetrics implements PublicMetrics {
+
+	private final H2RetentionService retentionService;
+
+	/**
+	 * Instantiates a new h2 retention metrics.
+	 *
+	 * @param retentionService the retention service
+	 */
+	public H2RetentionMetrics(H2RetentionService retentionService) {
+		this.retentionService = retentionService;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>("dataflow.h2.retention.task-executions", retentionService.getTaskExecutions()));
+		metrics.add(new Metric<Long>("dataflow.h2.retention.job-executions", retentionService.getJobExecutions()));
+		metrics.add(new Metric<Long>("dataflow.h2.retention.rows", retentionService.getRows()));
+		return metrics;
+	}
+}
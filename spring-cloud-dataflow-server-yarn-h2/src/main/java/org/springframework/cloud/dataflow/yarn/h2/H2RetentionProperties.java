@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for pruning task and job executions from H2
+ * database. Retention is disabled on default and when enabled, runs every
+ * hour deleting 500 executions in a transaction and then checkpoints a
+ * database. Executions are kept on default and limits can be set for all
+ * tasks and jobs and overridden per task or job name.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = H2RetentionProperties.PREFIX)
+public class H2RetentionProperties {
+
+	public static final String PREFIX = "dataflow.database.h2.retention";
+
+	private boolean enabled = false;
+	private long interval = 3600000;
+	private int batchSize = 500;
+	private boolean checkpoint = true;
+	private String taskTablePrefix = "TASK_";
+	private String batchTablePrefix = "BATCH_";
+	private Limits task = new Limits();
+	private Map<String, Limits> tasks = new HashMap<String, Limits>();
+	private Limits job = new Limits();
+	private Map<String, Limits> jobs = new HashMap<String, Limits>();
+
+	/**
+	 * Checks if retention is enabled.
+	 *
+	 * @return true, if retention is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if retention is enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the interval between retention runs in milliseconds.
+	 *
+	 * @return the interval
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Sets the interval between retention runs in milliseconds.
+	 *
+	 * @param interval the new interval
+	 */
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * Gets the number of executions deleted in a transaction.
+	 *
+	 * @return the batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the number of executions deleted in a transaction.
+	 *
+	 * @param batchSize the new batch size
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Checks if a database is checkpointed after executions has been
+	 * deleted.
+	 *
+	 * @return true, if database is checkpointed
+	 */
+	public boolean isCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Sets if a database is checkpointed with {@code CHECKPOINT SYNC} after
+	 * executions has been deleted.
+	 *
+	 * @param checkpoint the new checkpoint flag
+	 */
+	public void setCheckpoint(boolean checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Gets the task table prefix.
+	 *
+	 * @return the task table prefix
+	 */
+	public String getTaskTablePrefix() {
+		return taskTablePrefix;
+	}
+
+	/**
+	 * Sets the task table prefix.
+	 *
+	 * @param taskTablePrefix the new task table prefix
+	 */
+	public void setTaskTablePrefix(String taskTablePrefix) {
+		this.taskTablePrefix = taskTablePrefix;
+	}
+
+	/**
+	 * Gets the batch table prefix.
+	 *
+	 * @return the batch table prefix
+	 */
+	public String getBatchTablePrefix() {
+		return batchTablePrefix;
+	}
+
+	/**
+	 * Sets the batch table prefix.
+	 *
+	 * @param batchTablePrefix the new batch table prefix
+	 */
+	public void setBatchTablePrefix(String batchTablePrefix) {
+		this.batchTablePrefix = batchTablePrefix;
+	}
+
+	/**
+	 * Gets the limits for all tasks.
+	 *
+	 * @return the task limits
+	 */
+	public Limits getTask() {
+		return task;
+	}
+
+	/**
+	 * Sets the limits for all tasks.
+	 *
+	 * @param task the new task limits
+	 */
+	public void setTask(Limits task) {
+		this.task = task;
+	}
+
+	/**
+	 * Gets the limits per task name.
+	 *
+	 * @return the limits per task name
+	 */
+	public Map<String, Limits> getTasks() {
+		return tasks;
+	}
+
+	/**
+	 * Sets the limits per task name.
+	 *
+	 * @param tasks the new limits per task name
+	 */
+	public void setTasks(Map<String, Limits> tasks) {
+		this.tasks = tasks;
+	}
+
+	/**
+	 * Gets the limits for all jobs.
+	 *
+	 * @return the job limits
+	 */
+	public Limits getJob() {
+		return job;
+	}
+
+	/**
+	 * Sets the limits for all jobs.
+	 *
+	 * @param job the new job limits
+	 */
+	public void setJob(Limits job) {
+		this.job = job;
+	}
+
+	/**
+	 * Gets the limits per job name.
+	 *
+	 * @return the limits per job name
+	 */
+	public Map<String, Limits> getJobs() {
+		return jobs;
+	}
+
+	/**
+	 * Sets the limits per job name.
+	 *
+	 * @param jobs the new limits per job name
+	 */
+	public void setJobs(Map<String, Limits> jobs) {
+		this.jobs = jobs;
+	}
+
+	@Override
+	public String toString() {
+		return "H2RetentionProperties [enabled=" + enabled + ", interval=" + interval + ", batchSize=" + batchSize
+				+ ", checkpoint=" + checkpoint + ", task=" + task + ", tasks=" + tasks + ", job=" + job
+				+ ", jobs=" + jobs + "]";
+	}
+
+	/**
+	 * Retention limits of executions having a same name. Only finished
+	 * executions are ever deleted.
+	 */
+	public static class Limits {
+
+		private Long maxAge;
+		private Integer maxCount;
+
+		/**
+		 * Gets the age in milliseconds after which an execution is deleted.
+		 *
+		 * @return the maximum age
+		 */
+		public Long getMaxAge() {
+			return maxAge;
+		}
+
+		/**
+		 * Sets the age in milliseconds after which an execution is deleted.
+		 *
+		 * @param maxAge the new maximum age
+		 */
+		public void setMaxAge(Long maxAge) {
+			this.maxAge = maxAge;
+		}
+
+		/**
+		 * Gets the number of latest executions kept.
+		 *
+		 * @return the maximum count
+		 */
+		public Integer getMaxCount() {
+			return maxCount;
+		}
+
+		/**
+		 * Sets the number of latest executions kept.
+		 *
+		 * @param maxCount the new maximum count
+		 */
+		public void setMaxCount(Integer maxCount) {
+			this.maxCount = maxCount;
+		}
+
+		@Override
+		public String toString() {
+			return "Limits [maxAge=" + maxAge + ", maxCount=" + maxCount + "]";
+		}
+	}
+}
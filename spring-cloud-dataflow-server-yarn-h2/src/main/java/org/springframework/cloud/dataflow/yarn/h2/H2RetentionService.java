@@ -0,0 +1,364 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.dataflow.yarn.h2.H2RetentionProperties.Limits;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Periodically deletes finished task and job executions exceeding
+ * {@link H2RetentionProperties} limits from a database served by
+ * {@link H2ServerConfiguration} using an application {@link DataSource}
+ * and then checkpoints a database.
+ *
+ * Executions are deleted in batches each in its own short transaction so
+ * that a server writing new executions doesn't wait for a whole run. Job
+ * executions launched by a deleted task execution are deleted in a same
+ * transaction to not leave orphaned rows behind.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class H2RetentionService {
+
+	private static final Logger log = LoggerFactory.getLogger(H2RetentionService.class);
+	private final DataSource dataSource;
+	private final H2RetentionProperties retentionProperties;
+	private final AtomicLong taskExecutions = new AtomicLong();
+	private final AtomicLong jobExecutions = new AtomicLong();
+	private final AtomicLong rows = new AtomicLong();
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Instantiates a new h2 retention service.
+	 *
+	 * @param dataSource the data source of a served database
+	 * @param retentionProperties the retention properties
+	 */
+	public H2RetentionService(DataSource dataSource, H2RetentionProperties retentionProperties) {
+		this.dataSource = dataSource;
+		this.retentionProperties = retentionProperties;
+	}
+
+	/**
+	 * Starts retention runs, first one after an interval.
+	 */
+	public void start() {
+		log.info("Starting H2 retention with properties " + retentionProperties);
+		executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("h2-retention-"));
+		executor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					prune();
+				}
+				catch (Exception e) {
+					log.warn("Failed to prune H2 database", e);
+				}
+			}
+		}, retentionProperties.getInterval(), retentionProperties.getInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops retention runs.
+	 */
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Deletes executions exceeding limits and checkpoints a database.
+	 *
+	 * @throws SQLException if deleting executions failed
+	 */
+	public void prune() throws SQLException {
+		long start = System.currentTimeMillis();
+		long rowsBefore = rows.get();
+		Connection connection = dataSource.getConnection();
+		try {
+			Set<String> tables = getTables(connection);
+			String task = retentionProperties.getTaskTablePrefix().toUpperCase();
+			String batch = retentionProperties.getBatchTablePrefix().toUpperCase();
+			if (tables.contains(task + "EXECUTION")) {
+				for (String name : query(connection, "SELECT DISTINCT TASK_NAME FROM " + task + "EXECUTION")) {
+					List<Long[]> ids = getExpired(connection, "SELECT TASK_EXECUTION_ID, START_TIME FROM " + task
+							+ "EXECUTION WHERE TASK_NAME = ? AND END_TIME IS NOT NULL"
+							+ " ORDER BY START_TIME DESC, TASK_EXECUTION_ID DESC", name, getLimits(name, true));
+					for (int i = 0; i < ids.size(); i += retentionProperties.getBatchSize()) {
+						List<Long[]> chunk = ids.subList(i, Math.min(ids.size(), i + retentionProperties.getBatchSize()));
+						deleteTaskExecutions(connection, tables, chunk);
+						taskExecutions.addAndGet(chunk.size());
+					}
+				}
+			}
+			if (tables.contains(batch + "JOB_EXECUTION") && tables.contains(batch + "JOB_INSTANCE")) {
+				for (String name : query(connection, "SELECT DISTINCT JOB_NAME FROM " + batch + "JOB_INSTANCE")) {
+					List<Long[]> ids = getExpired(connection, "SELECT e.JOB_EXECUTION_ID, e.START_TIME, e.JOB_INSTANCE_ID FROM "
+							+ batch + "JOB_EXECUTION e JOIN " + batch + "JOB_INSTANCE i ON e.JOB_INSTANCE_ID = i.JOB_INSTANCE_ID"
+							+ " WHERE i.JOB_NAME = ? AND e.END_TIME IS NOT NULL"
+							+ " ORDER BY e.START_TIME DESC, e.JOB_EXECUTION_ID DESC", name, getLimits(name, false));
+					for (int i = 0; i < ids.size(); i += retentionProperties.getBatchSize()) {
+						List<Long[]> chunk = ids.subList(i, Math.min(ids.size(), i + retentionProperties.getBatchSize()));
+						deleteJobExecutions(connection, tables, chunk);
+						jobExecutions.addAndGet(chunk.size());
+					}
+				}
+			}
+			long pruned = rows.get() - rowsBefore;
+			if (pruned > 0 && retentionProperties.isCheckpoint()) {
+				checkpoint(connection);
+			}
+			log.info("Pruned " + pruned + " rows from H2 database in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Gets the number of deleted task executions.
+	 *
+	 * @return the number of deleted task executions
+	 */
+	public long getTaskExecutions() {
+		return taskExecutions.get();
+	}
+
+	/**
+	 * Gets the number of deleted job executions.
+	 *
+	 * @return the number of deleted job executions
+	 */
+	public long getJobExecutions() {
+		return jobExecutions.get();
+	}
+
+	/**
+	 * Gets the number of deleted rows in all tables.
+	 *
+	 * @return the number of deleted rows
+	 */
+	public long getRows() {
+		return rows.get();
+	}
+
+	private Limits getLimits(String name, boolean task) {
+		Limits limits = task ? retentionProperties.getTasks().get(name) : retentionProperties.getJobs().get(name);
+		if (limits != null) {
+			return limits;
+		}
+		return task ? retentionProperties.getTask() : retentionProperties.getJob();
+	}
+
+	// ids of finished executions, newest first, exceeding either limit
+	private List<Long[]> getExpired(Connection connection, String sql, String name, Limits limits)
+			throws SQLException {
+		List<Long[]> ids = new ArrayList<Long[]>();
+		if (limits.getMaxAge() == null && limits.getMaxCount() == null) {
+			return ids;
+		}
+		long cutoff = limits.getMaxAge() != null ? System.currentTimeMillis() - limits.getMaxAge() : Long.MIN_VALUE;
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			statement.setString(1, name);
+			ResultSet rs = statement.executeQuery();
+			boolean instances = rs.getMetaData().getColumnCount() > 2;
+			int count = 0;
+			while (rs.next()) {
+				Timestamp startTime = rs.getTimestamp(2);
+				boolean old = startTime != null && startTime.getTime() < cutoff;
+				boolean over = limits.getMaxCount() != null && count >= limits.getMaxCount();
+				if (old || over) {
+					ids.add(new Long[] { rs.getLong(1), instances ? rs.getLong(3) : null });
+				}
+				count++;
+			}
+			rs.close();
+		}
+		finally {
+			statement.close();
+		}
+		return ids;
+	}
+
+	private void deleteTaskExecutions(Connection connection, Set<String> tables, List<Long[]> ids)
+			throws SQLException {
+		String task = retentionProperties.getTaskTablePrefix().toUpperCase();
+		String batch = retentionProperties.getBatchTablePrefix().toUpperCase();
+		String in = getIds(ids, 0);
+		List<Long[]> jobs = new ArrayList<Long[]>();
+		if (tables.contains(task + "TASK_BATCH") && tables.contains(batch + "JOB_EXECUTION")) {
+			jobs = getJobs(connection, "SELECT e.JOB_EXECUTION_ID, e.JOB_INSTANCE_ID FROM " + task + "TASK_BATCH b JOIN "
+					+ batch + "JOB_EXECUTION e ON b.JOB_EXECUTION_ID = e.JOB_EXECUTION_ID WHERE b.TASK_EXECUTION_ID IN " + in);
+		}
+		List<String> sqls = new ArrayList<String>();
+		if (!jobs.isEmpty()) {
+			addJobDeletes(sqls, tables, jobs);
+		}
+		addDelete(sqls, tables, task + "EXECUTION_PARAMS", "TASK_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, task + "TASK_BATCH", "TASK_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, task + "EXECUTION", "TASK_EXECUTION_ID IN " + in);
+		execute(connection, sqls);
+		jobExecutions.addAndGet(jobs.size());
+	}
+
+	private void deleteJobExecutions(Connection connection, Set<String> tables, List<Long[]> ids)
+			throws SQLException {
+		List<String> sqls = new ArrayList<String>();
+		addJobDeletes(sqls, tables, ids);
+		execute(connection, sqls);
+	}
+
+	// ids are pairs of job execution and job instance ids
+	private void addJobDeletes(List<String> sqls, Set<String> tables, List<Long[]> ids) {
+		String batch = retentionProperties.getBatchTablePrefix().toUpperCase();
+		String task = retentionProperties.getTaskTablePrefix().toUpperCase();
+		String in = getIds(ids, 0);
+		String instances = getIds(ids, 1);
+		if (tables.contains(batch + "STEP_EXECUTION")) {
+			addDelete(sqls, tables, batch + "STEP_EXECUTION_CONTEXT", "STEP_EXECUTION_ID IN (SELECT STEP_EXECUTION_ID FROM "
+					+ batch + "STEP_EXECUTION WHERE JOB_EXECUTION_ID IN " + in + ")");
+		}
+		addDelete(sqls, tables, batch + "STEP_EXECUTION", "JOB_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, batch + "JOB_EXECUTION_CONTEXT", "JOB_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, batch + "JOB_EXECUTION_PARAMS", "JOB_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, task + "TASK_BATCH", "JOB_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, batch + "JOB_EXECUTION", "JOB_EXECUTION_ID IN " + in);
+		addDelete(sqls, tables, batch + "JOB_INSTANCE", "JOB_INSTANCE_ID IN " + instances + " AND NOT EXISTS (SELECT 1 FROM "
+				+ batch + "JOB_EXECUTION e WHERE e.JOB_INSTANCE_ID = " + batch + "JOB_INSTANCE.JOB_INSTANCE_ID)");
+	}
+
+	private void addDelete(List<String> sqls, Set<String> tables, String table, String where) {
+		if (tables.contains(table)) {
+			sqls.add("DELETE FROM " + table + " WHERE " + where);
+		}
+	}
+
+	// statements of a batch are run in a single short transaction
+	private void execute(Connection connection, List<String> sqls) throws SQLException {
+		connection.setAutoCommit(false);
+		try {
+			int count = 0;
+			for (String sql : sqls) {
+				PreparedStatement statement = connection.prepareStatement(sql);
+				try {
+					count += statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+			}
+			connection.commit();
+			rows.addAndGet(count);
+		}
+		catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	// writes deletes out to a database file without compacting it
+	private static void checkpoint(Connection connection) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("CHECKPOINT SYNC");
+		try {
+			statement.execute();
+		}
+		finally {
+			statement.close();
+		}
+	}
+
+	private static List<Long[]> getJobs(Connection connection, String sql) throws SQLException {
+		List<Long[]> ids = new ArrayList<Long[]>();
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			ResultSet rs = statement.executeQuery();
+			while (rs.next()) {
+				ids.add(new Long[] { rs.getLong(1), rs.getLong(2) });
+			}
+			rs.close();
+		}
+		finally {
+			statement.close();
+		}
+		return ids;
+	}
+
+	private static String getIds(List<Long[]> ids, int index) {
+		StringBuilder buf = new StringBuilder("(");
+		for (Long[] id : ids) {
+			if (buf.length() > 1) {
+				buf.append(',');
+			}
+			buf.append(id[index]);
+		}
+		return buf.append(')').toString();
+	}
+
+	private static List<String> query(Connection connection, String sql) throws SQLException {
+		List<String> values = new ArrayList<String>();
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			ResultSet rs = statement.executeQuery();
+			while (rs.next()) {
+				values.add(rs.getString(1));
+			}
+			rs.close();
+		}
+		finally {
+			statement.close();
+		}
+		return values;
+	}
+
+	private static Set<String> getTables(Connection connection) throws SQLException {
+		Set<String> tables = new HashSet<String>();
+		DatabaseMetaData metaData = connection.getMetaData();
+		ResultSet rs = metaData.getTables(null, null, "%", new String[] { "TABLE" });
+		while (rs.next()) {
+			tables.add(rs.getString("TABLE_NAME").toUpperCase());
+		}
+		rs.close();
+		return tables;
+	}
+}
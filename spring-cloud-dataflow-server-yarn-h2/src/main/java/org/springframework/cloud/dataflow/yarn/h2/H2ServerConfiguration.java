@@ -27,14 +27,22 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
 
+import javax.sql.DataSource;
+
 import org.h2.tools.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.util.StringUtils;
 
 /**
@@ -52,6 +60,9 @@ public class H2ServerConfiguration {
 	@Autowired
 	private H2ConfigurationProperties properties;
 
+	@Autowired(required = false)
+	private H2Snapshotter snapshotter;
+
 	@Bean(destroyMethod = "stop")
 	public Server dataflowH2Server() throws SQLException {
 		log.info("Starting H2 Server with properties " + properties);
@@ -65,14 +76,50 @@ public class H2ServerConfiguration {
 			args.add("-baseDir");
 			args.add(properties.getDirectory());
 		}
+		if (snapshotter != null) {
+			snapshotter.restoreFiles();
+		}
 		Server server = Server.createTcpServer(args.toArray(new String[0])).start();
 		initDatabaseViaConnection();
 		return server;
 	}
 
+	/**
+	 * Application data source connecting a served database, used instead of
+	 * an embedded database boot would otherwise create.
+	 *
+	 * @return the data source
+	 */
+	@Bean
+	@DependsOn("dataflowH2Server")
+	@ConditionalOnMissingBean(DataSource.class)
+	public DataSource dataflowH2DataSource() {
+		return DataSourceBuilder.create().driverClassName("org.h2.Driver").url(getDatabaseUrl(properties)).build();
+	}
+
 	private void initDatabaseViaConnection() throws SQLException {
 		// create a connection which will kick off a db create, since this is
-		// the only supported way for h2
+		// the only supported way for h2. as database is kept open, settings
+		// given here are the ones used by all other connections.
+		Connection connection = DriverManager.getConnection(getDatabaseUrl(properties));
+		try {
+			if (snapshotter != null) {
+				snapshotter.restoreScript(connection);
+			}
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Gets a jdbc url for a database defined by given properties, including
+	 * all database settings.
+	 *
+	 * @param properties the h2 properties
+	 * @return the database url
+	 */
+	static String getDatabaseUrl(H2ConfigurationProperties properties) {
 		StringBuilder buf = new StringBuilder();
 		buf.append("jdbc:h2:tcp://localhost:" + Integer.toString(properties.getPort()) + "/");
 		if (!StringUtils.hasText(properties.getDirectory())) {
@@ -80,11 +127,56 @@ public class H2ServerConfiguration {
 		}
 		buf.append(properties.getDatabase());
 		buf.append(";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false");
+		if (properties.getCacheSize() != null) {
+			buf.append(";CACHE_SIZE=" + properties.getCacheSize());
+		}
+		if (properties.getWriteDelay() != null) {
+			buf.append(";WRITE_DELAY=" + properties.getWriteDelay());
+		}
+		if (properties.getCompress() != null) {
+			buf.append(";COMPRESS=" + properties.getCompress().toString().toUpperCase());
+		}
+		if (properties.getPageSize() != null) {
+			buf.append(";PAGE_SIZE=" + properties.getPageSize());
+		}
 		buf.append(";USER=" + properties.getUsername());
 		if (StringUtils.hasText(properties.getPassword())) {
 			buf.append(";PASSWORD=" + properties.getPassword());
 		}
-		Connection connection = DriverManager.getConnection(buf.toString());
-		connection.close();
+		return buf.toString();
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = H2SnapshotProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(H2SnapshotProperties.class)
+	public static class SnapshotConfiguration {
+
+		@Bean(initMethod = "start", destroyMethod = "stop")
+		public H2Snapshotter dataflowH2Snapshotter(H2ConfigurationProperties properties,
+				H2SnapshotProperties snapshotProperties) {
+			return new H2Snapshotter(properties, snapshotProperties);
+		}
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = H2RetentionProperties.PREFIX, name = "enabled", havingValue = "true")
+	@EnableConfigurationProperties(H2RetentionProperties.class)
+	public static class RetentionConfiguration {
+
+		@Bean(initMethod = "start", destroyMethod = "stop")
+		public H2RetentionService dataflowH2RetentionService(DataSource dataSource,
+				H2RetentionProperties retentionProperties) {
+			return new H2RetentionService(dataSource, retentionProperties);
+		}
+
+		@Configuration
+		@ConditionalOnClass(PublicMetrics.class)
+		public static class RetentionMetricsConfiguration {
+
+			@Bean
+			public H2RetentionMetrics dataflowH2RetentionMetrics(H2RetentionService retentionService) {
+				return new H2RetentionMetrics(retentionService);
+			}
+		}
 	}
 }
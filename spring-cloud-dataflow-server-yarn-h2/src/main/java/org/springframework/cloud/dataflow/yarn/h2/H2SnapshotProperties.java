@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for online snapshots of H2 database. Snapshots
+ * are disabled on default and when enabled, taken every hour into a
+ * 'directory' keeping 24 latest ones. Restore from a latest snapshot
+ * on startup is disabled on default.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@ConfigurationProperties(prefix = H2SnapshotProperties.PREFIX)
+public class H2SnapshotProperties {
+
+	public static final String PREFIX = "dataflow.database.h2.snapshot";
+
+	private boolean enabled = false;
+	private String directory;
+	private long interval = 3600000;
+	private int retention = 24;
+	private boolean restore = false;
+
+	/**
+	 * Checks if snapshots are enabled.
+	 *
+	 * @return true, if snapshots are enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets if snapshots are enabled.
+	 *
+	 * @param enabled the new enabled flag
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the snapshot directory.
+	 *
+	 * @return the snapshot directory
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Sets the snapshot directory.
+	 *
+	 * @param directory the new snapshot directory
+	 */
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the interval between snapshots in milliseconds.
+	 *
+	 * @return the interval
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Sets the interval between snapshots in milliseconds.
+	 *
+	 * @param interval the new interval
+	 */
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * Gets the number of snapshots to keep.
+	 *
+	 * @return the retention
+	 */
+	public int getRetention() {
+		return retention;
+	}
+
+	/**
+	 * Sets the number of snapshots to keep.
+	 *
+	 * @param retention the new retention
+	 */
+	public void setRetention(int retention) {
+		this.retention = retention;
+	}
+
+	/**
+	 * Checks if database is restored from a latest snapshot on startup.
+	 *
+	 * @return true, if database is restored
+	 */
+	public boolean isRestore() {
+		return restore;
+	}
+
+	/**
+	 * Sets if database is restored from a latest snapshot on startup.
+	 *
+	 * @param restore the new restore flag
+	 */
+	public void setRestore(boolean restore) {
+		this.restore = restore;
+	}
+
+	@Override
+	public String toString() {
+		return "H2SnapshotProperties [enabled=" + enabled + ", directory=" + directory + ", interval=" + interval
+				+ ", retention=" + retention + ", restore=" + restore + "]";
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.Restore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Takes scheduled online snapshots of a database served by
+ * {@link H2ServerConfiguration} and restores a latest one on startup.
+ *
+ * Persistent database is snapshotted with {@code BACKUP TO} which copies
+ * database files into a zip while writers only wait for a store to get
+ * flushed. In-memory database has no files and is snapshotted with
+ * {@code SCRIPT TO} into a zip compressed script. Snapshot is first
+ * written into a temporary file and then moved in place, so that only
+ * complete snapshots are ever restored.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class H2Snapshotter {
+
+	private static final Logger log = LoggerFactory.getLogger(H2Snapshotter.class);
+	private static final String BACKUP_SUFFIX = ".zip";
+	private static final String SCRIPT_SUFFIX = ".sql.zip";
+	private final H2ConfigurationProperties properties;
+	private final H2SnapshotProperties snapshotProperties;
+	private final File directory;
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Instantiates a new h2 snapshotter.
+	 *
+	 * @param properties the h2 properties
+	 * @param snapshotProperties the snapshot properties
+	 */
+	public H2Snapshotter(H2ConfigurationProperties properties, H2SnapshotProperties snapshotProperties) {
+		Assert.hasText(snapshotProperties.getDirectory(), "Snapshot directory must be set");
+		this.properties = properties;
+		this.snapshotProperties = snapshotProperties;
+		this.directory = new File(snapshotProperties.getDirectory());
+	}
+
+	/**
+	 * Starts taking snapshots, first one after an interval.
+	 */
+	public void start() {
+		log.info("Starting H2 snapshots with properties " + snapshotProperties);
+		executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("h2-snapshot-"));
+		executor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					snapshot();
+				}
+				catch (Exception e) {
+					log.warn("Failed to take H2 snapshot", e);
+				}
+			}
+		}, snapshotProperties.getInterval(), snapshotProperties.getInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops taking snapshots.
+	 */
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Takes a snapshot and removes ones exceeding a retention.
+	 *
+	 * @return the snapshot file
+	 * @throws SQLException if snapshot failed
+	 * @throws IOException if snapshot could not be moved in place
+	 */
+	public File snapshot() throws SQLException, IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create snapshot directory " + directory);
+		}
+		String name = properties.getDatabase() + "-" + new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date())
+				+ getSuffix();
+		File tmp = new File(directory, "." + name + ".tmp");
+		File file = new File(directory, name);
+		long start = System.currentTimeMillis();
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			Statement statement = connection.createStatement();
+			if (isPersistent()) {
+				statement.execute("BACKUP TO " + quote(tmp));
+			}
+			else {
+				statement.execute("SCRIPT TO " + quote(tmp) + " COMPRESSION ZIP");
+			}
+			statement.close();
+		}
+		finally {
+			connection.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		log.info("Took H2 snapshot " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+		List<File> snapshots = getSnapshots();
+		for (int i = snapshotProperties.getRetention(); i < snapshots.size(); i++) {
+			if (snapshots.get(i).delete()) {
+				log.info("Removed H2 snapshot " + snapshots.get(i));
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Restores database files from a latest snapshot if restore is enabled
+	 * and database files don't exist. Needs to be called before a database
+	 * is opened and does nothing for an in-memory database.
+	 */
+	public void restoreFiles() {
+		if (!snapshotProperties.isRestore() || !isPersistent()) {
+			return;
+		}
+		if (new File(properties.getDirectory(), properties.getDatabase() + ".mv.db").exists()
+				|| new File(properties.getDirectory(), properties.getDatabase() + ".h2.db").exists()) {
+			log.info("Not restoring H2 snapshot as database files exist");
+			return;
+		}
+		File snapshot = getLatestSnapshot();
+		if (snapshot != null) {
+			log.info("Restoring H2 database files from snapshot " + snapshot);
+			Restore.execute(snapshot.getAbsolutePath(), properties.getDirectory(), properties.getDatabase());
+		}
+	}
+
+	/**
+	 * Restores an in-memory database from a latest snapshot if restore is
+	 * enabled. Needs to be called with a first connection to a database and
+	 * does nothing for a persistent database.
+	 *
+	 * @param connection the connection
+	 * @throws SQLException if restore failed
+	 */
+	public void restoreScript(Connection connection) throws SQLException {
+		if (!snapshotProperties.isRestore() || isPersistent()) {
+			return;
+		}
+		File snapshot = getLatestSnapshot();
+		if (snapshot != null) {
+			log.info("Restoring H2 database from snapshot " + snapshot);
+			Statement statement = connection.createStatement();
+			statement.execute("RUNSCRIPT FROM " + quote(snapshot) + " COMPRESSION ZIP");
+			statement.close();
+		}
+	}
+
+	private File getLatestSnapshot() {
+		List<File> snapshots = getSnapshots();
+		return snapshots.isEmpty() ? null : snapshots.get(0);
+	}
+
+	// snapshots of a current database and mode, newest first
+	private List<File> getSnapshots() {
+		List<File> snapshots = new ArrayList<File>();
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return snapshots;
+		}
+		String prefix = properties.getDatabase() + "-";
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(prefix) && name.endsWith(getSuffix())
+					&& (isPersistent() ^ name.endsWith(SCRIPT_SUFFIX))) {
+				snapshots.add(file);
+			}
+		}
+		Collections.sort(snapshots);
+		Collections.reverse(snapshots);
+		return snapshots;
+	}
+
+	private boolean isPersistent() {
+		return StringUtils.hasText(properties.getDirectory());
+	}
+
+	private String getSuffix() {
+		return isPersistent() ? BACKUP_SUFFIX : SCRIPT_SUFFIX;
+	}
+
+	private static String quote(File file) {
+		return "'" + file.getAbsolutePath().replace("'", "''") + "'";
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.tools.Server;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.dataflow.yarn.h2.H2RetentionProperties.Limits;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class H2RetentionServiceTests {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Server server;
+
+	@After
+	public void clean() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testTaskMaxCount() throws Exception {
+		H2ConfigurationProperties properties = start(null);
+		addTask(properties, 1, "foo", 3, true);
+		addTask(properties, 2, "foo", 2, true);
+		addTask(properties, 3, "foo", 1, true);
+		addTask(properties, 4, "foo", 0, false);
+		addTask(properties, 5, "bar", 5, true);
+		H2RetentionProperties retentionProperties = new H2RetentionProperties();
+		Limits limits = new Limits();
+		limits.setMaxCount(1);
+		retentionProperties.getTasks().put("foo", limits);
+
+		H2RetentionService service = new H2RetentionService(dataSource(properties), retentionProperties);
+		service.prune();
+		assertThat(count(properties, "TASK_EXECUTION WHERE TASK_NAME = 'foo'"), is(2));
+		assertThat(count(properties, "TASK_EXECUTION WHERE TASK_EXECUTION_ID IN (3, 4)"), is(2));
+		assertThat(count(properties, "TASK_EXECUTION WHERE TASK_NAME = 'bar'"), is(1));
+		assertThat(count(properties, "TASK_EXECUTION_PARAMS"), is(3));
+		assertThat(service.getTaskExecutions(), is(2L));
+		assertThat(service.getRows(), is(4L));
+	}
+
+	@Test
+	public void testTaskMaxAgeDeletesLaunchedJobs() throws Exception {
+		H2ConfigurationProperties properties = start(null);
+		addTask(properties, 1, "foo", 10, true);
+		addJob(properties, 1, 1, "job", 10);
+		addJob(properties, 2, 1, "job", 10);
+		execute(properties, "INSERT INTO TASK_TASK_BATCH VALUES (1, 1)", "INSERT INTO TASK_TASK_BATCH VALUES (1, 2)");
+		addTask(properties, 2, "foo", 1, true);
+		addJob(properties, 3, 2, "job", 1);
+		execute(properties, "INSERT INTO TASK_TASK_BATCH VALUES (2, 3)");
+		H2RetentionProperties retentionProperties = new H2RetentionProperties();
+		retentionProperties.getTask().setMaxAge(5 * DAY);
+
+		H2RetentionService service = new H2RetentionService(dataSource(properties), retentionProperties);
+		service.prune();
+		assertThat(count(properties, "TASK_EXECUTION"), is(1));
+		assertThat(count(properties, "TASK_TASK_BATCH"), is(1));
+		assertThat(count(properties, "BATCH_JOB_EXECUTION"), is(1));
+		assertThat(count(properties, "BATCH_JOB_EXECUTION WHERE JOB_EXECUTION_ID = 3"), is(1));
+		assertThat(count(properties, "BATCH_JOB_EXECUTION_PARAMS"), is(1));
+		assertThat(count(properties, "BATCH_JOB_EXECUTION_CONTEXT"), is(1));
+		assertThat(count(properties, "BATCH_STEP_EXECUTION"), is(1));
+		assertThat(count(properties, "BATCH_STEP_EXECUTION_CONTEXT"), is(1));
+		assertThat(count(properties, "BATCH_JOB_INSTANCE"), is(1));
+		assertThat(service.getTaskExecutions(), is(1L));
+		assertThat(service.getJobExecutions(), is(2L));
+	}
+
+	@Test
+	public void testJobLimitsOverriddenPerName() throws Exception {
+		H2ConfigurationProperties properties = start(null);
+		addJob(properties, 1, 1, "foo", 10);
+		addJob(properties, 2, 1, "foo", 1);
+		addJob(properties, 3, 2, "bar", 10);
+		H2RetentionProperties retentionProperties = new H2RetentionProperties();
+		retentionProperties.getJob().setMaxAge(5 * DAY);
+		retentionProperties.getJobs().put("bar", new Limits());
+
+		H2RetentionService service = new H2RetentionService(dataSource(properties), retentionProperties);
+		service.prune();
+		assertThat(count(properties, "BATCH_JOB_EXECUTION WHERE JOB_EXECUTION_ID IN (2, 3)"), is(2));
+		assertThat(count(properties, "BATCH_JOB_EXECUTION"), is(2));
+		// instance still having an execution is kept
+		assertThat(count(properties, "BATCH_JOB_INSTANCE"), is(2));
+		assertThat(service.getJobExecutions(), is(1L));
+	}
+
+	@Test
+	public void testNothingDeletedWithoutLimits() throws Exception {
+		H2ConfigurationProperties properties = start(null);
+		addTask(properties, 1, "foo", 100, true);
+		addJob(properties, 1, 1, "foo", 100);
+
+		H2RetentionService service = new H2RetentionService(dataSource(properties), new H2RetentionProperties());
+		service.prune();
+		assertThat(count(properties, "TASK_EXECUTION"), is(1));
+		assertThat(count(properties, "BATCH_JOB_EXECUTION"), is(1));
+		assertThat(service.getRows(), is(0L));
+	}
+
+	@Test
+	public void testPersistentDatabaseCheckpointed() throws Exception {
+		H2ConfigurationProperties properties = start(folder.newFolder("data").getAbsolutePath());
+		for (int i = 1; i <= 100; i++) {
+			addTask(properties, i, "foo", 10, true);
+		}
+		H2RetentionProperties retentionProperties = new H2RetentionProperties();
+		retentionProperties.setBatchSize(30);
+		retentionProperties.getTask().setMaxAge(5 * DAY);
+
+		H2RetentionService service = new H2RetentionService(dataSource(properties), retentionProperties);
+		service.prune();
+		assertThat(count(properties, "TASK_EXECUTION"), is(0));
+		assertThat(service.getTaskExecutions(), is(100L));
+		assertThat(service.getRows(), is(200L));
+	}
+
+	private H2ConfigurationProperties start(String directory) throws Exception {
+		H2ConfigurationProperties properties = new H2ConfigurationProperties();
+		properties.setPort(freePort());
+		// in-memory databases are shared by servers within a jvm
+		properties.setDatabase("retention" + DATABASES.incrementAndGet());
+		properties.setDirectory(directory);
+		if (directory != null) {
+			server = Server.createTcpServer("-tcpPort", Integer.toString(properties.getPort()), "-baseDir",
+					directory).start();
+		}
+		else {
+			server = Server.createTcpServer("-tcpPort", Integer.toString(properties.getPort())).start();
+		}
+		execute(properties,
+				"CREATE TABLE TASK_EXECUTION (TASK_EXECUTION_ID BIGINT PRIMARY KEY, TASK_NAME VARCHAR(100),"
+						+ " START_TIME TIMESTAMP, END_TIME TIMESTAMP)",
+				"CREATE TABLE TASK_EXECUTION_PARAMS (TASK_EXECUTION_ID BIGINT NOT NULL, TASK_PARAM VARCHAR(250),"
+						+ " FOREIGN KEY (TASK_EXECUTION_ID) REFERENCES TASK_EXECUTION (TASK_EXECUTION_ID))",
+				"CREATE TABLE BATCH_JOB_INSTANCE (JOB_INSTANCE_ID BIGINT PRIMARY KEY, JOB_NAME VARCHAR(100))",
+				"CREATE TABLE BATCH_JOB_EXECUTION (JOB_EXECUTION_ID BIGINT PRIMARY KEY, JOB_INSTANCE_ID BIGINT NOT NULL,"
+						+ " START_TIME TIMESTAMP, END_TIME TIMESTAMP,"
+						+ " FOREIGN KEY (JOB_INSTANCE_ID) REFERENCES BATCH_JOB_INSTANCE (JOB_INSTANCE_ID))",
+				"CREATE TABLE BATCH_JOB_EXECUTION_PARAMS (JOB_EXECUTION_ID BIGINT NOT NULL,"
+						+ " FOREIGN KEY (JOB_EXECUTION_ID) REFERENCES BATCH_JOB_EXECUTION (JOB_EXECUTION_ID))",
+				"CREATE TABLE BATCH_JOB_EXECUTION_CONTEXT (JOB_EXECUTION_ID BIGINT PRIMARY KEY,"
+						+ " FOREIGN KEY (JOB_EXECUTION_ID) REFERENCES BATCH_JOB_EXECUTION (JOB_EXECUTION_ID))",
+				"CREATE TABLE BATCH_STEP_EXECUTION (STEP_EXECUTION_ID BIGINT PRIMARY KEY, JOB_EXECUTION_ID BIGINT NOT NULL,"
+						+ " FOREIGN KEY (JOB_EXECUTION_ID) REFERENCES BATCH_JOB_EXECUTION (JOB_EXECUTION_ID))",
+				"CREATE TABLE BATCH_STEP_EXECUTION_CONTEXT (STEP_EXECUTION_ID BIGINT PRIMARY KEY,"
+						+ " FOREIGN KEY (STEP_EXECUTION_ID) REFERENCES BATCH_STEP_EXECUTION (STEP_EXECUTION_ID))",
+				"CREATE TABLE TASK_TASK_BATCH (TASK_EXECUTION_ID BIGINT NOT NULL, JOB_EXECUTION_ID BIGINT,"
+						+ " FOREIGN KEY (TASK_EXECUTION_ID) REFERENCES TASK_EXECUTION (TASK_EXECUTION_ID))");
+		return properties;
+	}
+
+	private static void addTask(H2ConfigurationProperties properties, long id, String name, int daysAgo,
+			boolean finished) throws SQLException {
+		String start = "DATEADD('DAY', -" + daysAgo + ", CURRENT_TIMESTAMP())";
+		execute(properties, "INSERT INTO TASK_EXECUTION VALUES (" + id + ", '" + name + "', " + start + ", "
+				+ (finished ? start : "NULL") + ")", "INSERT INTO TASK_EXECUTION_PARAMS VALUES (" + id + ", 'param')");
+	}
+
+	private static void addJob(H2ConfigurationProperties properties, long id, long instanceId, String name,
+			int daysAgo) throws SQLException {
+		String start = "DATEADD('DAY', -" + daysAgo + ", CURRENT_TIMESTAMP())";
+		execute(properties, "MERGE INTO BATCH_JOB_INSTANCE VALUES (" + instanceId + ", '" + name + "')",
+				"INSERT INTO BATCH_JOB_EXECUTION VALUES (" + id + ", " + instanceId + ", " + start + ", " + start + ")",
+				"INSERT INTO BATCH_JOB_EXECUTION_PARAMS VALUES (" + id + ")",
+				"INSERT INTO BATCH_JOB_EXECUTION_CONTEXT VALUES (" + id + ")",
+				"INSERT INTO BATCH_STEP_EXECUTION VALUES (" + id + ", " + id + ")",
+				"INSERT INTO BATCH_STEP_EXECUTION_CONTEXT VALUES (" + id + ")");
+	}
+
+	private static DataSource dataSource(H2ConfigurationProperties properties) {
+		return new SimpleDriverDataSource(new org.h2.Driver(), H2ServerConfiguration.getDatabaseUrl(properties));
+	}
+
+	private static void execute(H2ConfigurationProperties properties, String... sqls) throws SQLException {
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			Statement statement = connection.createStatement();
+			for (String sql : sqls) {
+				statement.execute(sql);
+			}
+			statement.close();
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	private static int count(H2ConfigurationProperties properties, String table) throws SQLException {
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table);
+			result.next();
+			return result.getInt(1);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	private static int freePort() throws IOException {
+		ServerSocket socket = new ServerSocket(0);
+		try {
+			return socket.getLocalPort();
+		}
+		finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.tools.Server;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class H2SnapshotterTests {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Server server;
+
+	@After
+	public void clean() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testInMemorySnapshotRestored() throws Exception {
+		H2ConfigurationProperties properties = properties(null);
+		H2Snapshotter snapshotter = new H2Snapshotter(properties, snapshotProperties(true));
+		startServer(properties);
+		execute(properties, "CREATE TABLE FOO (ID INT)", "INSERT INTO FOO VALUES (1)");
+		File snapshot = snapshotter.snapshot();
+		assertThat(snapshot.getName(), endsWith(".sql.zip"));
+		execute(properties, "DROP TABLE FOO");
+
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			snapshotter.restoreScript(connection);
+		}
+		finally {
+			connection.close();
+		}
+		assertThat(count(properties, "FOO"), is(1));
+	}
+
+	@Test
+	public void testPersistentSnapshotRestoredWhenFilesMissing() throws Exception {
+		H2ConfigurationProperties properties = properties(folder.newFolder("data").getAbsolutePath());
+		H2Snapshotter snapshotter = new H2Snapshotter(properties, snapshotProperties(true));
+		startServer(properties);
+		execute(properties, "CREATE TABLE FOO (ID INT)", "INSERT INTO FOO VALUES (1)");
+		assertThat(snapshotter.snapshot().getName(), endsWith(".zip"));
+		execute(properties, "INSERT INTO FOO VALUES (2)", "SHUTDOWN");
+		server.stop();
+
+		// existing files are kept
+		snapshotter.restoreFiles();
+		startServer(properties);
+		assertThat(count(properties, "FOO"), is(2));
+		execute(properties, "SHUTDOWN");
+		server.stop();
+
+		File database = new File(properties.getDirectory(), properties.getDatabase() + ".mv.db");
+		assertThat(database.delete(), is(true));
+		snapshotter.restoreFiles();
+		assertThat(database.exists(), is(true));
+		startServer(properties);
+		assertThat(count(properties, "FOO"), is(1));
+	}
+
+	@Test
+	public void testRetention() throws Exception {
+		H2ConfigurationProperties properties = properties(null);
+		H2SnapshotProperties snapshotProperties = snapshotProperties(false);
+		snapshotProperties.setRetention(2);
+		H2Snapshotter snapshotter = new H2Snapshotter(properties, snapshotProperties);
+		startServer(properties);
+		File first = snapshotter.snapshot();
+		Thread.sleep(5);
+		File second = snapshotter.snapshot();
+		Thread.sleep(5);
+		File third = snapshotter.snapshot();
+		assertThat(first.exists(), is(false));
+		assertThat(second.exists(), is(true));
+		assertThat(third.exists(), is(true));
+		assertThat(new File(snapshotProperties.getDirectory()).list().length, is(2));
+	}
+
+	@Test
+	public void testRestoreDisabled() throws Exception {
+		H2ConfigurationProperties properties = properties(null);
+		startServer(properties);
+		execute(properties, "CREATE TABLE FOO (ID INT)");
+		H2SnapshotProperties snapshotProperties = snapshotProperties(false);
+		new H2Snapshotter(properties, snapshotProperties).snapshot();
+		execute(properties, "DROP TABLE FOO");
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			new H2Snapshotter(properties, snapshotProperties).restoreScript(connection);
+		}
+		finally {
+			connection.close();
+		}
+		assertThat(count(properties, "INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'FOO'"), is(0));
+	}
+
+	private H2ConfigurationProperties properties(String directory) throws IOException {
+		H2ConfigurationProperties properties = new H2ConfigurationProperties();
+		properties.setPort(freePort());
+		// in-memory databases are shared by servers within a jvm
+		properties.setDatabase("dataflow" + DATABASES.incrementAndGet());
+		properties.setDirectory(directory);
+		return properties;
+	}
+
+	private H2SnapshotProperties snapshotProperties(boolean restore) throws IOException {
+		H2SnapshotProperties snapshotProperties = new H2SnapshotProperties();
+		snapshotProperties.setDirectory(new File(folder.getRoot(), "snapshots").getAbsolutePath());
+		snapshotProperties.setRestore(restore);
+		return snapshotProperties;
+	}
+
+	private void startServer(H2ConfigurationProperties properties) throws SQLException {
+		if (properties.getDirectory() != null) {
+			server = Server.createTcpServer("-tcpPort", Integer.toString(properties.getPort()), "-baseDir",
+					properties.getDirectory()).start();
+		}
+		else {
+			server = Server.createTcpServer("-tcpPort", Integer.toString(properties.getPort())).start();
+		}
+	}
+
+	private static void execute(H2ConfigurationProperties properties, String... sqls) throws SQLException {
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			Statement statement = connection.createStatement();
+			for (String sql : sqls) {
+				statement.execute(sql);
+			}
+			statement.close();
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	private static int count(H2ConfigurationProperties properties, String table) throws SQLException {
+		Connection connection = DriverManager.getConnection(H2ServerConfiguration.getDatabaseUrl(properties));
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table);
+			result.next();
+			return result.getInt(1);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	private static int freePort() throws IOException {
+		ServerSocket socket = new ServerSocket(0);
+		try {
+			return socket.getLocalPort();
+		}
+		finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.yarn.h2;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import org.h2.tools.Server;
+
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Benchmark measuring task execution insert and query rates of a persistent
+ * H2 database started like {@link H2ServerConfiguration} does, first with
+ * H2 defaults and then with tuned settings. Not a test, run it with a main
+ * method having an optional argument for a number of task executions.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+public class H2TaskExecutionBenchmark {
+
+	private static final int TASK_NAMES = 50;
+	private static final int QUERIES = 2000;
+
+	public static void main(String[] args) throws Exception {
+		int executions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		H2ConfigurationProperties defaults = new H2ConfigurationProperties();
+		H2ConfigurationProperties tuned = new H2ConfigurationProperties();
+		tuned.setCacheSize(65536);
+		tuned.setWriteDelay(2000);
+		tuned.setCompress(true);
+		tuned.setPageSize(16384);
+
+		System.out.println(String.format("%-8s %12s %14s %14s %10s", "MODE", "EXECUTIONS", "INSERTS(/s)",
+				"QUERIES(/s)", "SIZE(kB)"));
+		run("default", defaults, executions);
+		run("tuned", tuned, executions);
+	}
+
+	private static void run(String mode, H2ConfigurationProperties properties, int executions) throws Exception {
+		File directory = Files.createTempDirectory("h2-benchmark").toFile();
+		properties.setDirectory(directory.getAbsolutePath());
+		properties.setPort(19093);
+		Server server = Server.createTcpServer("-tcp", "-tcpPort", Integer.toString(properties.getPort()), "-baseDir",
+				directory.getAbsolutePath()).start();
+		try {
+			String url = H2ServerConfiguration.getDatabaseUrl(properties);
+			Connection connection = DriverManager.getConnection(url);
+			try {
+				createSchema(connection);
+				double inserts = insert(connection, executions);
+				double queries = query(connection);
+				connection.createStatement().execute("SHUTDOWN");
+				System.out.println(String.format("%-8s %12d %14.0f %14.0f %10d", mode, executions, inserts, queries,
+						size(directory) / 1024));
+			}
+			finally {
+				connection.close();
+			}
+		}
+		finally {
+			server.stop();
+			FileSystemUtils.deleteRecursively(directory);
+		}
+	}
+
+	private static void createSchema(Connection connection) throws Exception {
+		Statement statement = connection.createStatement();
+		statement.execute("CREATE TABLE TASK_EXECUTION (TASK_EXECUTION_ID BIGINT NOT NULL PRIMARY KEY, "
+				+ "START_TIME TIMESTAMP DEFAULT NULL, END_TIME TIMESTAMP DEFAULT NULL, TASK_NAME VARCHAR(100), "
+				+ "EXIT_CODE INTEGER, EXIT_MESSAGE VARCHAR(2500), ERROR_MESSAGE VARCHAR(2500), "
+				+ "LAST_UPDATED TIMESTAMP, EXTERNAL_EXECUTION_ID VARCHAR(255), PARENT_EXECUTION_ID BIGINT)");
+		statement.execute("CREATE TABLE TASK_EXECUTION_PARAMS (TASK_EXECUTION_ID BIGINT NOT NULL, "
+				+ "TASK_PARAM VARCHAR(2500), CONSTRAINT TASK_EXEC_PARAMS_FK FOREIGN KEY (TASK_EXECUTION_ID) "
+				+ "REFERENCES TASK_EXECUTION(TASK_EXECUTION_ID))");
+		statement.execute("CREATE INDEX TASK_EXECUTION_NAME_IDX ON TASK_EXECUTION(TASK_NAME, START_TIME)");
+		statement.close();
+	}
+
+	// every execution is its own transaction like with a task repository
+	private static double insert(Connection connection, int executions) throws Exception {
+		PreparedStatement execution = connection.prepareStatement("INSERT INTO TASK_EXECUTION (TASK_EXECUTION_ID, "
+				+ "START_TIME, END_TIME, TASK_NAME, EXIT_CODE, EXIT_MESSAGE, LAST_UPDATED) VALUES (?, ?, ?, ?, ?, ?, ?)");
+		PreparedStatement params = connection
+				.prepareStatement("INSERT INTO TASK_EXECUTION_PARAMS (TASK_EXECUTION_ID, TASK_PARAM) VALUES (?, ?)");
+		long start = System.nanoTime();
+		for (int i = 0; i < executions; i++) {
+			Timestamp now = new Timestamp(System.currentTimeMillis());
+			execution.setLong(1, i);
+			execution.setTimestamp(2, now);
+			execution.setTimestamp(3, now);
+			execution.setString(4, "task" + (i % TASK_NAMES));
+			execution.setInt(5, 0);
+			execution.setString(6, "Task execution " + i + " completed");
+			execution.setTimestamp(7, now);
+			execution.executeUpdate();
+			for (int j = 0; j < 3; j++) {
+				params.setLong(1, i);
+				params.setString(2, "--param" + j + "=value" + i);
+				params.executeUpdate();
+			}
+		}
+		double rate = executions / ((System.nanoTime() - start) / 1e9);
+		execution.close();
+		params.close();
+		return rate;
+	}
+
+	// a page of latest executions for a task like a task executions listing
+	private static double query(Connection connection) throws Exception {
+		PreparedStatement statement = connection.prepareStatement("SELECT e.*, "
+				+ "(SELECT COUNT(*) FROM TASK_EXECUTION_PARAMS p WHERE p.TASK_EXECUTION_ID = e.TASK_EXECUTION_ID) "
+				+ "FROM TASK_EXECUTION e WHERE e.TASK_NAME = ? ORDER BY e.START_TIME DESC, e.TASK_EXECUTION_ID DESC "
+				+ "LIMIT 20");
+		long start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			statement.setString(1, "task" + (i % TASK_NAMES));
+			ResultSet rs = statement.executeQuery();
+			while (rs.next()) {
+				rs.getLong(1);
+			}
+			rs.close();
+		}
+		double rate = QUERIES / ((System.nanoTime() - start) / 1e9);
+		statement.close();
+		return rate;
+	}
+
+	private static long size(File directory) {
+		long size = 0;
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				size += file.isDirectory() ? size(file) : file.length();
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+
+import org.springframework.data.hadoop.HadoopException;
+
+/**
+ * Collects {@link ContentSummary}s for file system trees. With
+ * {@link DistributedFileSystem} summaries are computed by a namenode,
+ * otherwise trees are walked in parallel using a {@link ForkJoinPool}.
+ * Summaries of multiple paths are always collected concurrently.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+class ContentSummaryCollector {
+
+	private final FileSystem fs;
+	private final int parallelism;
+	private final boolean serverSide;
+
+	/**
+	 * Instantiates a new content summary collector.
+	 *
+	 * @param fs the file system
+	 * @param parallelism the parallelism of a tree walk
+	 */
+	ContentSummaryCollector(FileSystem fs, int parallelism) {
+		this.fs = fs;
+		this.parallelism = Math.max(parallelism, 1);
+		this.serverSide = fs instanceof DistributedFileSystem;
+	}
+
+	/**
+	 * Collects summaries for given statuses.
+	 *
+	 * @param statuses the file statuses
+	 * @return the summaries keyed by status in a given order
+	 */
+	Map<FileStatus, ContentSummary> collect(FileStatus[] statuses) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<SummaryTask> tasks = new ArrayList<SummaryTask>();
+			for (FileStatus status : statuses) {
+				tasks.add(new SummaryTask(status));
+			}
+			for (SummaryTask task : tasks) {
+				pool.execute(task);
+			}
+			Map<FileStatus, ContentSummary> summaries = new LinkedHashMap<FileStatus, ContentSummary>();
+			for (SummaryTask task : tasks) {
+				summaries.put(task.status, task.join());
+			}
+			return summaries;
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Sums given summaries together.
+	 *
+	 * @param summaries the summaries
+	 * @return the total summary
+	 */
+	static ContentSummary sum(Iterable<ContentSummary> summaries) {
+		long length = 0;
+		long files = 0;
+		long directories = 0;
+		long spaceConsumed = 0;
+		for (ContentSummary summary : summaries) {
+			length += summary.getLength();
+			files += summary.getFileCount();
+			directories += summary.getDirectoryCount();
+			spaceConsumed += summary.getSpaceConsumed();
+		}
+		return new ContentSummary(length, files, directories, -1, spaceConsumed, -1);
+	}
+
+	@SuppressWarnings("serial")
+	private class SummaryTask extends RecursiveTask<ContentSummary> {
+
+		private final FileStatus status;
+
+		SummaryTask(FileStatus status) {
+			this.status = status;
+		}
+
+		@Override
+		protected ContentSummary compute() {
+			if (!status.isDirectory()) {
+				return new ContentSummary(status.getLen(), 1, 0, -1, status.getLen() * status.getReplication(), -1);
+			}
+			try {
+				if (serverSide) {
+					return fs.getContentSummary(status.getPath());
+				}
+				List<ContentSummary> summaries = new ArrayList<ContentSummary>();
+				List<SummaryTask> subtasks = new ArrayList<SummaryTask>();
+				for (FileStatus child : fs.listStatus(status.getPath())) {
+					if (child.isDirectory()) {
+						SummaryTask subtask = new SummaryTask(child);
+						subtask.fork();
+						subtasks.add(subtask);
+					}
+					else {
+						summaries.add(new SummaryTask(child).compute());
+					}
+				}
+				for (SummaryTask subtask : subtasks) {
+					summaries.add(subtask.join());
+				}
+				ContentSummary total = sum(summaries);
+				return new ContentSummary(total.getLength(), total.getFileCount(), total.getDirectoryCount() + 1, -1,
+						total.getSpaceConsumed(), -1);
+			}
+			catch (IOException e) {
+				throw new HadoopException("Cannot get content summary for " + status.getPath() + ": " + e.getMessage(), e);
+			}
+		}
+	}
+}
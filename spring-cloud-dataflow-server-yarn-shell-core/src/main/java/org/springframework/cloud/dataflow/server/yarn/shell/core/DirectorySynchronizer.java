@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import org.springframework.cloud.dataflow.server.yarn.shell.core.ParallelFileCopier.FileCopy;
+import org.springframework.data.hadoop.HadoopException;
+
+/**
+ * Synchronizes a source directory into a destination directory by
+ * transferring only files which are new or changed. Files are considered
+ * changed if size or modification time differs and optionally if
+ * checksums differ. Modification times of copied files are preserved so
+ * that subsequent runs can detect unchanged files without reading them.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+class DirectorySynchronizer {
+
+	private final FileSystem srcFs;
+	private final FileSystem dstFs;
+	private final int parallelism;
+	private final PrintStream out;
+	private boolean checksum;
+	private boolean delete;
+
+	/**
+	 * Instantiates a new directory synchronizer.
+	 *
+	 * @param srcFs the source file system
+	 * @param dstFs the destination file system
+	 * @param parallelism the number of concurrent copy workers
+	 * @param out the stream where progress is reported
+	 */
+	DirectorySynchronizer(FileSystem srcFs, FileSystem dstFs, int parallelism, PrintStream out) {
+		this.srcFs = srcFs;
+		this.dstFs = dstFs;
+		this.parallelism = parallelism;
+		this.out = out;
+	}
+
+	/**
+	 * Sets whether file checksums are compared in addition to size and
+	 * modification time.
+	 *
+	 * @param checksum the checksum flag
+	 */
+	void setChecksum(boolean checksum) {
+		this.checksum = checksum;
+	}
+
+	/**
+	 * Sets whether destination files not existing in a source are deleted.
+	 *
+	 * @param delete the delete flag
+	 */
+	void setDelete(boolean delete) {
+		this.delete = delete;
+	}
+
+	/**
+	 * Synchronizes source directory into a destination directory.
+	 *
+	 * @param source the source directory
+	 * @param destination the destination directory
+	 * @return the summary of the synchronization
+	 * @throws IOException if synchronization fails
+	 */
+	String sync(String source, String destination) throws IOException {
+		Path src = srcFs.makeQualified(new Path(source));
+		Path dst = dstFs.makeQualified(new Path(destination));
+		if (!srcFs.exists(src) || !srcFs.getFileStatus(src).isDirectory()) {
+			throw new HadoopException("Source " + source + " is not a directory");
+		}
+		if (dstFs.exists(dst) && !dstFs.getFileStatus(dst).isDirectory()) {
+			throw new HadoopException("Destination " + destination + " is not a directory");
+		}
+		dstFs.mkdirs(dst);
+
+		NavigableMap<String, FileStatus> srcFiles = new TreeMap<String, FileStatus>();
+		NavigableMap<String, FileStatus> dstFiles = new TreeMap<String, FileStatus>();
+		walk(srcFs, src, "", srcFiles);
+		walk(dstFs, dst, "", dstFiles);
+
+		List<FileCopy> copies = new ArrayList<FileCopy>();
+		int created = 0;
+		int changed = 0;
+		int unchanged = 0;
+		for (Entry<String, FileStatus> entry : srcFiles.entrySet()) {
+			FileStatus srcStatus = entry.getValue();
+			FileStatus dstStatus = dstFiles.remove(entry.getKey());
+			Path target = new Path(dst, entry.getKey());
+			if (dstStatus != null && srcStatus.isDirectory() != dstStatus.isDirectory()) {
+				dstFs.delete(target, true);
+				removeChildren(dstFiles, entry.getKey());
+				dstStatus = null;
+			}
+			if (srcStatus.isDirectory()) {
+				if (dstStatus == null) {
+					dstFs.mkdirs(target);
+				}
+			}
+			else if (dstStatus == null) {
+				created++;
+				copies.add(new FileCopy(srcStatus, target));
+			}
+			else if (isChanged(srcStatus, dstStatus)) {
+				changed++;
+				copies.add(new FileCopy(srcStatus, target));
+			}
+			else {
+				unchanged++;
+			}
+		}
+
+		int deleted = 0;
+		if (delete) {
+			// entries left are extras, deleting a directory removes its children
+			while (!dstFiles.isEmpty()) {
+				String extra = dstFiles.pollFirstEntry().getKey();
+				dstFs.delete(new Path(dst, extra), true);
+				removeChildren(dstFiles, extra);
+				deleted++;
+			}
+		}
+
+		StringBuilder buf = new StringBuilder();
+		buf.append(created + " new, " + changed + " changed, " + unchanged + " unchanged, " + deleted + " deleted");
+		if (!copies.isEmpty()) {
+			ParallelFileCopier copier = new ParallelFileCopier(srcFs, dstFs, parallelism, out);
+			copier.setOverwrite(true);
+			copier.setPreserveTimes(true);
+			buf.append("\n");
+			buf.append(copier.copy(copies));
+		}
+		return buf.toString();
+	}
+
+	private boolean isChanged(FileStatus srcStatus, FileStatus dstStatus) throws IOException {
+		if (srcStatus.getLen() != dstStatus.getLen()
+				|| srcStatus.getModificationTime() != dstStatus.getModificationTime()) {
+			return true;
+		}
+		if (!checksum) {
+			return false;
+		}
+		FileChecksum srcChecksum = srcFs.getFileChecksum(srcStatus.getPath());
+		FileChecksum dstChecksum = dstFs.getFileChecksum(dstStatus.getPath());
+		if (srcChecksum != null && dstChecksum != null && srcChecksum.getAlgorithmName().equals(dstChecksum.getAlgorithmName())) {
+			return !srcChecksum.equals(dstChecksum);
+		}
+		// checksums are not comparable across file systems, i.e. local vs. hdfs
+		return !Arrays.equals(digest(srcFs, srcStatus.getPath()), digest(dstFs, dstStatus.getPath()));
+	}
+
+	private static byte[] digest(FileSystem fs, Path path) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new HadoopException("MD5 digest not available", e);
+		}
+		byte[] buffer = new byte[65536];
+		InputStream in = fs.open(path);
+		try {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return digest.digest();
+	}
+
+	private static void walk(FileSystem fs, Path dir, String prefix, NavigableMap<String, FileStatus> files)
+			throws IOException {
+		for (FileStatus status : fs.listStatus(dir)) {
+			String name = prefix + status.getPath().getName();
+			files.put(name, status);
+			if (status.isDirectory()) {
+				walk(fs, status.getPath(), name + Path.SEPARATOR, files);
+			}
+		}
+	}
+
+	private static void removeChildren(NavigableMap<String, FileStatus> files, String dir) {
+		String prefix = dir + Path.SEPARATOR;
+		files.subMap(prefix, prefix + Character.MAX_VALUE).clear();
+	}
+}
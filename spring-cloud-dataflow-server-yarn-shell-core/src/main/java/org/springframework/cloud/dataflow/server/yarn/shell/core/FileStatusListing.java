@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.RemoteIterator;
+
+/**
+ * Lazily fetched listing of file statuses backed by
+ * {@link RemoteIterator}s. Directory contents are requested from the
+ * file system only when the listing advances into them, which keeps
+ * memory usage bounded by the page size instead of by the directory size.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+class FileStatusListing {
+
+	private final FileSystem fs;
+	private final MetadataCache cache;
+	private final boolean recursive;
+	private final Deque<FileStatus> roots;
+	private final Deque<RemoteIterator<LocatedFileStatus>> iterators = new ArrayDeque<RemoteIterator<LocatedFileStatus>>();
+	private FileStatus next;
+	private long remaining;
+
+	/**
+	 * Instantiates a new file status listing.
+	 *
+	 * @param fs the file system
+	 * @param cache the metadata cache
+	 * @param roots the matched root statuses
+	 * @param recursive whether to descend into subdirectories
+	 * @param limit the maximum number of entries, negative for no limit
+	 */
+	FileStatusListing(FileSystem fs, MetadataCache cache, FileStatus[] roots, boolean recursive, long limit) {
+		this.fs = fs;
+		this.cache = cache;
+		this.recursive = recursive;
+		this.roots = new ArrayDeque<FileStatus>(Arrays.asList(roots));
+		this.remaining = limit < 0 ? Long.MAX_VALUE : limit;
+	}
+
+	/**
+	 * Checks if there are more entries available.
+	 *
+	 * @return true, if more entries are available
+	 * @throws IOException if listing fails
+	 */
+	boolean hasNext() throws IOException {
+		if (remaining <= 0) {
+			return false;
+		}
+		while (next == null) {
+			if (!iterators.isEmpty()) {
+				RemoteIterator<LocatedFileStatus> iterator = iterators.peek();
+				if (iterator.hasNext()) {
+					next = iterator.next();
+					if (recursive && next.isDirectory()) {
+						iterators.push(cache.listLocatedStatus(fs, next.getPath()));
+					}
+				}
+				else {
+					iterators.pop();
+				}
+			}
+			else if (!roots.isEmpty()) {
+				FileStatus root = roots.poll();
+				if (root.isDirectory()) {
+					iterators.push(cache.listLocatedStatus(fs, root.getPath()));
+				}
+				else {
+					next = root;
+				}
+			}
+			else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fetches next page of entries.
+	 *
+	 * @param pageSize the maximum number of entries in a page
+	 * @return the entries in a page
+	 * @throws IOException if listing fails
+	 */
+	List<FileStatus> nextPage(int pageSize) throws IOException {
+		List<FileStatus> page = new ArrayList<FileStatus>(Math.min(pageSize, 1024));
+		while (page.size() < pageSize && hasNext()) {
+			page.add(next);
+			next = null;
+			remaining--;
+		}
+		return page;
+	}
+}
@@ -16,19 +16,37 @@
 
 package org.springframework.cloud.dataflow.server.yarn.shell.core;
 
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.text.SimpleDateFormat;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.client.HdfsDataInputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.hadoop.HadoopException;
 import org.springframework.data.hadoop.fs.FsShell;
 import org.springframework.shell.core.CommandMarker;
 import org.springframework.shell.core.annotation.CliCommand;
 import org.springframework.shell.core.annotation.CliOption;
 import org.springframework.shell.table.AbsoluteWidthSizeConstraints;
+import org.springframework.shell.table.ArrayTableModel;
 import org.springframework.shell.table.BorderSpecification;
 import org.springframework.shell.table.BorderStyle;
 import org.springframework.shell.table.CellMatchers;
@@ -37,6 +55,8 @@ import org.springframework.shell.table.Table;
 import org.springframework.shell.table.TableBuilder;
 import org.springframework.shell.table.TableModel;
 import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 /**
  * Shell hdfs related commands.
@@ -61,68 +81,506 @@ public class HadoopCommands implements CommandMarker {
 	private static final String SOURCE_FILE_NAMES = "source file names";
 	private static final String DESTINATION_PATH_NAME = "destination path name";
 	private static final String PATH = "path";
+	private static final String OFFSET = "offset";
+	private static final String LENGTH = "length";
+	private static final String HEAD = "head";
+	private static final String LIMIT = "limit";
+	private static final String PAGE_SIZE = "page-size";
+	private static final String CURSOR = "cursor";
+	private static final String PARALLELISM = "parallelism";
+	private static final String CHECKSUM = "checksum";
+	private static final String DELETE = "delete";
+	private static final String INPUT_FILE = "input-file";
+	private static final String SUMMARY = "summary";
+	private static final String BYTES = "bytes";
+	private static final String FOLLOW = "follow";
+	private static final String INTERVAL = "interval";
+	private static final String DURATION = "duration";
+	private static final String CLEAR = "clear";
+	private static final String TTL = "ttl";
+	private static final String MAX_STATUSES = "max-statuses";
+	private static final String WALK_PARALLELISM_HELP = "number of concurrent workers walking directory trees";
+	private static final String PARALLELISM_HELP = "number of files or block ranges copied concurrently";
+	private static final String HDFS_PATH = HdfsPathConverter.OPTION_CONTEXT;
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_CURSORS = 16;
+	private static final long DEFAULT_CACHE_TTL = 5000;
+	private static final int DEFAULT_CACHE_MAX_STATUSES = 10000;
 
 	private FsShell shell;
+	private Configuration configuration;
+	private FileSystem fileSystem;
+	private final MetadataCache metadataCache = new MetadataCache(DEFAULT_CACHE_TTL, DEFAULT_CACHE_MAX_STATUSES);
+	private int cursorCounter;
+
+	@SuppressWarnings("serial")
+	private final Map<String, FileStatusListing> cursors = new LinkedHashMap<String, FileStatusListing>(MAX_CURSORS, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, FileStatusListing> eldest) {
+			return size() > MAX_CURSORS;
+		}
+	};
 
 	@Autowired
 	public void setFsShell(FsShell shell) {
 		this.shell = shell;
 	}
 
+	@Autowired
+	public void setConfiguration(Configuration configuration) {
+		this.configuration = configuration;
+		this.fileSystem = null;
+		metadataCache.clear();
+	}
+
 	@CliCommand(value = PREFIX + "ls", help = "List files in the directory")
-	public Table ls(
-			@CliOption(key = { "", DIR }, mandatory = false, unspecifiedDefaultValue = ".", help = "directory to be listed") final String path,
-			@CliOption(key = { RECURSIVE }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = RECURSION_HELP) final boolean recursive) {
-		Collection<FileStatus> files = recursive ? shell.lsr(path) : shell.ls(path);
-		return applySimpleListStyle(new TableBuilder(new FileStatusTableModel(files.toArray(new FileStatus[0])))).build();
+	public List<Object> ls(
+			@CliOption(key = { "", DIR }, optionContext = HDFS_PATH, mandatory = false, unspecifiedDefaultValue = ".", help = "directory to be listed") final String path,
+			@CliOption(key = { RECURSIVE }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = RECURSION_HELP) final boolean recursive,
+			@CliOption(key = { LIMIT }, mandatory = false, unspecifiedDefaultValue = "-1", help = "maximum number of entries to list") final long limit,
+			@CliOption(key = { PAGE_SIZE }, mandatory = false, unspecifiedDefaultValue = "1000", help = "maximum number of entries in a page") final int pageSize,
+			@CliOption(key = { CURSOR }, mandatory = false, help = "cursor to continue a previous listing") final String cursor) {
+		try {
+			FileStatusListing listing;
+			String id = cursor;
+			if (id != null) {
+				listing = cursors.remove(id);
+				if (listing == null) {
+					throw new HadoopException("Unknown or expired cursor " + id);
+				}
+			}
+			else {
+				FileSystem fs = getFileSystem();
+				listing = new FileStatusListing(fs, metadataCache, globFiles(fs, path), recursive, limit);
+				id = Integer.toString(++cursorCounter);
+			}
+			List<FileStatus> page = listing.nextPage(Math.max(pageSize, 1));
+			List<Object> result = new ArrayList<Object>();
+			result.add(applySimpleListStyle(new TableBuilder(new FileStatusTableModel(page))).build());
+			if (listing.hasNext()) {
+				cursors.put(id, listing);
+				result.add("More entries available, continue with '" + PREFIX + "ls --" + CURSOR + " " + id + "'");
+			}
+			return result;
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot list " + path + ": " + e.getMessage(), e);
+		}
 	}
 
-	@CliCommand(value = PREFIX + "rm", help = "Remove files in the HDFS")
-	public void rm(
-			@CliOption(key = { "", PATH }, mandatory = false, unspecifiedDefaultValue = ".", help = "path to be deleted") final String path,
+	@CliCommand(value = PREFIX + "rm", help = "Remove files matching paths or globs in the HDFS")
+	public String rm(
+			@CliOption(key = { "", PATH }, optionContext = HDFS_PATH, mandatory = false, unspecifiedDefaultValue = ".", help = "path to be deleted") final String path,
 			@CliOption(key = { SKIPTRASH }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to skip trash") final boolean skipTrash,
-			@CliOption(key = { RECURSIVE }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to recurse") final boolean recursive) {
-		shell.rm(recursive, skipTrash, path);
+			@CliOption(key = { RECURSIVE }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to recurse") final boolean recursive,
+			@CliOption(key = { INPUT_FILE }, mandatory = false, help = "local file listing paths to be deleted, one per line") final String inputFile,
+			@CliOption(key = { PARALLELISM }, mandatory = false, unspecifiedDefaultValue = "8", help = "maximum number of concurrent deletes") final int parallelism) {
+		ParallelPathRemover remover = new ParallelPathRemover(getFileSystem(), configuration, recursive, skipTrash,
+				parallelism, System.out);
+		try {
+			if (StringUtils.hasText(inputFile)) {
+				try {
+					BufferedReader reader = new BufferedReader(new FileReader(inputFile));
+					try {
+						String line;
+						while ((line = reader.readLine()) != null) {
+							if (StringUtils.hasText(line)) {
+								remover.remove(line.trim());
+							}
+						}
+					}
+					finally {
+						reader.close();
+					}
+				}
+				catch (IOException e) {
+					throw new HadoopException("Cannot read input file " + inputFile + ": " + e.getMessage(), e);
+				}
+			}
+			else {
+				remover.remove(path);
+			}
+			return remover.await();
+		}
+		finally {
+			remover.close();
+			if (StringUtils.hasText(inputFile)) {
+				metadataCache.clear();
+			}
+			else {
+				invalidate(path);
+			}
+		}
 	}
 
 	@CliCommand(value = PREFIX + "cat", help = "Copy source paths to stdout")
-	public String cat(
-			@CliOption(key = { "", PATH }, mandatory = true, unspecifiedDefaultValue = ".", help = "file name to be shown") final String path) {
-		return shell.cat(path).toString();
+	public void cat(
+			@CliOption(key = { "", PATH }, optionContext = HDFS_PATH, mandatory = true, unspecifiedDefaultValue = ".", help = "file name to be shown") final String path,
+			@CliOption(key = { OFFSET }, mandatory = false, unspecifiedDefaultValue = "0", help = "byte offset to start reading from") final long offset,
+			@CliOption(key = { LENGTH }, mandatory = false, unspecifiedDefaultValue = "-1", help = "maximum number of bytes to read") final long length,
+			@CliOption(key = { HEAD }, mandatory = false, unspecifiedDefaultValue = "-1", help = "maximum number of lines to show") final int head) {
+		FileSystem fs = getFileSystem();
+		PrintStream out = System.out;
+		try {
+			for (FileStatus status : globFiles(fs, path)) {
+				if (status.isDirectory()) {
+					throw new HadoopException("Cannot cat " + status.getPath() + ": Is a directory");
+				}
+				int last = streamFile(fs, status.getPath(), offset, length, head, out);
+				if (last != -1 && last != '\n') {
+					out.println();
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot cat " + path + ": " + e.getMessage(), e);
+		}
+		finally {
+			out.flush();
+		}
+	}
+
+	@CliCommand(value = PREFIX + "tail", help = "Show the last bytes of a file and optionally follow appended data")
+	public void tail(
+			@CliOption(key = { "", PATH }, optionContext = HDFS_PATH, mandatory = true, help = "file name to be shown") final String path,
+			@CliOption(key = { BYTES }, mandatory = false, unspecifiedDefaultValue = "1024", help = "number of bytes to show from the end of a file") final long bytes,
+			@CliOption(key = { FOLLOW }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to keep showing data appended to a file") final boolean follow,
+			@CliOption(key = { INTERVAL }, mandatory = false, unspecifiedDefaultValue = "1000", help = "poll interval in milliseconds when following a file") final long interval,
+			@CliOption(key = { DURATION }, mandatory = false, unspecifiedDefaultValue = "0", help = "seconds to follow a file, zero to follow until interrupted") final long duration) {
+		Assert.isTrue(bytes > 0, "Option --" + BYTES + " must be greater than zero");
+		FileSystem fs = getFileSystem();
+		Path file = new Path(path);
+		PrintStream out = System.out;
+		long end = duration > 0 ? System.currentTimeMillis() + duration * 1000 : Long.MAX_VALUE;
+		int last = -1;
+		try {
+			if (metadataCache.getFileStatus(fs, file).isDirectory()) {
+				throw new HadoopException("Cannot tail " + path + ": Is a directory");
+			}
+			long length = visibleLength(fs, file);
+			long offset = Math.max(length - bytes, 0);
+			while (true) {
+				if (length < offset) {
+					out.println("File " + path + " truncated, showing from the beginning");
+					offset = 0;
+				}
+				if (length > offset) {
+					last = streamFile(fs, file, offset, length - offset, -1, out);
+					offset = length;
+				}
+				out.flush();
+				if (!follow || System.currentTimeMillis() >= end) {
+					break;
+				}
+				Thread.sleep(interval);
+				length = visibleLength(fs, file);
+			}
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot tail " + path + ": " + e.getMessage(), e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if (last != -1 && last != '\n') {
+				out.println();
+			}
+			out.flush();
+		}
 	}
 
 	@CliCommand(value = PREFIX + "copyFromLocal", help = "Copy single src, or multiple srcs from local file system to the destination file system.")
-	public void copyFromLocal(
+	public String copyFromLocal(
 			@CliOption(key = { FROM }, mandatory = true, help = SOURCE_FILE_NAMES) final String source,
-			@CliOption(key = { TO }, mandatory = true, help = DESTINATION_PATH_NAME) final String dest) {
-		shell.copyFromLocal(source, dest);
+			@CliOption(key = { TO }, optionContext = HDFS_PATH, mandatory = true, help = DESTINATION_PATH_NAME) final String dest,
+			@CliOption(key = { PARALLELISM }, mandatory = false, unspecifiedDefaultValue = "1", help = PARALLELISM_HELP) final int parallelism) {
+		try {
+			if (parallelism <= 1) {
+				shell.copyFromLocal(source, dest);
+				return null;
+			}
+			return parallelCopy(FileSystem.getLocal(configuration), getFileSystem(), source, dest, parallelism);
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot copy " + source + " to " + dest + ": " + e.getMessage(), e);
+		}
+		finally {
+			invalidate(dest);
+		}
 	}
 
 	@CliCommand(value = PREFIX + "copyToLocal", help = "Copy files to the local file system.")
-	public void copyToLocal(
-			@CliOption(key = { FROM }, mandatory = true, help = SOURCE_FILE_NAMES) final String source,
+	public String copyToLocal(
+			@CliOption(key = { FROM }, optionContext = HDFS_PATH, mandatory = true, help = SOURCE_FILE_NAMES) final String source,
 			@CliOption(key = { TO }, mandatory = true, help = DESTINATION_PATH_NAME) final String dest,
 			@CliOption(key = { IGNORECRC }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether ignore CRC") final boolean ignoreCrc,
-			@CliOption(key = { CRC }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether copy CRC") final boolean crc) {
-		shell.copyToLocal(ignoreCrc, crc, source, dest);
+			@CliOption(key = { CRC }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether copy CRC") final boolean crc,
+			@CliOption(key = { PARALLELISM }, mandatory = false, unspecifiedDefaultValue = "1", help = PARALLELISM_HELP) final int parallelism) {
+		// crc handling is left to FsShell as it needs checksum aware file systems
+		if (parallelism <= 1 || ignoreCrc || crc) {
+			shell.copyToLocal(ignoreCrc, crc, source, dest);
+			return null;
+		}
+		try {
+			return parallelCopy(getFileSystem(), FileSystem.getLocal(configuration).getRaw(), source, dest, parallelism);
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot copy " + source + " to " + dest + ": " + e.getMessage(), e);
+		}
+	}
+
+	@CliCommand(value = PREFIX + "sync", help = "Copy new and changed files from local directory to the destination directory")
+	public String sync(
+			@CliOption(key = { FROM }, mandatory = true, help = "source directory name") final String source,
+			@CliOption(key = { TO }, optionContext = HDFS_PATH, mandatory = true, help = "destination directory name") final String dest,
+			@CliOption(key = { CHECKSUM }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to compare file checksums") final boolean checksum,
+			@CliOption(key = { DELETE }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to delete files not existing in source") final boolean delete,
+			@CliOption(key = { PARALLELISM }, mandatory = false, unspecifiedDefaultValue = "4", help = PARALLELISM_HELP) final int parallelism) {
+		try {
+			DirectorySynchronizer synchronizer = new DirectorySynchronizer(FileSystem.getLocal(configuration),
+					getFileSystem(), parallelism, System.out);
+			synchronizer.setChecksum(checksum);
+			synchronizer.setDelete(delete);
+			return synchronizer.sync(source, dest);
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot sync " + source + " to " + dest + ": " + e.getMessage(), e);
+		}
+		finally {
+			invalidate(dest);
+		}
+	}
+
+	@CliCommand(value = PREFIX + "du", help = "Show space used by files and directories")
+	public Table du(
+			@CliOption(key = { "", PATH }, optionContext = HDFS_PATH, mandatory = false, unspecifiedDefaultValue = ".", help = "path to be summarized") final String path,
+			@CliOption(key = { SUMMARY }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to show only a total for matched paths") final boolean summary,
+			@CliOption(key = { PARALLELISM }, mandatory = false, unspecifiedDefaultValue = "8", help = WALK_PARALLELISM_HELP) final int parallelism) {
+		try {
+			FileSystem fs = getFileSystem();
+			ContentSummaryCollector collector = new ContentSummaryCollector(fs, parallelism);
+			List<Object[]> rows = new ArrayList<Object[]>();
+			for (FileStatus status : globFiles(fs, path)) {
+				if (summary || !status.isDirectory()) {
+					addDuRow(rows, status.getPath(), collector.collect(new FileStatus[] { status }).get(status));
+				}
+				else {
+					Map<FileStatus, ContentSummary> summaries = collector.collect(fs.listStatus(status.getPath()));
+					for (Entry<FileStatus, ContentSummary> entry : summaries.entrySet()) {
+						addDuRow(rows, entry.getKey().getPath(), entry.getValue());
+					}
+					addDuRow(rows, status.getPath(), ContentSummaryCollector.sum(summaries.values()));
+				}
+			}
+			return applySummaryStyle(new TableBuilder(new ArrayTableModel(rows.toArray(new Object[0][])))).build();
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot summarize " + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	@CliCommand(value = PREFIX + "count", help = "Count directories, files and bytes under the paths")
+	public Table count(
+			@CliOption(key = { "", PATH }, optionContext = HDFS_PATH, mandatory = false, unspecifiedDefaultValue = ".", help = "path to be counted") final String path,
+			@CliOption(key = { PARALLELISM }, mandatory = false, unspecifiedDefaultValue = "8", help = WALK_PARALLELISM_HELP) final int parallelism) {
+		try {
+			FileSystem fs = getFileSystem();
+			Map<FileStatus, ContentSummary> summaries = new ContentSummaryCollector(fs, parallelism).collect(globFiles(fs, path));
+			List<Object[]> rows = new ArrayList<Object[]>();
+			for (Entry<FileStatus, ContentSummary> entry : summaries.entrySet()) {
+				ContentSummary summary = entry.getValue();
+				rows.add(new Object[] { summary.getDirectoryCount(), summary.getFileCount(), summary.getLength(),
+						Path.getPathWithoutSchemeAndAuthority(entry.getKey().getPath()) });
+			}
+			return applySummaryStyle(new TableBuilder(new ArrayTableModel(rows.toArray(new Object[0][])))).build();
+		}
+		catch (IOException e) {
+			throw new HadoopException("Cannot count " + path + ": " + e.getMessage(), e);
+		}
 	}
 
 	@CliCommand(value = PREFIX + "expunge", help = "Empty the trash")
 	public void expunge() {
-		shell.expunge();
+		try {
+			shell.expunge();
+		}
+		finally {
+			metadataCache.clear();
+		}
 	}
 
 	@CliCommand(value = PREFIX + "mv", help = "Move source files to destination in the HDFS")
 	public void mv(
-			@CliOption(key = { FROM }, mandatory = true, help = SOURCE_FILE_NAMES) final String source,
-			@CliOption(key = { TO }, mandatory = true, help = DESTINATION_PATH_NAME) final String dest) {
-		shell.mv(source, dest);
+			@CliOption(key = { FROM }, optionContext = HDFS_PATH, mandatory = true, help = SOURCE_FILE_NAMES) final String source,
+			@CliOption(key = { TO }, optionContext = HDFS_PATH, mandatory = true, help = DESTINATION_PATH_NAME) final String dest) {
+		try {
+			shell.mv(source, dest);
+		}
+		finally {
+			invalidate(source);
+			invalidate(dest);
+		}
 	}
 
 	@CliCommand(value = PREFIX + "mkdir", help = "Create a new directory")
 	public void mkdir(
-			@CliOption(key = { "", DIR }, mandatory = true, help = "directory name") final String dir) {
-		shell.mkdir(dir);
+			@CliOption(key = { "", DIR }, optionContext = HDFS_PATH, mandatory = true, help = "directory name") final String dir) {
+		try {
+			shell.mkdir(dir);
+		}
+		finally {
+			invalidate(dir);
+		}
+	}
+
+	@CliCommand(value = PREFIX + "cache", help = "Show and tune the shell side metadata cache")
+	public String cache(
+			@CliOption(key = { CLEAR }, mandatory = false, specifiedDefaultValue = TRUE, unspecifiedDefaultValue = FALSE, help = "whether to clear cached entries") final boolean clear,
+			@CliOption(key = { TTL }, mandatory = false, help = "time to live of cached entries in milliseconds, zero disables caching") final Long ttl,
+			@CliOption(key = { MAX_STATUSES }, mandatory = false, help = "maximum number of cached file statuses") final Integer maxStatuses) {
+		if (clear) {
+			metadataCache.clear();
+		}
+		if (ttl != null) {
+			metadataCache.setTtl(ttl);
+		}
+		if (maxStatuses != null) {
+			metadataCache.setMaxStatuses(maxStatuses);
+		}
+		return metadataCache.getStats();
+	}
+
+	/**
+	 * Gets the file system commands operate on.
+	 *
+	 * @return the file system
+	 */
+	synchronized FileSystem getFileSystem() {
+		if (fileSystem == null) {
+			try {
+				fileSystem = FileSystem.get(configuration);
+			}
+			catch (IOException e) {
+				throw new HadoopException("Cannot get FileSystem", e);
+			}
+		}
+		return fileSystem;
+	}
+
+	/**
+	 * Gets the metadata cache shared by listing commands and path completion.
+	 *
+	 * @return the metadata cache
+	 */
+	MetadataCache getMetadataCache() {
+		return metadataCache;
+	}
+
+	private void invalidate(String path) {
+		metadataCache.invalidate(path);
+	}
+
+	private static String parallelCopy(FileSystem srcFs, FileSystem dstFs, String source, String dest, int parallelism)
+			throws IOException {
+		ParallelFileCopier copier = new ParallelFileCopier(srcFs, dstFs, parallelism, System.out);
+		return copier.copy(copier.plan(source, dest));
+	}
+
+	/**
+	 * Gets the length of a file visible to readers. For files still being
+	 * written into hdfs the namenode only knows the length of completed blocks,
+	 * so the length is asked from the input stream instead.
+	 */
+	private static long visibleLength(FileSystem fs, Path path) throws IOException {
+		if (fs instanceof DistributedFileSystem) {
+			FSDataInputStream in = fs.open(path);
+			try {
+				return ((HdfsDataInputStream) in).getVisibleLength();
+			}
+			finally {
+				in.close();
+			}
+		}
+		return fs.getFileStatus(path).getLen();
+	}
+
+	private FileStatus[] globFiles(FileSystem fs, String path) throws IOException {
+		FileStatus[] statuses;
+		if (MetadataCache.isGlob(path)) {
+			statuses = fs.globStatus(new Path(path));
+		}
+		else {
+			try {
+				statuses = new FileStatus[] { metadataCache.getFileStatus(fs, new Path(path)) };
+			}
+			catch (FileNotFoundException e) {
+				statuses = null;
+			}
+		}
+		if (statuses == null || statuses.length == 0) {
+			throw new HadoopException("Cannot access " + path + ": No such file or directory.");
+		}
+		return statuses;
+	}
+
+	/**
+	 * Copies bytes from a file into a given stream using a fixed size buffer
+	 * so that memory usage stays flat regardless of the file size.
+	 *
+	 * @param fs the file system
+	 * @param path the file path
+	 * @param offset the byte offset to start from
+	 * @param length the maximum number of bytes to copy, negative for no limit
+	 * @param lines the maximum number of lines to copy, negative for no limit
+	 * @param out the output stream
+	 * @return the last byte written or -1 if nothing was written
+	 * @throws IOException if read or write fails
+	 */
+	private static int streamFile(FileSystem fs, Path path, long offset, long length, int lines, OutputStream out)
+			throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long remaining = length < 0 ? Long.MAX_VALUE : length;
+		int remainingLines = lines < 0 ? Integer.MAX_VALUE : lines;
+		int last = -1;
+		FSDataInputStream in = fs.open(path, BUFFER_SIZE);
+		try {
+			if (offset > 0) {
+				in.seek(offset);
+			}
+			while (remaining > 0 && remainingLines > 0) {
+				int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (read < 0) {
+					break;
+				}
+				int count = read;
+				for (int i = 0; i < read; i++) {
+					if (buffer[i] == '\n' && --remainingLines == 0) {
+						count = i + 1;
+						break;
+					}
+				}
+				out.write(buffer, 0, count);
+				last = buffer[count - 1];
+				remaining -= count;
+			}
+		}
+		finally {
+			in.close();
+		}
+		return last;
+	}
+
+	private static void addDuRow(List<Object[]> rows, Path path, ContentSummary summary) {
+		rows.add(new Object[] { summary.getLength(), summary.getSpaceConsumed(), Path.getPathWithoutSchemeAndAuthority(path) });
+	}
+
+	private static TableBuilder applySummaryStyle(TableBuilder builder) {
+		builder
+			.paintBorder(BorderStyle.air, BorderSpecification.INNER_VERTICAL)
+				.fromTopLeft().toBottomRight();
+		return builder;
 	}
 
 	private static TableBuilder applySimpleListStyle(TableBuilder builder) {
@@ -150,15 +608,15 @@ public class HadoopCommands implements CommandMarker {
 
 	private static class FileStatusTableModel extends TableModel {
 
-		private final FileStatus[] statuses;
+		private final List<FileStatus> statuses;
 
-		public FileStatusTableModel(FileStatus[] statuses) {
+		public FileStatusTableModel(List<FileStatus> statuses) {
 			this.statuses = statuses;
 		}
 
 		@Override
 		public int getRowCount() {
-			return statuses.length;
+			return statuses.size();
 		}
 
 		@Override
@@ -168,23 +626,24 @@ public class HadoopCommands implements CommandMarker {
 
 		@Override
 		public Object getValue(int row, int column) {
+			FileStatus status = statuses.get(row);
 			if (column == 0) {
-				return statuses[row].getPermission().toString();
+				return status.getPermission().toString();
 			}
 			else if (column == 1) {
-				return statuses[row].getOwner();
+				return status.getOwner();
 			}
 			else if (column == 2) {
-				return statuses[row].getGroup();
+				return status.getGroup();
 			}
 			else if (column == 3) {
-				return statuses[row].getLen();
+				return status.getLen();
 			}
 			else if (column == 4) {
-				return statuses[row].getModificationTime();
+				return status.getModificationTime();
 			}
 			else if (column == 5) {
-				return Path.getPathWithoutSchemeAndAuthority(statuses[row].getPath());
+				return Path.getPathWithoutSchemeAndAuthority(status.getPath());
 			}
 			else {
 				return "";
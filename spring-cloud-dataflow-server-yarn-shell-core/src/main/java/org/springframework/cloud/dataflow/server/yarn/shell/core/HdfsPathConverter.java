@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.hadoop.HadoopException;
+import org.springframework.shell.core.Completion;
+import org.springframework.shell.core.Converter;
+import org.springframework.shell.core.MethodTarget;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link Converter} completing hdfs paths for options marked with
+ * {@link #OPTION_CONTEXT}. Directory listings are read through the
+ * {@link MetadataCache} of {@link HadoopCommands} so that repeated tab
+ * presses within a same directory don't hit the namenode again.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+@Component
+public class HdfsPathConverter implements Converter<String> {
+
+	/** Option context marking hdfs paths, also disables a default string converter. */
+	public static final String OPTION_CONTEXT = "hdfs-path disable-string-converter";
+
+	private static final String HDFS_PATH = "hdfs-path";
+
+	private HadoopCommands commands;
+
+	@Autowired
+	public void setHadoopCommands(HadoopCommands commands) {
+		this.commands = commands;
+	}
+
+	@Override
+	public boolean supports(Class<?> type, String optionContext) {
+		return String.class.equals(type) && optionContext != null && optionContext.contains(HDFS_PATH);
+	}
+
+	@Override
+	public String convertFromText(String value, Class<?> targetType, String optionContext) {
+		return value;
+	}
+
+	@Override
+	public boolean getAllPossibleValues(List<Completion> completions, Class<?> targetType, String existingData,
+			String optionContext, MethodTarget target) {
+		String existing = existingData != null ? existingData : "";
+		if (MetadataCache.isGlob(existing)) {
+			return false;
+		}
+		int index = existing.lastIndexOf(Path.SEPARATOR_CHAR);
+		String parent = existing.substring(0, index + 1);
+		String prefix = existing.substring(index + 1);
+		try {
+			FileSystem fs = commands.getFileSystem();
+			Path dir = parent.isEmpty() ? fs.getWorkingDirectory() : new Path(parent);
+			RemoteIterator<LocatedFileStatus> iterator = commands.getMetadataCache().listLocatedStatus(fs, dir);
+			while (iterator.hasNext()) {
+				LocatedFileStatus status = iterator.next();
+				String name = status.getPath().getName();
+				if (name.startsWith(prefix)) {
+					completions.add(new Completion(parent + name + (status.isDirectory() ? Path.SEPARATOR : "")));
+				}
+			}
+		}
+		catch (IOException e) {
+			// nothing to complete from a missing or unreadable directory
+		}
+		catch (HadoopException e) {
+			// nothing to complete without a file system
+		}
+		return false;
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+/**
+ * Shell side cache for file system metadata. Caches file statuses and
+ * directory listings for a short time to avoid repeating identical
+ * namenode calls when paging through listings and completing paths. Glob
+ * expansions are never cached as those would hide changes made by other
+ * clients. Size of a cache is bounded by a total number of cached file
+ * statuses and least recently used entries are evicted first. Directory
+ * listings are cached only if they are fully iterated and fit into a
+ * cache.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+class MetadataCache {
+
+	private static final String LIST = "list:";
+	private static final String STATUS = "status:";
+	private final LinkedHashMap<String, CachedEntry> entries = new LinkedHashMap<String, CachedEntry>(16, 0.75f, true);
+	private long ttl;
+	private int maxStatuses;
+	private int statuses;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private FileSystem fileSystem;
+
+	/**
+	 * Instantiates a new metadata cache.
+	 *
+	 * @param ttl the time to live of entries in milliseconds, zero disables caching
+	 * @param maxStatuses the maximum number of cached file statuses
+	 */
+	MetadataCache(long ttl, int maxStatuses) {
+		this.ttl = ttl;
+		this.maxStatuses = maxStatuses;
+	}
+
+	/**
+	 * Sets the time to live of entries in milliseconds.
+	 *
+	 * @param ttl the new time to live
+	 */
+	synchronized void setTtl(long ttl) {
+		this.ttl = ttl;
+		if (ttl <= 0) {
+			clear();
+		}
+	}
+
+	/**
+	 * Sets the maximum number of cached file statuses.
+	 *
+	 * @param maxStatuses the new maximum number of statuses
+	 */
+	synchronized void setMaxStatuses(int maxStatuses) {
+		this.maxStatuses = maxStatuses;
+		evict();
+	}
+
+	/**
+	 * Returns an iterator over directory contents, possibly from a cache.
+	 * Statuses iterated from a file system are collected into a cache
+	 * once iterator is exhausted.
+	 *
+	 * @param fs the file system
+	 * @param path the directory path
+	 * @return the iterator over directory contents
+	 * @throws IOException if listing fails
+	 */
+	RemoteIterator<LocatedFileStatus> listLocatedStatus(FileSystem fs, Path path) throws IOException {
+		String key = LIST + qualify(fs, path);
+		FileStatus[] cached = get(key);
+		if (cached != null) {
+			return new ArrayIterator(cached);
+		}
+		return new CachingIterator(key, fs.listLocatedStatus(path));
+	}
+
+	/**
+	 * Gets a status of a path, possibly from a cache. Missing paths are
+	 * not cached.
+	 *
+	 * @param fs the file system
+	 * @param path the path
+	 * @return the file status
+	 * @throws IOException if path doesn't exist or status lookup fails
+	 */
+	FileStatus getFileStatus(FileSystem fs, Path path) throws IOException {
+		String key = STATUS + qualify(fs, path);
+		FileStatus[] cached = get(key);
+		if (cached != null) {
+			return cached[0];
+		}
+		FileStatus status = fs.getFileStatus(path);
+		put(key, new FileStatus[] { status });
+		return status;
+	}
+
+	/**
+	 * Invalidates cached entries for a path, its descendants and its
+	 * parent. Glob patterns as a path clear a whole cache. Relative paths
+	 * are resolved against a file system entries were cached from, thus
+	 * invalidating never touches a file system itself and never fails.
+	 *
+	 * @param path the path
+	 */
+	synchronized void invalidate(String path) {
+		if (fileSystem == null || entries.isEmpty()) {
+			return;
+		}
+		Path qualified;
+		try {
+			qualified = isGlob(path) ? null : fileSystem.makeQualified(new Path(path));
+		}
+		catch (IllegalArgumentException e) {
+			qualified = null;
+		}
+		if (qualified == null) {
+			clear();
+			return;
+		}
+		String self = qualified.toString();
+		String parent = qualified.getParent() != null ? qualified.getParent().toString() : null;
+		Iterator<Entry<String, CachedEntry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<String, CachedEntry> entry = iterator.next();
+			String key = entry.getKey();
+			String keyPath = key.substring(key.indexOf(':') + 1);
+			if (keyPath.equals(parent) || keyPath.equals(self)
+					|| keyPath.startsWith(self.endsWith(Path.SEPARATOR) ? self : self + Path.SEPARATOR)) {
+				statuses -= entry.getValue().statuses.length;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Clears all cached entries.
+	 */
+	synchronized void clear() {
+		entries.clear();
+		statuses = 0;
+	}
+
+	/**
+	 * Gets the cache statistics.
+	 *
+	 * @return the cache statistics
+	 */
+	synchronized String getStats() {
+		long requests = hits + misses;
+		return String.format(Locale.US,
+				"hits=%d, misses=%d, hitRatio=%.1f%%, evictions=%d, entries=%d, statuses=%d, ttl=%dms, maxStatuses=%d",
+				hits, misses, requests > 0 ? hits * 100d / requests : 0d, evictions, entries.size(), statuses, ttl,
+				maxStatuses);
+	}
+
+	private synchronized String qualify(FileSystem fs, Path path) {
+		fileSystem = fs;
+		return fs.makeQualified(path).toString();
+	}
+
+	private synchronized FileStatus[] get(String key) {
+		if (ttl <= 0) {
+			return null;
+		}
+		CachedEntry entry = entries.get(key);
+		if (entry != null && System.currentTimeMillis() - entry.created > ttl) {
+			entries.remove(key);
+			statuses -= entry.statuses.length;
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.statuses;
+	}
+
+	private synchronized void put(String key, FileStatus[] value) {
+		if (ttl <= 0 || value.length > maxStatuses) {
+			return;
+		}
+		CachedEntry old = entries.put(key, new CachedEntry(value));
+		if (old != null) {
+			statuses -= old.statuses.length;
+		}
+		statuses += value.length;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<CachedEntry> iterator = entries.values().iterator();
+		while (statuses > maxStatuses && iterator.hasNext()) {
+			statuses -= iterator.next().statuses.length;
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	static boolean isGlob(String path) {
+		for (char c : path.toCharArray()) {
+			if (c == '*' || c == '?' || c == '[' || c == '{' || c == '\\') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class CachedEntry {
+
+		final FileStatus[] statuses;
+		final long created = System.currentTimeMillis();
+
+		CachedEntry(FileStatus[] statuses) {
+			this.statuses = statuses;
+		}
+	}
+
+	private static class ArrayIterator implements RemoteIterator<LocatedFileStatus> {
+
+		private final FileStatus[] statuses;
+		private int index;
+
+		ArrayIterator(FileStatus[] statuses) {
+			this.statuses = statuses;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < statuses.length;
+		}
+
+		@Override
+		public LocatedFileStatus next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return (LocatedFileStatus) statuses[index++];
+		}
+	}
+
+	private class CachingIterator implements RemoteIterator<LocatedFileStatus> {
+
+		private final String key;
+		private final RemoteIterator<LocatedFileStatus> delegate;
+		private List<LocatedFileStatus> collected = new ArrayList<LocatedFileStatus>();
+
+		CachingIterator(String key, RemoteIterator<LocatedFileStatus> delegate) {
+			this.key = key;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public boolean hasNext() throws IOException {
+			boolean hasNext = delegate.hasNext();
+			if (!hasNext && collected != null) {
+				put(key, collected.toArray(new FileStatus[0]));
+				collected = null;
+			}
+			return hasNext;
+		}
+
+		@Override
+		public LocatedFileStatus next() throws IOException {
+			LocatedFileStatus status = delegate.next();
+			if (collected != null) {
+				collected.add(status);
+				// stop collecting listings which would not fit into a cache anyway
+				if (collected.size() > maxStatuses) {
+					collected = null;
+				}
+			}
+			return status;
+		}
+	}
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.io.IOUtils;
+
+import org.springframework.data.hadoop.HadoopException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Copies files between two file systems using a bounded pool of workers.
+ * Files are copied concurrently and when the target is a local file
+ * system, files larger than a block are further split into block ranges
+ * which are read and written in parallel. Target of a failed copy is
+ * removed so that a partially written file is never left behind.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+class ParallelFileCopier {
+
+	private static final int BUFFER_SIZE = 65536;
+	private final FileSystem srcFs;
+	private final FileSystem dstFs;
+	private final int parallelism;
+	private final PrintStream out;
+	private boolean overwrite;
+	private boolean preserveTimes;
+
+	/**
+	 * Instantiates a new parallel file copier.
+	 *
+	 * @param srcFs the source file system
+	 * @param dstFs the destination file system
+	 * @param parallelism the number of concurrent workers
+	 * @param out the stream where progress is reported
+	 */
+	ParallelFileCopier(FileSystem srcFs, FileSystem dstFs, int parallelism, PrintStream out) {
+		this.srcFs = srcFs;
+		this.dstFs = dstFs;
+		this.parallelism = Math.max(parallelism, 1);
+		this.out = out;
+	}
+
+	/**
+	 * Sets whether existing destination files are overwritten.
+	 *
+	 * @param overwrite the overwrite flag
+	 */
+	void setOverwrite(boolean overwrite) {
+		this.overwrite = overwrite;
+	}
+
+	/**
+	 * Sets whether source modification times are applied to
+	 * copied files.
+	 *
+	 * @param preserveTimes the preserve times flag
+	 */
+	void setPreserveTimes(boolean preserveTimes) {
+		this.preserveTimes = preserveTimes;
+	}
+
+	/**
+	 * Resolves source and destination specs into a list of file copies.
+	 * Destination directories are created as needed.
+	 *
+	 * @param source the source path, may be a glob
+	 * @param destination the destination path
+	 * @return the file copies
+	 * @throws IOException if resolving fails
+	 */
+	List<FileCopy> plan(String source, String destination) throws IOException {
+		FileStatus[] sources = srcFs.globStatus(new Path(source));
+		if (sources == null || sources.length == 0) {
+			throw new HadoopException("Cannot access " + source + ": No such file or directory.");
+		}
+		Path dst = dstFs.makeQualified(new Path(destination));
+		boolean dstIsDir = dstFs.exists(dst) && dstFs.getFileStatus(dst).isDirectory();
+		if (sources.length > 1 && !dstIsDir) {
+			throw new HadoopException("When copying multiple files, destination " + destination + " should be a directory.");
+		}
+		List<FileCopy> copies = new ArrayList<FileCopy>();
+		for (FileStatus status : sources) {
+			plan(status, dstIsDir ? new Path(dst, status.getPath().getName()) : dst, copies);
+		}
+		return copies;
+	}
+
+	private void plan(FileStatus source, Path target, List<FileCopy> copies) throws IOException {
+		if (source.isDirectory()) {
+			dstFs.mkdirs(target);
+			for (FileStatus child : srcFs.listStatus(source.getPath())) {
+				plan(child, new Path(target, child.getPath().getName()), copies);
+			}
+		}
+		else {
+			copies.add(new FileCopy(source, target));
+		}
+	}
+
+	/**
+	 * Copies the given files and reports progress for every completed
+	 * file.
+	 *
+	 * @param copies the file copies
+	 * @return the summary of the copy
+	 * @throws IOException if preparing a copy fails
+	 * @throws HadoopException if any copy fails, with a first failure as
+	 *         its cause
+	 */
+	String copy(List<FileCopy> copies) throws IOException {
+		long start = System.currentTimeMillis();
+		final AtomicInteger completed = new AtomicInteger();
+		final AtomicLong bytes = new AtomicLong();
+		final int total = copies.size();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("hdfs-copy-"));
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		try {
+			for (final FileCopy copy : copies) {
+				final FileProgress progress = new FileProgress() {
+
+					@Override
+					void completed(long elapsed) {
+						bytes.addAndGet(copy.source.getLen());
+						report(completed.incrementAndGet(), total, copy, elapsed);
+					}
+				};
+				long blockSize = copy.source.getBlockSize();
+				if (dstFs instanceof RawLocalFileSystem && blockSize > 0 && copy.source.getLen() > blockSize) {
+					futures.addAll(submitRanges(executor, copy, blockSize, progress));
+				}
+				else {
+					futures.add(executor.submit(new Callable<Void>() {
+
+						@Override
+						public Void call() throws Exception {
+							progress.started();
+							copyFile(copy);
+							finish(copy);
+							progress.completed();
+							return null;
+						}
+					}));
+				}
+			}
+			int failed = 0;
+			Throwable error = null;
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException e) {
+					failed++;
+					if (error == null) {
+						error = e.getCause();
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new HadoopException("Interrupted while copying files", e);
+				}
+			}
+			if (error != null) {
+				throw new HadoopException(failed + " copy operations failed, first error: " + error.getMessage(), error);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+		return String.format(Locale.US, "Copied %d files (%d bytes) in %d ms, %.2f MB/s with parallelism %d",
+				completed.get(), bytes.get(), elapsed, bytes.get() * 1000d / elapsed / (1024 * 1024), parallelism);
+	}
+
+	private void copyFile(FileCopy copy) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		FSDataInputStream in = srcFs.open(copy.source.getPath(), BUFFER_SIZE);
+		try {
+			FSDataOutputStream os = dstFs.create(copy.target, overwrite, BUFFER_SIZE);
+			boolean success = false;
+			try {
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					os.write(buffer, 0, read);
+				}
+				os.close();
+				success = true;
+			}
+			finally {
+				if (!success) {
+					IOUtils.closeStream(os);
+					delete(copy.target);
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private void finish(FileCopy copy) throws IOException {
+		if (preserveTimes) {
+			dstFs.setTimes(copy.target, copy.source.getModificationTime(), -1);
+		}
+	}
+
+	private List<Future<?>> submitRanges(ExecutorService executor, final FileCopy copy, long rangeSize,
+			final FileProgress progress) throws IOException {
+		File file = ((RawLocalFileSystem) dstFs).pathToFile(copy.target);
+		if (file.exists() && !overwrite) {
+			throw new FileAlreadyExistsException(copy.target + " already exists");
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(copy.source.getLen());
+		final FileChannel channel = raf.getChannel();
+		long length = copy.source.getLen();
+		final AtomicInteger pending = new AtomicInteger((int) ((length + rangeSize - 1) / rangeSize));
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (long position = 0; position < length; position += rangeSize) {
+			final long rangeStart = position;
+			final long rangeEnd = Math.min(position + rangeSize, length);
+			futures.add(executor.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					progress.started();
+					try {
+						// no point copying rest of the ranges once one has failed
+						if (failure.get() == null) {
+							copyRange(copy.source.getPath(), rangeStart, rangeEnd, channel);
+						}
+					}
+					catch (IOException e) {
+						failure.compareAndSet(null, e);
+						throw e;
+					}
+					catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+						throw e;
+					}
+					finally {
+						// last range to finish completes a file only if all ranges succeeded
+						if (pending.decrementAndGet() == 0) {
+							raf.close();
+							if (failure.get() != null) {
+								delete(copy.target);
+							}
+							else {
+								finish(copy);
+								progress.completed();
+							}
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		return futures;
+	}
+
+	private void delete(Path target) {
+		try {
+			dstFs.delete(target, false);
+		}
+		catch (IOException e) {
+			// original failure is more relevant
+		}
+	}
+
+	private void copyRange(Path path, long start, long end, FileChannel channel) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		FSDataInputStream in = srcFs.open(path, BUFFER_SIZE);
+		try {
+			in.seek(start);
+			long position = start;
+			while (position < end) {
+				int read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+				if (read < 0) {
+					throw new EOFException("Unexpected end of file " + path + " at position " + position);
+				}
+				ByteBuffer bb = ByteBuffer.wrap(buffer, 0, read);
+				while (bb.hasRemaining()) {
+					position += channel.write(bb, position);
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private void report(int count, int total, FileCopy copy, long elapsed) {
+		synchronized (out) {
+			out.println("[" + count + "/" + total + "] " + Path.getPathWithoutSchemeAndAuthority(copy.source.getPath())
+					+ " -> " + Path.getPathWithoutSchemeAndAuthority(copy.target) + " (" + copy.source.getLen()
+					+ " bytes in " + elapsed + " ms)");
+			out.flush();
+		}
+	}
+
+	private abstract static class FileProgress {
+
+		private final AtomicLong start = new AtomicLong();
+
+		void started() {
+			start.compareAndSet(0, System.currentTimeMillis());
+		}
+
+		void completed() {
+			completed(System.currentTimeMillis() - start.get());
+		}
+
+		abstract void completed(long elapsed);
+	}
+
+	/**
+	 * Single file copy from a source status into a target path.
+	 */
+	static class FileCopy {
+
+		final FileStatus source;
+		final Path target;
+
+		FileCopy(FileStatus source, Path target) {
+			this.source = source;
+			this.target = target;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.Trash;
+
+import org.springframework.data.hadoop.HadoopException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Removes paths using a bounded number of concurrent delete operations.
+ * Paths are submitted as they are resolved, so callers may feed an
+ * arbitrary number of paths without buffering them. A first failure is
+ * kept for an error raised once all deletes are done and further
+ * failures are reported as they happen.
+ *
+ * @author Janne Valkealahti
+ *
+ */
+class ParallelPathRemover {
+
+	private final FileSystem fs;
+	private final Configuration configuration;
+	private final boolean recursive;
+	private final boolean skipTrash;
+	private final PrintStream out;
+	private final ExecutorService executor;
+	private final Semaphore inFlight;
+	private final AtomicInteger removed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicReference<String> firstFailure = new AtomicReference<String>();
+	private final long start = System.currentTimeMillis();
+
+	/**
+	 * Instantiates a new parallel path remover.
+	 *
+	 * @param fs the file system
+	 * @param configuration the hadoop configuration
+	 * @param recursive whether directories are removed recursively
+	 * @param skipTrash whether to skip trash
+	 * @param parallelism the maximum number of deletes in flight
+	 * @param out the stream where failures are reported
+	 */
+	ParallelPathRemover(FileSystem fs, Configuration configuration, boolean recursive, boolean skipTrash,
+			int parallelism, PrintStream out) {
+		this.fs = fs;
+		this.configuration = configuration;
+		this.recursive = recursive;
+		this.skipTrash = skipTrash;
+		this.out = out;
+		this.executor = Executors.newFixedThreadPool(Math.max(parallelism, 1), new CustomizableThreadFactory("hdfs-rm-"));
+		this.inFlight = new Semaphore(Math.max(parallelism, 1));
+	}
+
+	/**
+	 * Resolves a path which may be a glob and submits matches for removal.
+	 * Blocks while the maximum number of deletes are in flight.
+	 *
+	 * @param path the path or glob
+	 */
+	void remove(String path) {
+		FileStatus[] statuses;
+		try {
+			statuses = fs.globStatus(new Path(path));
+		}
+		catch (IOException e) {
+			fail(path, e.getMessage());
+			return;
+		}
+		if (statuses == null || statuses.length == 0) {
+			fail(path, "No such file or directory");
+			return;
+		}
+		for (final FileStatus status : statuses) {
+			try {
+				inFlight.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				throw new HadoopException("Interrupted while removing paths", e);
+			}
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						delete(status);
+					}
+					finally {
+						inFlight.release();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Waits for all submitted deletes to complete and returns a summary.
+	 *
+	 * @return the summary of removed paths
+	 * @throws HadoopException if any path could not be removed
+	 */
+	String await() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				// keep waiting until all deletes are done
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HadoopException("Interrupted while removing paths", e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		String summary = String.format(Locale.US, "Removed %d paths (%d bytes) in %d ms", removed.get(), bytes.get(), elapsed);
+		if (failed.get() == 1 && removed.get() == 0) {
+			throw new HadoopException(firstFailure.get());
+		}
+		else if (failed.get() > 0) {
+			throw new HadoopException(summary + ", " + failed.get() + " failed, first error: " + firstFailure.get());
+		}
+		return summary;
+	}
+
+	/**
+	 * Stops all deletes still in flight. Does nothing if {@link #await()}
+	 * has already completed.
+	 */
+	void close() {
+		executor.shutdownNow();
+	}
+
+	private void delete(FileStatus status) {
+		Path path = status.getPath();
+		try {
+			if (status.isDirectory() && !recursive) {
+				fail(Path.getPathWithoutSchemeAndAuthority(path).toString(), "Is a directory");
+				return;
+			}
+			long length = status.isDirectory() ? fs.getContentSummary(path).getLength() : status.getLen();
+			boolean deleted = !skipTrash && Trash.moveToAppropriateTrash(fs, path, configuration);
+			if (!deleted) {
+				deleted = fs.delete(path, recursive);
+			}
+			if (deleted) {
+				removed.incrementAndGet();
+				bytes.addAndGet(length);
+			}
+			else {
+				fail(Path.getPathWithoutSchemeAndAuthority(path).toString(), "Delete failed");
+			}
+		}
+		catch (IOException e) {
+			fail(Path.getPathWithoutSchemeAndAuthority(path).toString(), e.getMessage());
+		}
+	}
+
+	private void fail(String path, String message) {
+		failed.incrementAndGet();
+		String failure = "Cannot remove " + path + ": " + message + ".";
+		if (firstFailure.compareAndSet(null, failure)) {
+			return;
+		}
+		synchronized (out) {
+			out.println(failure);
+			out.flush();
+		}
+	}
+}
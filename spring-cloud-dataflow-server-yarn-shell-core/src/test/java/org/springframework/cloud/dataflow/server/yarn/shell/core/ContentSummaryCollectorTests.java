@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ContentSummaryCollectorTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private RawLocalFileSystem fs;
+
+	@Before
+	public void setup() throws IOException {
+		fs = new RawLocalFileSystem();
+		fs.initialize(URI.create("file:///"), new Configuration());
+		write("a/1", 10);
+		write("a/2", 20);
+		write("a/b/3", 30);
+		write("a/b/c/4", 40);
+		write("d/5", 50);
+		write("6", 60);
+	}
+
+	@Test
+	public void testCollect() throws IOException {
+		FileStatus a = status("a");
+		FileStatus d = status("d");
+		FileStatus six = status("6");
+		Map<FileStatus, ContentSummary> summaries = new ContentSummaryCollector(fs, 4)
+				.collect(new FileStatus[] { six, a, d });
+		assertThat(summaries.keySet(), contains(six, a, d));
+		assertSummary(summaries.get(a), 100, 4, 3);
+		assertSummary(summaries.get(d), 50, 1, 1);
+		assertSummary(summaries.get(six), 60, 1, 0);
+		assertSummary(ContentSummaryCollector.sum(summaries.values()), 210, 6, 4);
+	}
+
+	@Test
+	public void testSameAsFileSystem() throws IOException {
+		FileStatus root = fs.getFileStatus(new Path(folder.getRoot().getAbsolutePath()));
+		ContentSummary expected = fs.getContentSummary(root.getPath());
+		ContentSummary summary = new ContentSummaryCollector(fs, 1).collect(new FileStatus[] { root }).get(root);
+		assertSummary(summary, expected.getLength(), expected.getFileCount(), expected.getDirectoryCount());
+	}
+
+	@Test
+	public void testSumEmpty() {
+		assertSummary(ContentSummaryCollector.sum(Arrays.<ContentSummary>asList()), 0, 0, 0);
+	}
+
+	private static void assertSummary(ContentSummary summary, long length, long files, long directories) {
+		assertThat(summary.getLength(), is(length));
+		assertThat(summary.getFileCount(), is(files));
+		assertThat(summary.getDirectoryCount(), is(directories));
+	}
+
+	private FileStatus status(String path) throws IOException {
+		return fs.getFileStatus(new Path(new File(folder.getRoot(), path).getAbsolutePath()));
+	}
+
+	private void write(String path, int length) throws IOException {
+		File file = new File(folder.getRoot(), path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[length]);
+	}
+}
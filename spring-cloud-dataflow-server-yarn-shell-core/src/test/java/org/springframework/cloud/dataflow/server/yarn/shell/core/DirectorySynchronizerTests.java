@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.data.hadoop.HadoopException;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class DirectorySynchronizerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private RawLocalFileSystem fs;
+	private File src;
+	private File dst;
+
+	@Before
+	public void setup() throws IOException {
+		fs = new RawLocalFileSystem();
+		fs.initialize(URI.create("file:///"), new Configuration());
+		src = folder.newFolder("src");
+		dst = new File(folder.getRoot(), "dst");
+		write(new File(src, "a.txt"), "aaa");
+		write(new File(src, "dir/b.txt"), "bbb");
+	}
+
+	@Test
+	public void testInitialAndRepeatedSync() throws IOException {
+		assertThat(sync(false, false), startsWith("2 new, 0 changed, 0 unchanged, 0 deleted"));
+		assertThat(read(new File(dst, "a.txt")), is("aaa"));
+		assertThat(read(new File(dst, "dir/b.txt")), is("bbb"));
+		assertThat(new File(dst, "a.txt").lastModified(), is(new File(src, "a.txt").lastModified()));
+		assertThat(sync(false, false), is("0 new, 0 changed, 2 unchanged, 0 deleted"));
+	}
+
+	@Test
+	public void testChangedModificationTime() throws IOException {
+		sync(false, false);
+		File a = new File(src, "a.txt");
+		write(a, "ccc");
+		a.setLastModified(a.lastModified() - 10000);
+		assertThat(sync(false, false), startsWith("0 new, 1 changed, 1 unchanged, 0 deleted"));
+		assertThat(read(new File(dst, "a.txt")), is("ccc"));
+	}
+
+	@Test
+	public void testChangedContentOnlyDetectedWithChecksum() throws IOException {
+		sync(false, false);
+		File a = new File(src, "a.txt");
+		long modified = a.lastModified();
+		write(a, "ccc");
+		a.setLastModified(modified);
+		assertThat(sync(false, false), is("0 new, 0 changed, 2 unchanged, 0 deleted"));
+		assertThat(sync(true, false), startsWith("0 new, 1 changed, 1 unchanged, 0 deleted"));
+		assertThat(read(new File(dst, "a.txt")), is("ccc"));
+	}
+
+	@Test
+	public void testDeleteExtras() throws IOException {
+		sync(false, false);
+		write(new File(dst, "extra.txt"), "x");
+		write(new File(dst, "extradir/c.txt"), "c");
+		assertThat(sync(false, false), is("0 new, 0 changed, 2 unchanged, 0 deleted"));
+		assertThat(new File(dst, "extra.txt").exists(), is(true));
+		assertThat(sync(false, true), is("0 new, 0 changed, 2 unchanged, 2 deleted"));
+		assertThat(new File(dst, "extra.txt").exists(), is(false));
+		assertThat(new File(dst, "extradir").exists(), is(false));
+	}
+
+	@Test
+	public void testFileReplacedWithDirectory() throws IOException {
+		sync(false, false);
+		new File(src, "a.txt").delete();
+		write(new File(src, "a.txt/d.txt"), "ddd");
+		assertThat(sync(false, false), startsWith("1 new, 0 changed, 1 unchanged, 0 deleted"));
+		assertThat(read(new File(dst, "a.txt/d.txt")), is("ddd"));
+	}
+
+	@Test(expected = HadoopException.class)
+	public void testSourceNotDirectory() throws IOException {
+		new DirectorySynchronizer(fs, fs, 1, new PrintStream(new ByteArrayOutputStream()))
+				.sync(new File(src, "a.txt").getAbsolutePath(), dst.getAbsolutePath());
+	}
+
+	private String sync(boolean checksum, boolean delete) throws IOException {
+		DirectorySynchronizer synchronizer = new DirectorySynchronizer(fs, fs, 2,
+				new PrintStream(new ByteArrayOutputStream()));
+		synchronizer.setChecksum(checksum);
+		synchronizer.setDelete(delete);
+		return synchronizer.sync(src.getAbsolutePath(), dst.getAbsolutePath());
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}
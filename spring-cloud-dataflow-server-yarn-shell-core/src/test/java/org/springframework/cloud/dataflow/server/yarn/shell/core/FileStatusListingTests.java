@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FileStatusListingTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fs;
+	private Path root;
+
+	@Before
+	public void setup() throws IOException {
+		fs = FileSystem.getLocal(new Configuration());
+		root = new Path(folder.getRoot().getAbsolutePath());
+		fs.create(new Path(root, "a")).close();
+		fs.create(new Path(root, "b")).close();
+		fs.create(new Path(root, "dir/c")).close();
+		fs.create(new Path(root, "dir/sub/d")).close();
+	}
+
+	@Test
+	public void testListDirectory() throws IOException {
+		FileStatusListing listing = listing(false, -1);
+		assertThat(names(listing.nextPage(10)), containsInAnyOrder("a", "b", "dir"));
+		assertThat(listing.hasNext(), is(false));
+	}
+
+	@Test
+	public void testListRecursive() throws IOException {
+		FileStatusListing listing = listing(true, -1);
+		assertThat(names(listing.nextPage(10)), containsInAnyOrder("a", "b", "dir", "c", "sub", "d"));
+		assertThat(listing.hasNext(), is(false));
+	}
+
+	@Test
+	public void testPages() throws IOException {
+		FileStatusListing listing = listing(true, -1);
+		List<String> names = new ArrayList<String>();
+		List<FileStatus> page;
+		int pages = 0;
+		while (!(page = listing.nextPage(4)).isEmpty()) {
+			assertThat(page.size() <= 4, is(true));
+			names.addAll(names(page));
+			pages++;
+		}
+		assertThat(pages, is(2));
+		assertThat(names, containsInAnyOrder("a", "b", "dir", "c", "sub", "d"));
+	}
+
+	@Test
+	public void testLimit() throws IOException {
+		FileStatusListing listing = listing(true, 3);
+		assertThat(listing.nextPage(10).size(), is(3));
+		assertThat(listing.hasNext(), is(false));
+		assertThat(listing.nextPage(10).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testFileAsRoot() throws IOException {
+		FileStatusListing listing = new FileStatusListing(fs, new MetadataCache(0, 0),
+				new FileStatus[] { fs.getFileStatus(new Path(root, "a")) }, true, -1);
+		assertThat(names(listing.nextPage(10)), containsInAnyOrder("a"));
+	}
+
+	private FileStatusListing listing(boolean recursive, long limit) throws IOException {
+		return new FileStatusListing(fs, new MetadataCache(0, 0), new FileStatus[] { fs.getFileStatus(root) },
+				recursive, limit);
+	}
+
+	private static List<String> names(List<FileStatus> statuses) {
+		List<String> names = new ArrayList<String>();
+		for (FileStatus status : statuses) {
+			names.add(status.getPath().getName());
+		}
+		return names;
+	}
+}
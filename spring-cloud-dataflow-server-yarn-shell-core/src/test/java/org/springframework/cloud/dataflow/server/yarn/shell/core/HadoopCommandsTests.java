@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class HadoopCommandsTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HadoopCommands commands;
+	private PrintStream stdout;
+	private ByteArrayOutputStream out;
+
+	@Before
+	public void setup() {
+		Configuration configuration = new Configuration();
+		configuration.set("fs.defaultFS", "file:///");
+		commands = new HadoopCommands();
+		commands.setConfiguration(configuration);
+		stdout = System.out;
+		out = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(out, true));
+	}
+
+	@After
+	public void clean() {
+		System.setOut(stdout);
+	}
+
+	@Test
+	public void testTail() throws IOException {
+		File file = write("file.txt", "line1\nline2\n");
+		commands.tail(file.getAbsolutePath(), 6, false, 1000, 0);
+		assertThat(out.toString(), is("line2\n"));
+	}
+
+	@Test
+	public void testTailMoreThanFile() throws IOException {
+		File file = write("file.txt", "line1\nline2\n");
+		commands.tail(file.getAbsolutePath(), 1024, false, 1000, 0);
+		assertThat(out.toString(), is("line1\nline2\n"));
+	}
+
+	@Test
+	public void testTailRejectsNonPositiveBytes() throws IOException {
+		File file = write("file.txt", "line1\nline2\n");
+		for (long bytes : new long[] { 0, -5 }) {
+			try {
+				commands.tail(file.getAbsolutePath(), bytes, false, 1000, 0);
+				fail("Expected tail to fail with bytes " + bytes);
+			}
+			catch (IllegalArgumentException e) {
+				assertThat(e.getMessage(), containsString("--bytes must be greater than zero"));
+			}
+		}
+		assertThat(out.toString(), is(""));
+	}
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.shell.core.Completion;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HdfsPathConverterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HdfsPathConverter converter;
+	private String root;
+
+	@Before
+	public void setup() throws IOException {
+		Configuration configuration = new Configuration();
+		configuration.set("fs.defaultFS", "file:///");
+		HadoopCommands commands = new HadoopCommands();
+		commands.setConfiguration(configuration);
+		converter = new HdfsPathConverter();
+		converter.setHadoopCommands(commands);
+		root = folder.getRoot().getAbsolutePath();
+		folder.newFile("apple");
+		folder.newFile("apricot");
+		folder.newFile("banana");
+		folder.newFolder("archive");
+	}
+
+	@Test
+	public void testSupports() {
+		assertThat(converter.supports(String.class, HdfsPathConverter.OPTION_CONTEXT), is(true));
+		assertThat(converter.supports(String.class, null), is(false));
+		assertThat(converter.supports(String.class, "disable-string-converter"), is(false));
+		assertThat(converter.supports(Integer.class, HdfsPathConverter.OPTION_CONTEXT), is(false));
+	}
+
+	@Test
+	public void testCompleteChildren() {
+		assertThat(complete(root + "/a"), containsInAnyOrder(root + "/apple", root + "/apricot", root + "/archive/"));
+		assertThat(complete(root + "/b"), containsInAnyOrder(root + "/banana"));
+		assertThat(complete(root + "/"), containsInAnyOrder(root + "/apple", root + "/apricot", root + "/archive/",
+				root + "/banana"));
+	}
+
+	@Test
+	public void testCompleteUsesCachedListing() throws IOException {
+		complete(root + "/a");
+		new File(folder.getRoot(), "avocado").createNewFile();
+		assertThat(complete(root + "/a"), containsInAnyOrder(root + "/apple", root + "/apricot", root + "/archive/"));
+	}
+
+	@Test
+	public void testNothingToComplete() {
+		assertThat(complete(root + "/missing/a"), is(empty()));
+		assertThat(complete(root + "/*"), is(empty()));
+	}
+
+	private List<String> complete(String existing) {
+		List<Completion> completions = new ArrayList<Completion>();
+		converter.getAllPossibleValues(completions, String.class, existing, HdfsPathConverter.OPTION_CONTEXT, null);
+		List<String> values = new ArrayList<String>();
+		for (Completion completion : completions) {
+			values.add(completion.getValue());
+		}
+		return values;
+	}
+}
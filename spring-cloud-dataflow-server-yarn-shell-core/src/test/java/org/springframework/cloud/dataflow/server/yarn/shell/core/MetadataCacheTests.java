@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MetadataCacheTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fs;
+	private Path root;
+
+	@Before
+	public void setup() throws IOException {
+		fs = FileSystem.getLocal(new Configuration());
+		root = new Path(folder.getRoot().getAbsolutePath());
+		fs.create(new Path(root, "a")).close();
+		fs.create(new Path(root, "dir/b")).close();
+	}
+
+	@Test
+	public void testListingCached() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		assertThat(list(cache, root), containsInAnyOrder("a", "dir"));
+		fs.create(new Path(root, "c")).close();
+		assertThat(list(cache, root), containsInAnyOrder("a", "dir"));
+		assertThat(cache.getStats(), containsString("hits=1, misses=1"));
+	}
+
+	@Test
+	public void testCachingDisabled() throws IOException {
+		MetadataCache cache = new MetadataCache(0, 100);
+		list(cache, root);
+		fs.create(new Path(root, "c")).close();
+		assertThat(list(cache, root), containsInAnyOrder("a", "c", "dir"));
+		assertThat(cache.getStats(), containsString("entries=0"));
+	}
+
+	@Test
+	public void testExpired() throws Exception {
+		MetadataCache cache = new MetadataCache(1, 100);
+		list(cache, root);
+		fs.create(new Path(root, "c")).close();
+		Thread.sleep(10);
+		assertThat(list(cache, root), containsInAnyOrder("a", "c", "dir"));
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 2);
+		list(cache, root);
+		list(cache, new Path(root, "dir"));
+		assertThat(cache.getStats(), containsString("evictions=1, entries=1, statuses=1"));
+	}
+
+	@Test
+	public void testListingTooLargeNotCached() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 1);
+		list(cache, root);
+		assertThat(cache.getStats(), containsString("entries=0"));
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		list(cache, root);
+		list(cache, new Path(root, "dir"));
+		fs.create(new Path(root, "dir/c")).close();
+		cache.invalidate(new Path(root, "dir/c").toString());
+		assertThat(list(cache, new Path(root, "dir")), containsInAnyOrder("b", "c"));
+		assertThat(list(cache, root), containsInAnyOrder("a", "dir"));
+		assertThat(cache.getStats(), containsString("hits=1"));
+
+		cache.invalidate(new Path(root, "dir").toString());
+		assertThat(cache.getStats(), containsString("entries=0"));
+	}
+
+	@Test
+	public void testInvalidateGlobClears() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		list(cache, root);
+		cache.invalidate("/other/*");
+		assertThat(cache.getStats(), containsString("entries=0"));
+	}
+
+	@Test
+	public void testStatusCached() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		Path file = new Path(root, "a");
+		assertThat(cache.getFileStatus(fs, file).getLen(), is(0L));
+		write(file, "foo");
+		assertThat(cache.getFileStatus(fs, file).getLen(), is(0L));
+		assertThat(cache.getStats(), containsString("hits=1, misses=1"));
+
+		cache.invalidate(file.toString());
+		assertThat(cache.getFileStatus(fs, file).getLen(), is(3L));
+	}
+
+	@Test
+	public void testStatusOfParentInvalidated() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		cache.getFileStatus(fs, new Path(root, "dir"));
+		cache.getFileStatus(fs, new Path(root, "a"));
+		cache.invalidate(new Path(root, "dir/c").toString());
+		assertThat(cache.getStats(), containsString("entries=1"));
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testMissingStatusNotCached() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		try {
+			cache.getFileStatus(fs, new Path(root, "missing"));
+		}
+		finally {
+			assertThat(cache.getStats(), containsString("entries=0"));
+		}
+	}
+
+	@Test
+	public void testInvalidateNeverFails() throws IOException {
+		MetadataCache cache = new MetadataCache(60000, 100);
+		cache.invalidate("");
+		list(cache, root);
+		cache.invalidate("");
+		assertThat(cache.getStats(), containsString("entries=0"));
+	}
+
+	@Test
+	public void testIsGlob() {
+		assertThat(MetadataCache.isGlob("/tmp/*.log"), is(true));
+		assertThat(MetadataCache.isGlob("/tmp/{a,b}"), is(true));
+		assertThat(MetadataCache.isGlob("/tmp/a.log"), is(false));
+	}
+
+	private void write(Path file, String content) throws IOException {
+		FSDataOutputStream out = fs.create(file, true);
+		try {
+			out.write(content.getBytes());
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private List<String> list(MetadataCache cache, Path path) throws IOException {
+		List<String> names = new ArrayList<String>();
+		RemoteIterator<LocatedFileStatus> iterator = cache.listLocatedStatus(fs, path);
+		while (iterator.hasNext()) {
+			names.add(iterator.next().getPath().getName());
+		}
+		return names;
+	}
+}
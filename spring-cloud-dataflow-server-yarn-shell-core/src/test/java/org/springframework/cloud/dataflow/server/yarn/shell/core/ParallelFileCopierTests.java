@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.data.hadoop.HadoopException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParallelFileCopierTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FailingFileSystem srcFs;
+	private RawLocalFileSystem dstFs;
+	private ByteArrayOutputStream out;
+	private byte[] data;
+	private File source;
+
+	@Before
+	public void setup() throws IOException {
+		Configuration configuration = new Configuration();
+		configuration.setLong("fs.local.block.size", 1024);
+		srcFs = new FailingFileSystem();
+		srcFs.initialize(URI.create("file:///"), configuration);
+		dstFs = new RawLocalFileSystem();
+		dstFs.initialize(URI.create("file:///"), configuration);
+		out = new ByteArrayOutputStream();
+		data = new byte[5000];
+		new Random(0).nextBytes(data);
+		source = folder.newFile("source.bin");
+		Files.write(source.toPath(), data);
+	}
+
+	@Test
+	public void testCopyInRanges() throws IOException {
+		File target = new File(folder.getRoot(), "target.bin");
+		ParallelFileCopier copier = new ParallelFileCopier(srcFs, dstFs, 3, new PrintStream(out));
+		String summary = copier.copy(copier.plan(source.getAbsolutePath(), target.getAbsolutePath()));
+		assertThat(summary, containsString("Copied 1 files (5000 bytes)"));
+		assertThat(Files.readAllBytes(target.toPath()), is(data));
+		assertThat(srcFs.opens.get(), is(5));
+		assertThat(out.toString(), containsString("[1/1]"));
+	}
+
+	@Test
+	public void testFailedRangeRemovesTarget() throws IOException {
+		File target = new File(folder.getRoot(), "target.bin");
+		srcFs.failAt = 2;
+		ParallelFileCopier copier = new ParallelFileCopier(srcFs, dstFs, 1, new PrintStream(out));
+		try {
+			copier.copy(copier.plan(source.getAbsolutePath(), target.getAbsolutePath()));
+			fail("Expected copy to fail");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), containsString("1 copy operations failed, first error: range 2"));
+		}
+		assertThat(target.exists(), is(false));
+		assertThat(out.toString(), not(containsString("[1/1]")));
+	}
+
+	@Test
+	public void testFailedFileRemovesTarget() throws IOException {
+		// file within a block is copied without ranges
+		Files.write(source.toPath(), new byte[500]);
+		File target = new File(folder.getRoot(), "target.bin");
+		srcFs.failWrites = true;
+		ParallelFileCopier copier = new ParallelFileCopier(dstFs, srcFs, 1, new PrintStream(out));
+		try {
+			copier.copy(copier.plan(source.getAbsolutePath(), target.getAbsolutePath()));
+			fail("Expected copy to fail");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), containsString("first error: write"));
+		}
+		assertThat(target.exists(), is(false));
+	}
+
+	@Test
+	public void testExistingTargetIsKept() throws IOException {
+		Files.write(source.toPath(), new byte[500]);
+		File target = folder.newFile("target.bin");
+		Files.write(target.toPath(), new byte[] { 1, 2, 3 });
+		ParallelFileCopier copier = new ParallelFileCopier(dstFs, srcFs, 1, new PrintStream(out));
+		try {
+			copier.copy(copier.plan(source.getAbsolutePath(), target.getAbsolutePath()));
+			fail("Expected copy to fail");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), containsString("already exists"));
+		}
+		assertThat(Files.readAllBytes(target.toPath()), is(new byte[] { 1, 2, 3 }));
+	}
+
+	private static class FailingFileSystem extends RawLocalFileSystem {
+
+		final AtomicInteger opens = new AtomicInteger();
+		volatile int failAt;
+		volatile boolean failWrites;
+
+		@Override
+		public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+			int open = opens.incrementAndGet();
+			if (open == failAt) {
+				throw new IOException("range " + open);
+			}
+			return super.open(f, bufferSize);
+		}
+
+		@Override
+		public FSDataOutputStream create(Path f, boolean overwrite, int bufferSize) throws IOException {
+			final FSDataOutputStream os = super.create(f, overwrite, bufferSize);
+			if (!failWrites) {
+				return os;
+			}
+			return new FSDataOutputStream(new OutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					throw new IOException("write");
+				}
+
+				@Override
+				public void close() throws IOException {
+					os.close();
+				}
+			}, null);
+		}
+	}
+}
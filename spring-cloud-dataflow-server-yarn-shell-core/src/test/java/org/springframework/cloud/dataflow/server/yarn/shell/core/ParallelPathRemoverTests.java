@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.dataflow.server.yarn.shell.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.data.hadoop.HadoopException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParallelPathRemoverTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private RawLocalFileSystem fs;
+	private ByteArrayOutputStream out;
+
+	@Before
+	public void setup() throws IOException {
+		fs = new RawLocalFileSystem();
+		fs.initialize(URI.create("file:///"), new Configuration());
+		out = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void testRemoveGlob() throws IOException {
+		folder.newFile("a.log");
+		folder.newFile("b.log");
+		folder.newFile("c.txt");
+		ParallelPathRemover remover = remover(false);
+		remover.remove(folder.getRoot().getAbsolutePath() + "/*.log");
+		assertThat(remover.await(), startsWith("Removed 2 paths"));
+		assertThat(new File(folder.getRoot(), "a.log").exists(), is(false));
+		assertThat(new File(folder.getRoot(), "b.log").exists(), is(false));
+		assertThat(new File(folder.getRoot(), "c.txt").exists(), is(true));
+	}
+
+	@Test
+	public void testRemoveNonExistingPath() {
+		String path = new File(folder.getRoot(), "missing").getAbsolutePath();
+		ParallelPathRemover remover = remover(false);
+		remover.remove(path);
+		try {
+			remover.await();
+			fail("Expected remove to fail");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), is("Cannot remove " + path + ": No such file or directory."));
+		}
+		assertThat(out.toString(), is(""));
+	}
+
+	@Test
+	public void testRemoveDirectoryNeedsRecursive() throws IOException {
+		File dir = folder.newFolder("dir");
+		new File(dir, "a").createNewFile();
+		ParallelPathRemover remover = remover(false);
+		remover.remove(dir.getAbsolutePath());
+		try {
+			remover.await();
+			fail("Expected remove to fail");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), containsString("Is a directory"));
+		}
+		assertThat(dir.exists(), is(true));
+
+		remover = remover(true);
+		remover.remove(dir.getAbsolutePath());
+		assertThat(remover.await(), startsWith("Removed 1 paths"));
+		assertThat(dir.exists(), is(false));
+	}
+
+	@Test
+	public void testPartialFailure() throws IOException {
+		folder.newFile("a");
+		folder.newFile("b");
+		ParallelPathRemover remover = remover(false);
+		remover.remove(new File(folder.getRoot(), "a").getAbsolutePath());
+		remover.remove(new File(folder.getRoot(), "missing1").getAbsolutePath());
+		remover.remove(new File(folder.getRoot(), "b").getAbsolutePath());
+		remover.remove(new File(folder.getRoot(), "missing2").getAbsolutePath());
+		try {
+			remover.await();
+			fail("Expected remove to fail");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), startsWith("Removed 2 paths"));
+			assertThat(e.getMessage(), containsString("2 failed, first error: Cannot remove"));
+			assertThat(e.getMessage(), containsString("missing1"));
+		}
+		assertThat(out.toString(), containsString("missing2: No such file or directory."));
+	}
+
+	@Test
+	public void testRemoveAfterInterrupt() throws IOException {
+		folder.newFile("a");
+		ParallelPathRemover remover = remover(false);
+		Thread.currentThread().interrupt();
+		try {
+			remover.remove(new File(folder.getRoot(), "a").getAbsolutePath());
+			fail("Expected remove to be interrupted");
+		}
+		catch (HadoopException e) {
+			assertThat(e.getMessage(), containsString("Interrupted"));
+		}
+		finally {
+			Thread.interrupted();
+			remover.close();
+		}
+	}
+
+	private ParallelPathRemover remover(boolean recursive) {
+		return new ParallelPathRemover(fs, fs.getConf(), recursive, true, 2, new PrintStream(out));
+	}
+}